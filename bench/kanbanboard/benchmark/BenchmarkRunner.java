@@ -0,0 +1,21 @@
+package kanbanboard.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Запуск бенчмарков с профилировщиком GC: в отчет попадают gc.alloc.rate.norm (байт на операцию)
+// и gc.alloc.rate, по которым видны регрессии по выделению памяти.
+// Аргументы — обычные аргументы JMH, например: TaskManagerBenchmark.getTask -p size=100000
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
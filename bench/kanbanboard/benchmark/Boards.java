@@ -0,0 +1,70 @@
+package kanbanboard.benchmark;
+
+import kanbanboard.manager.task.TaskManager;
+import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Заполнение доски для бенчмарков: size сущностей, из них эпики по fanOut подзадач,
+// остаток — обычные задачи. Задачи и подзадачи создаются пачками, чтобы заполнение
+// FileBackedTaskManager не сохраняло файл на каждую сущность
+final class Boards {
+    private static final int BATCH_SIZE = 10_000;
+    private static final Status[] STATUSES = Status.values();
+
+    final int[] taskIds;
+    final int[] epicIds;
+    final int[] subtaskIds;
+
+    private Boards(int[] taskIds, int[] epicIds, int[] subtaskIds) {
+        this.taskIds = taskIds;
+        this.epicIds = epicIds;
+        this.subtaskIds = subtaskIds;
+    }
+
+    static Boards fill(TaskManager manager, int size, int fanOut) {
+        int epicCount = Math.max(1, size / (fanOut + 1) / 2); // около половины доски — эпики с подзадачами
+        int subtaskCount = epicCount * fanOut;
+        int taskCount = Math.max(1, size - epicCount - subtaskCount);
+
+        int[] epicIds = new int[epicCount];
+        for (int i = 0; i < epicCount; i++) {
+            epicIds[i] = manager.createEpic(new Epic("Эпик " + i, "Описание эпика " + i)).getId();
+        }
+
+        int[] subtaskIds = new int[subtaskCount];
+        List<Subtask> subtasks = new ArrayList<>(BATCH_SIZE);
+        int created = 0;
+        for (int i = 0; i < subtaskCount; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание подзадачи " + i, epicIds[i / fanOut]);
+            subtask.setStatus(STATUSES[i % STATUSES.length]);
+            subtasks.add(subtask);
+            if (subtasks.size() == BATCH_SIZE || i == subtaskCount - 1) {
+                for (Subtask createdSubtask : manager.createSubtasks(subtasks)) {
+                    subtaskIds[created++] = createdSubtask.getId();
+                }
+                subtasks.clear();
+            }
+        }
+
+        int[] taskIds = new int[taskCount];
+        List<Task> tasks = new ArrayList<>(BATCH_SIZE);
+        created = 0;
+        for (int i = 0; i < taskCount; i++) {
+            Task task = new Task("Задача " + i, "Описание задачи " + i);
+            task.setStatus(STATUSES[i % STATUSES.length]);
+            tasks.add(task);
+            if (tasks.size() == BATCH_SIZE || i == taskCount - 1) {
+                for (Task createdTask : manager.createTasks(tasks)) {
+                    taskIds[created++] = createdTask.getId();
+                }
+                tasks.clear();
+            }
+        }
+        return new Boards(taskIds, epicIds, subtaskIds);
+    }
+}
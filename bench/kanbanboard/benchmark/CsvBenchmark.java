@@ -0,0 +1,71 @@
+package kanbanboard.benchmark;
+
+import kanbanboard.manager.task.CsvConverter;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация и разбор одной строки CSV: строкой, в переиспользуемый буфер и обратно
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CsvBenchmark {
+    private final CsvConverter converter = new CsvConverter();
+    private final StringBuilder builder = new StringBuilder(256);
+    private final ByteBuffer bytes = ByteBuffer.allocate(1024);
+    private Task task;
+    private Subtask subtask;
+    private String taskLine;
+    private String subtaskLine;
+
+    @Setup
+    public void setUp() {
+        task = new Task("Купить продукты", "Молоко, хлеб и сыр на неделю", Status.IN_PROGRESS, 12345);
+        subtask = new Subtask("Собрать коробки", "Книги и посуда отдельно", 42, Status.NEW, 12346);
+        taskLine = converter.toCsvString(task);
+        subtaskLine = converter.toCsvString(subtask);
+    }
+
+    @Benchmark
+    public String taskToString() {
+        return converter.toCsvString(task);
+    }
+
+    @Benchmark
+    public StringBuilder taskToBuilder() {
+        builder.setLength(0);
+        return converter.toCsvString(task, builder);
+    }
+
+    @Benchmark
+    public ByteBuffer subtaskToUtf8() {
+        bytes.clear();
+        return converter.toCsvString(subtask, bytes);
+    }
+
+    @Benchmark
+    public Task parseTask() {
+        return converter.fromCsvString(taskLine);
+    }
+
+    @Benchmark
+    public Task parseSubtask() {
+        return converter.fromCsvString(subtaskLine);
+    }
+}
@@ -0,0 +1,83 @@
+package kanbanboard.benchmark;
+
+import kanbanboard.manager.history.InMemoryHistoryManager;
+import kanbanboard.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// InMemoryHistoryManager с заполненной историей из capacity просмотров
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HistoryBenchmark {
+    private static final int LAST_VIEWS = 10;
+
+    @Param({"10", "1000", "100000"})
+    private int capacity;
+
+    private InMemoryHistoryManager history;
+    private Task[] tasks;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        history = new InMemoryHistoryManager(capacity);
+        tasks = new Task[capacity * 2]; // вдвое больше емкости: новые просмотры вытесняют давние
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Task("Задача " + i, "Описание задачи " + i);
+            tasks[i].setId(i + 1);
+        }
+        for (int i = 0; i < capacity; i++) {
+            history.add(tasks[i]);
+        }
+    }
+
+    private Task nextTask() {
+        Task task = tasks[cursor++];
+        if (cursor == tasks.length) {
+            cursor = 0;
+        }
+        return task;
+    }
+
+    // Просмотр с вытеснением самого давнего или переносом повторного просмотра в конец
+    @Benchmark
+    public long add() {
+        history.add(nextTask());
+        return history.getVersion();
+    }
+
+    // Повторный запрос без изменений истории отдает кэшированный список
+    @Benchmark
+    public List<Task> getHistoryUnchanged() {
+        return history.getHistory();
+    }
+
+    // Стоимость перестроения списка после изменения
+    @Benchmark
+    public List<Task> addThenGetHistory() {
+        history.add(nextTask());
+        return history.getHistory();
+    }
+
+    @Benchmark
+    public List<Task> addThenGetLastViews() {
+        history.add(nextTask());
+        return history.getHistory(LAST_VIEWS);
+    }
+}
@@ -0,0 +1,85 @@
+package kanbanboard.benchmark;
+
+import kanbanboard.manager.history.InMemoryHistoryManager;
+import kanbanboard.manager.task.FileBackedTaskManager;
+import kanbanboard.manager.task.SnapshotFileWriter;
+import kanbanboard.manager.task.StorageFormat;
+import kanbanboard.manager.task.StorageOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Полное сохранение и загрузка FileBackedTaskManager. Доска заполняется в режиме журнала,
+// чтобы не переписывать снимок на каждую созданную сущность, и записывается контрольной точкой
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"10"})
+    private int fanOut;
+
+    @Param({"CSV", "BINARY"})
+    private StorageFormat format;
+
+    @Param({"false", "true"})
+    private boolean parallelLoad;
+
+    private File file;
+    private FileBackedTaskManager manager;
+
+    private StorageOptions options() {
+        StorageOptions options = StorageOptions.journal(Integer.MAX_VALUE).withFormat(format);
+        return parallelLoad ? options.withParallelLoad() : options;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("kanban-bench", format == StorageFormat.BINARY ? ".bin" : ".csv");
+        Files.delete(file.toPath());
+        manager = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), file, options());
+        Boards.fill(manager, size, fanOut);
+        manager.checkpoint();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        Files.deleteIfExists(file.toPath());
+        Files.deleteIfExists(SnapshotFileWriter.getBackupFile(file.toPath()));
+        Files.deleteIfExists(FileBackedTaskManager.getJournalFile(file).toPath());
+    }
+
+    // Полный снимок на диск (журнал пуст, поэтому его очистка почти ничего не стоит)
+    @Benchmark
+    public void save() {
+        manager.checkpoint();
+    }
+
+    @Benchmark
+    public FileBackedTaskManager load() {
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), file,
+                options());
+        loaded.close();
+        return loaded;
+    }
+}
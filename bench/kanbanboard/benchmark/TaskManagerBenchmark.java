@@ -0,0 +1,130 @@
+package kanbanboard.benchmark;
+
+import kanbanboard.manager.history.HistoryManager;
+import kanbanboard.manager.history.InMemoryHistoryManager;
+import kanbanboard.manager.task.InMemoryTaskManager;
+import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Горячие пути InMemoryTaskManager на доске из size сущностей с fanOut подзадачами на эпик.
+// Изменяющие бенчмарки сохраняют размер доски: создание идет в паре с удалением,
+// обновление переключает статус существующей сущности
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TaskManagerBenchmark {
+    private static final int HISTORY_CAPACITY = 10;
+    private static final Status[] STATUSES = Status.values();
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"1", "10", "100"})
+    private int fanOut;
+
+    private BenchTaskManager manager;
+    private Boards board;
+    private int cursor;
+    private int statusCursor;
+
+    // Доступ к полному пересчету статуса эпика, который менеджер выполняет при загрузке
+    static final class BenchTaskManager extends InMemoryTaskManager {
+        BenchTaskManager(HistoryManager history) {
+            super(history);
+        }
+
+        void recomputeEpicStatus(int epicId) {
+            updateEpicStatus(epicId);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        manager = new BenchTaskManager(new InMemoryHistoryManager(HISTORY_CAPACITY));
+        board = Boards.fill(manager, size, fanOut);
+    }
+
+    // Следующий индекс по кругу: обращения расходятся по всей доске, а не бьют в одну сущность
+    private int next(int length) {
+        int index = cursor++;
+        if (cursor == length) {
+            cursor = 0;
+        }
+        return index % length;
+    }
+
+    private Status nextStatus() {
+        statusCursor = (statusCursor + 1) % STATUSES.length;
+        return STATUSES[statusCursor];
+    }
+
+    @Benchmark
+    public Task createAndDeleteTask() {
+        Task task = manager.createTask(new Task("Новая задача", "Описание новой задачи"));
+        manager.deleteTask(task.getId());
+        return task;
+    }
+
+    @Benchmark
+    public Subtask createAndDeleteSubtask() {
+        int epicId = board.epicIds[next(board.epicIds.length)];
+        Subtask subtask = manager.createSubtask(new Subtask("Новая подзадача", "Описание", epicId));
+        manager.deleteSubtask(subtask.getId());
+        return subtask;
+    }
+
+    @Benchmark
+    public Task updateTask() {
+        int index = next(board.taskIds.length);
+        return manager.updateTask(new Task("Задача " + index, "Описание задачи " + index,
+                nextStatus(), board.taskIds[index]));
+    }
+
+    // Обновление подзадачи с инкрементальным пересчетом статуса ее эпика
+    @Benchmark
+    public Subtask updateSubtask() {
+        int index = next(board.subtaskIds.length);
+        return manager.updateSubtask(new Subtask("Подзадача " + index, "Описание подзадачи " + index,
+                board.epicIds[index / fanOut], nextStatus(), board.subtaskIds[index]));
+    }
+
+    // Полный пересчет статуса эпика за O(fanOut)
+    @Benchmark
+    public void recomputeEpicStatus() {
+        manager.recomputeEpicStatus(board.epicIds[next(board.epicIds.length)]);
+    }
+
+    // Чтение по id вместе с обновлением истории просмотров
+    @Benchmark
+    public Task getTask() {
+        return manager.getTask(board.taskIds[next(board.taskIds.length)]);
+    }
+
+    @Benchmark
+    public Epic getEpic() {
+        return manager.getEpic(board.epicIds[next(board.epicIds.length)]);
+    }
+
+    @Benchmark
+    public Subtask getSubtask() {
+        return manager.getSubtask(board.subtaskIds[next(board.subtaskIds.length)]);
+    }
+}
@@ -1,17 +1,59 @@
 package kanbanboard.manager;
 
+import kanbanboard.manager.history.ConcurrentHistoryManager;
 import kanbanboard.manager.history.HistoryManager;
 import kanbanboard.manager.history.InMemoryHistoryManager;
+import kanbanboard.manager.metrics.InstrumentedHistoryManager;
+import kanbanboard.manager.metrics.InstrumentedTaskManager;
+import kanbanboard.manager.metrics.MetricsRegistry;
+import kanbanboard.manager.task.ConcurrentTaskManager;
+import kanbanboard.manager.task.FileBackedTaskManager;
 import kanbanboard.manager.task.InMemoryTaskManager;
+import kanbanboard.manager.task.StorageOptions;
 import kanbanboard.manager.task.TaskManager;
 
+import java.io.File;
+
 public class Managers {
 
     public static TaskManager getDefault(HistoryManager manager) {
         return new InMemoryTaskManager(manager);
     }
 
+    // Формат снимка определяется расширением файла: *.bin — двоичный, остальные — CSV
+    public static FileBackedTaskManager getFileBacked(HistoryManager manager, File file) {
+        return FileBackedTaskManager.loadFromFile(manager, file);
+    }
+
+    public static FileBackedTaskManager getFileBacked(HistoryManager manager, File file, StorageOptions options) {
+        return FileBackedTaskManager.loadFromFile(manager, file, options);
+    }
+
+    // Менеджер для многопоточного использования; история должна быть потокобезопасной
+    public static TaskManager getConcurrent(HistoryManager manager) {
+        return new ConcurrentTaskManager(manager);
+    }
+
     public static HistoryManager getDefaultHistoryManager() {
         return new InMemoryHistoryManager();
     }
+
+    // История из последних capacity просмотров; storeIdsOnly — хранить только id задач
+    public static HistoryManager getDefaultHistoryManager(int capacity, boolean storeIdsOnly) {
+        return new InMemoryHistoryManager(capacity, storeIdsOnly);
+    }
+
+    public static HistoryManager getConcurrentHistoryManager() {
+        return new ConcurrentHistoryManager();
+    }
+
+    // Обертки с метриками длительности вызовов. Историю нужно обернуть до создания менеджера задач,
+    // чтобы измерялись и просмотры из getTask/getEpic/getSubtask
+    public static TaskManager instrument(TaskManager manager, MetricsRegistry registry) {
+        return new InstrumentedTaskManager(manager, registry);
+    }
+
+    public static HistoryManager instrument(HistoryManager manager, MetricsRegistry registry) {
+        return new InstrumentedHistoryManager(manager, registry);
+    }
 }
@@ -0,0 +1,7 @@
+package kanbanboard.manager.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
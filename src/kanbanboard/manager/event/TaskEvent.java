@@ -0,0 +1,115 @@
+package kanbanboard.manager.event;
+
+import kanbanboard.model.Status;
+import kanbanboard.model.TaskType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Событие изменения задачи. Объекты создаются заранее и переиспользуются ячейками кольцевого буфера
+// и подписчиками, поэтому хранить ссылку на событие после обработки нельзя — только копировать поля.
+// Смена статуса эпика из-за его подзадач приходит отдельным событием UPDATED для эпика
+public final class TaskEvent {
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(TaskEvent.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static final long WRITING = -1; // ячейка перезаписывается
+
+    @SuppressWarnings("unused") // доступ через SEQUENCE
+    private long sequence = WRITING;
+    private ChangeType changeType;
+    private TaskType taskType;
+    private int id;
+    private int epicId;      // эпик подзадачи; 0 для задач и эпиков
+    private Status oldStatus; // null для CREATED
+    private Status newStatus; // null для DELETED
+
+    TaskEvent() {
+    }
+
+    public long getSequence() {
+        return (long) SEQUENCE.getOpaque(this);
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+
+    public TaskType getTaskType() {
+        return taskType;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getEpicId() {
+        return epicId;
+    }
+
+    public Status getOldStatus() {
+        return oldStatus;
+    }
+
+    public Status getNewStatus() {
+        return newStatus;
+    }
+
+    public boolean isStatusChanged() {
+        return oldStatus != newStatus;
+    }
+
+    // Запись ячейки публикующим потоком по схеме seqlock: сначала метка WRITING, затем поля,
+    // затем номер события с release-семантикой
+    void write(long sequence, ChangeType changeType, TaskType taskType, int id, int epicId,
+               Status oldStatus, Status newStatus) {
+        SEQUENCE.setOpaque(this, WRITING);
+        VarHandle.storeStoreFence();
+        this.changeType = changeType;
+        this.taskType = taskType;
+        this.id = id;
+        this.epicId = epicId;
+        this.oldStatus = oldStatus;
+        this.newStatus = newStatus;
+        SEQUENCE.setRelease(this, sequence);
+    }
+
+    // Копирует ячейку с номером sequence в target; false, если ячейка еще не записана или уже перезаписана
+    boolean readInto(long sequence, TaskEvent target) {
+        if ((long) SEQUENCE.getAcquire(this) != sequence) {
+            return false;
+        }
+        target.changeType = changeType;
+        target.taskType = taskType;
+        target.id = id;
+        target.epicId = epicId;
+        target.oldStatus = oldStatus;
+        target.newStatus = newStatus;
+        VarHandle.loadLoadFence();
+        if ((long) SEQUENCE.getOpaque(this) != sequence) {
+            return false;
+        }
+        SEQUENCE.setOpaque(target, sequence);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{" +
+                "sequence=" + getSequence() +
+                ", changeType=" + changeType +
+                ", taskType=" + taskType +
+                ", id=" + id +
+                ", epicId=" + epicId +
+                ", oldStatus=" + oldStatus +
+                ", newStatus=" + newStatus +
+                '}';
+    }
+}
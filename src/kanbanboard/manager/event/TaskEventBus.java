@@ -0,0 +1,198 @@
+package kanbanboard.manager.event;
+
+import kanbanboard.model.Status;
+import kanbanboard.model.TaskType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+// Асинхронная шина событий об изменениях задач.
+// События пишутся в кольцевой буфер с заранее созданными объектами: публикация не выделяет память,
+// не берет блокировок и не будит подписчиков — это несколько записей полей и одна release-запись курсора.
+// Каждый подписчик читает буфер в своем потоке пачками до batchSize событий и опрашивает курсор
+// с паузами, когда событий нет. Писатель никогда не ждет подписчиков: отставший больше чем
+// на емкость буфера подписчик пропускает перезаписанные события и узнает об этом через onOverflow.
+// Публиковать может только один поток одновременно (менеджер задач публикует изнутри своих изменений)
+public class TaskEventBus implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int SPIN_TRIES = 64;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final VarHandle CURSOR;
+
+    static {
+        try {
+            CURSOR = MethodHandles.lookup().findVarHandle(TaskEventBus.class, "cursor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final TaskEvent[] ring;
+    private final int mask;
+    private final int batchSize;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    @SuppressWarnings("unused") // доступ через CURSOR
+    private long cursor = -1; // номер последнего опубликованного события
+    private long next;        // номер следующего события; меняется только публикующим потоком
+
+    public TaskEventBus() {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    // capacity округляется вверх до степени двойки
+    public TaskEventBus(int capacity, int batchSize) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Емкость и размер пачки должны быть положительными: "
+                    + capacity + ", " + batchSize);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        ring = new TaskEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new TaskEvent();
+        }
+        mask = size - 1;
+        this.batchSize = batchSize;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public void publish(ChangeType changeType, TaskType taskType, int id, int epicId,
+                        Status oldStatus, Status newStatus) {
+        long sequence = next++;
+        ring[(int) sequence & mask].write(sequence, changeType, taskType, id, epicId, oldStatus, newStatus);
+        CURSOR.setRelease(this, sequence);
+    }
+
+    // Номер последнего опубликованного события; -1, если событий не было
+    public long getCursor() {
+        return (long) CURSOR.getAcquire(this);
+    }
+
+    // Подписчик получает события, опубликованные после подписки, в потоке kanban-events-<name>
+    public Subscription subscribe(String name, TaskEventListener listener) {
+        Subscription subscription = new Subscription(name, listener, getCursor() + 1);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    // Останавливает всех подписчиков, дав им дочитать опубликованные события
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final TaskEventListener listener;
+        private final Thread thread;
+        private final TaskEvent[] batch; // копии событий текущей пачки
+        private volatile boolean running = true;
+        private volatile long consumed;  // номер последнего обработанного события
+        private volatile long lost;
+        private long nextSequence;       // только для потока подписки
+
+        private Subscription(String name, TaskEventListener listener, long firstSequence) {
+            this.listener = listener;
+            this.nextSequence = firstSequence;
+            this.consumed = firstSequence - 1;
+            this.batch = new TaskEvent[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                batch[i] = new TaskEvent();
+            }
+            this.thread = new Thread(this::run, "kanban-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        // Сколько опубликованных событий подписчик еще не обработал
+        public long getLag() {
+            return getCursor() - consumed;
+        }
+
+        // Сколько событий пропущено из-за переполнения буфера
+        public long getLostCount() {
+            return lost;
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            subscriptions.remove(this);
+        }
+
+        private void run() {
+            int idle = 0;
+            while (true) {
+                boolean stopping = !running; // после остановки дочитываются уже опубликованные события
+                if (drain() > 0) {
+                    idle = 0;
+                } else if (stopping) {
+                    return;
+                } else if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        // Копирует доступную пачку и передает ее подписчику; возвращает число обработанных событий
+        private int drain() {
+            long available = getCursor();
+            if (available < nextSequence) {
+                return 0;
+            }
+            long oldest = available - ring.length + 1;
+            if (nextSequence < oldest) {
+                skip(oldest - nextSequence);
+            }
+            int count = 0;
+            long end = Math.min(available, nextSequence + batchSize - 1);
+            for (long sequence = nextSequence; sequence <= end; sequence++) {
+                if (!ring[(int) sequence & mask].readInto(sequence, batch[count])) {
+                    break; // ячейку перезаписал писатель; пропуск будет учтен на следующем проходе
+                }
+                count++;
+            }
+            for (int i = 0; i < count; i++) {
+                try {
+                    listener.onEvent(batch[i], i == count - 1);
+                } catch (RuntimeException e) {
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+            nextSequence += count;
+            consumed = nextSequence - 1;
+            return count;
+        }
+
+        private void skip(long count) {
+            nextSequence += count;
+            consumed = nextSequence - 1;
+            lost += count;
+            try {
+                listener.onOverflow(count);
+            } catch (RuntimeException e) {
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package kanbanboard.manager.event;
+
+// Подписчик шины событий; вызывается только из потока своей подписки
+public interface TaskEventListener {
+
+    // event переиспользуется: данные действительны только до возврата из метода.
+    // endOfBatch — последнее событие пачки, удобный момент для сброса накопленного
+    void onEvent(TaskEvent event, boolean endOfBatch);
+
+    // Подписчик отстал больше чем на емкость буфера, и lost событий были перезаписаны
+    default void onOverflow(long lost) {
+    }
+}
@@ -0,0 +1,241 @@
+package kanbanboard.manager.history;
+
+import kanbanboard.model.Task;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+// Потокобезопасная история просмотров.
+// add и remove записывают событие в буфер полосы, выбранной по потоку: у каждой полосы своя блокировка,
+// и потоки на разных полосах не конкурируют ни за блокировку, ни за общие счетчики. Буферы — массивы,
+// которые переиспользуются после сброса, поэтому событие не создает объектов, кроме снимка задачи.
+// События применяются к InMemoryHistoryManager пачками тем потоком, которому удалось взять drainLock.
+// Каждое событие получает отметку System.nanoTime() под блокировкой полосы, и пачка применяется в порядке
+// отметок, так что семантика "повторный просмотр переносит задачу в конец" сохраняется и между потоками
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int DEFAULT_DRAIN_THRESHOLD = 64;
+    private static final int MAX_STRIPES = 64;
+
+    // События одной полосы в порядке записи
+    private static final class Buffer {
+        int[] ids;
+        Task[] tasks; // снимок задачи; null для удаления и для истории из id
+        boolean[] removed;
+        long[] stamps;
+        int size;
+
+        Buffer(int capacity) {
+            ids = new int[capacity];
+            tasks = new Task[capacity];
+            removed = new boolean[capacity];
+            stamps = new long[capacity];
+        }
+
+        void append(boolean isRemoval, int id, Task task, long stamp) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                tasks = Arrays.copyOf(tasks, capacity);
+                removed = Arrays.copyOf(removed, capacity);
+                stamps = Arrays.copyOf(stamps, capacity);
+            }
+            ids[size] = id;
+            tasks[size] = task;
+            removed[size] = isRemoval;
+            stamps[size] = stamp;
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(tasks, 0, size, null);
+            size = 0;
+        }
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        Buffer active; // защищен lock
+        Buffer spare; // пуст между сбросами; защищен drainLock
+        volatile long added; // число событий полосы; пишется под lock
+
+        Stripe(int capacity) {
+            active = new Buffer(capacity);
+            spare = new Buffer(capacity);
+        }
+    }
+
+    private final InMemoryHistoryManager history; // защищена drainLock
+    private final Stripe[] stripes;
+    private final int[] positions; // позиции слияния по полосам; защищены drainLock
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final int drainThreshold;
+
+    public ConcurrentHistoryManager() {
+        this(new InMemoryHistoryManager(), DEFAULT_DRAIN_THRESHOLD);
+    }
+
+    // history — хранилище событий (задает размер и режим хранения), используется только через этот объект;
+    // drainThreshold — сколько событий копится в буфере полосы, прежде чем поток попробует применить все буферы
+    public ConcurrentHistoryManager(InMemoryHistoryManager history, int drainThreshold) {
+        if (drainThreshold <= 0) {
+            throw new IllegalArgumentException("Порог сброса должен быть положительным: " + drainThreshold);
+        }
+        this.history = history;
+        this.drainThreshold = drainThreshold;
+        int processors = Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        while (count < processors && count < MAX_STRIPES) {
+            count <<= 1;
+        }
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(drainThreshold);
+        }
+        positions = new int[count];
+    }
+
+    @Override
+    public void bindResolver(IntFunction<Task> resolver) {
+        drainLock.lock();
+        try {
+            history.bindResolver(resolver);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null || task.getId() == null) {
+            return;
+        }
+        // Снимок делается сразу, чтобы история хранила состояние задачи на момент просмотра
+        Task snapshot = history.isStoreIdsOnly() ? null : new Task(task);
+        enqueue(false, task.getId(), snapshot);
+    }
+
+    @Override
+    public void remove(int id) {
+        enqueue(true, id, null);
+    }
+
+    // Применяет все накопленные события и возвращает историю в порядке просмотров
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int lastN) {
+        drainLock.lock();
+        try {
+            drain();
+            return history.getHistory(lastN);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Размер с учетом всех событий, записанных до вызова
+    @Override
+    public int size() {
+        drainLock.lock();
+        try {
+            drain();
+            return history.size();
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Размер истории задан при создании и не меняется, блокировка не нужна
+    @Override
+    public int getCapacity() {
+        return history.getCapacity();
+    }
+
+    // Версия — сумма счетчиков событий по полосам, без блокировок и без сброса буферов: опрос ничего не стоит,
+    // но номер может вырасти и от события, не изменившего историю (удаления непросмотренной задачи)
+    @Override
+    public long getVersion() {
+        long version = 0;
+        for (Stripe stripe : stripes) {
+            version += stripe.added;
+        }
+        return version;
+    }
+
+    private void enqueue(boolean isRemoval, int id, Task task) {
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        int buffered;
+        stripe.lock.lock();
+        try {
+            // Отметка берется под блокировкой полосы: событие, записанное после сброса,
+            // получает отметку позже всех событий этого сброса
+            stripe.active.append(isRemoval, id, task, System.nanoTime());
+            stripe.added++;
+            buffered = stripe.active.size;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (buffered >= drainThreshold && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // Вызывается под drainLock. Буферы всех полос забираются под их блокировками разом,
+    // после чего сливаются по отметкам уже без блокировок полос
+    private void drain() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (Stripe stripe : stripes) {
+                Buffer taken = stripe.active;
+                stripe.active = stripe.spare;
+                stripe.spare = taken;
+            }
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+        Arrays.fill(positions, 0);
+        while (true) {
+            int next = -1;
+            long stamp = 0;
+            for (int i = 0; i < stripes.length; i++) {
+                Buffer buffer = stripes[i].spare;
+                if (positions[i] < buffer.size && (next < 0 || buffer.stamps[positions[i]] - stamp < 0)) {
+                    next = i;
+                    stamp = buffer.stamps[positions[i]];
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            Buffer buffer = stripes[next].spare;
+            int position = positions[next]++;
+            if (buffer.removed[position]) {
+                history.remove(buffer.ids[position]);
+            } else {
+                history.addEntry(buffer.ids[position], buffer.tasks[position]);
+            }
+        }
+        for (Stripe stripe : stripes) {
+            stripe.spare.clear();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package kanbanboard.manager.history;
 import kanbanboard.model.Task;
 
 import java.util.List;
+import java.util.function.IntFunction;
 
 public interface HistoryManager {
 
@@ -10,5 +11,28 @@ public interface HistoryManager {
 
     void remove(int id);
 
+    // Неизменяемый список просмотров от давних к последним
     List<Task> getHistory();
-}
\ No newline at end of file
+
+    // Последние lastN просмотров (вся история, если она короче) в том же порядке
+    List<Task> getHistory(int lastN);
+
+    // Число просмотров в истории; в отличие от getHistory() его можно читать из потока мониторинга
+    default int size() {
+        return getHistory().size();
+    }
+
+    // Номер версии истории: растет при изменениях, поэтому при совпадающем номере
+    // повторно запрашивать историю не нужно
+    long getVersion();
+
+    // Наибольшее число просмотров в истории: при переполнении вытесняется самый давний
+    default int getCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    // Источник актуальных задач по id для истории, хранящей только идентификаторы.
+    // Менеджер задач передает его при создании; остальным реализациям он не нужен
+    default void bindResolver(IntFunction<Task> resolver) {
+    }
+}
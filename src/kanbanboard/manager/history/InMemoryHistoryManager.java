@@ -3,17 +3,30 @@ package kanbanboard.manager.history;
 import kanbanboard.model.Task;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-
+import java.util.function.IntFunction;
+
+// История просмотров.
+// По умолчанию не ограничена и хранит копию задачи на момент просмотра.
+// С ограничением capacity при переполнении удаляется самый давний просмотр (начало списка) за O(1).
+// В режиме storeIdsOnly хранятся только id, а задачи запрашиваются у менеджера при вызове getHistory.
+// getHistory возвращает неизменяемый список, который строится заново только после изменения истории;
+// в режиме storeIdsOnly кэшируется порядок id, а сами задачи запрашиваются при каждом вызове
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
     // Узел двусвязного списка
     private static class Node {
-        Task task;
+        final int id;
+        Task task; // null в режиме storeIdsOnly
         Node prev;
         Node next;
 
-        Node(Task task) {
+        Node(int id, Task task) {
+            this.id = id;
             this.task = task;
             this.prev = null;
             this.next = null;
@@ -23,11 +36,44 @@ public class InMemoryHistoryManager implements HistoryManager {
     private Node head; // Начало списка
     private Node tail; // Конец списка
     private final HashMap<Integer, Node> taskNodes; // Хранит id задачи -> узел
+    private final int capacity;
+    private final boolean storeIdsOnly;
+    private IntFunction<Task> resolver;
+    private long version;
+    private List<Task> cachedHistory; // null — кэш устарел
+    private int[] cachedIds;          // порядок id для режима storeIdsOnly; null — кэш устарел
 
     public InMemoryHistoryManager() {
+        this(UNBOUNDED, false);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        this(capacity, false);
+    }
+
+    public InMemoryHistoryManager(int capacity, boolean storeIdsOnly) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
         this.taskNodes = new HashMap<>();
         this.head = null;
         this.tail = null;
+        this.capacity = capacity;
+        this.storeIdsOnly = storeIdsOnly;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isStoreIdsOnly() {
+        return storeIdsOnly;
+    }
+
+    @Override
+    public void bindResolver(IntFunction<Task> resolver) {
+        this.resolver = resolver;
     }
 
     @Override
@@ -35,18 +81,32 @@ public class InMemoryHistoryManager implements HistoryManager {
         if (task == null || task.getId() == null) {
             return;
         }
+        if (storeIdsOnly) {
+            addEntry(task.getId(), null);
+        } else {
+            addEntry(task.getId(), new Task(task));
+        }
+    }
 
+    // Добавляет просмотр с уже подготовленной копией задачи (null в режиме storeIdsOnly)
+    void addEntry(int id, Task copy) {
         // Удаляем задачу из истории, если она уже была просмотрена
-        remove(task.getId());
+        remove(id);
 
         // Создаем новый узел
-        Node newNode = new Node(new Task(task));
+        Node newNode = new Node(id, copy);
 
         // Добавляем в конец списка
         linkLast(newNode);
 
         // Сохраняем узел в HashMap
-        taskNodes.put(task.getId(), newNode);
+        taskNodes.put(id, newNode);
+
+        // Вытесняем самый давний просмотр
+        if (taskNodes.size() > capacity) {
+            remove(head.id);
+        }
+        invalidate();
     }
 
     @Override
@@ -55,18 +115,80 @@ public class InMemoryHistoryManager implements HistoryManager {
         if (node != null) {
             removeNode(node);
             taskNodes.remove(id);
+            invalidate();
         }
     }
 
+    @Override
+    public int size() {
+        return taskNodes.size();
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    private void invalidate() {
+        version++;
+        cachedHistory = null;
+        cachedIds = null;
+    }
+
     @Override
     public List<Task> getHistory() {
-        ArrayList<Task> history = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            history.add(current.task);
-            current = current.next;
+        if (storeIdsOnly) {
+            return resolve(historyIds(), 0);
+        }
+        if (cachedHistory == null) {
+            Task[] history = new Task[taskNodes.size()];
+            int i = 0;
+            for (Node current = head; current != null; current = current.next) {
+                history[i++] = current.task;
+            }
+            cachedHistory = Collections.unmodifiableList(Arrays.asList(history));
+        }
+        return cachedHistory;
+    }
+
+    // Хвост кэшированного списка без копирования; в режиме storeIdsOnly запрашиваются только lastN задач
+    @Override
+    public List<Task> getHistory(int lastN) {
+        if (lastN < 0) {
+            throw new IllegalArgumentException("Число просмотров не может быть отрицательным: " + lastN);
+        }
+        if (storeIdsOnly) {
+            int[] ids = historyIds();
+            return resolve(ids, Math.max(0, ids.length - lastN));
+        }
+        List<Task> history = getHistory();
+        return history.subList(Math.max(0, history.size() - lastN), history.size());
+    }
+
+    private int[] historyIds() {
+        if (resolver == null) {
+            throw new IllegalStateException("Истории из id не передан источник задач");
+        }
+        if (cachedIds == null) {
+            int[] ids = new int[taskNodes.size()];
+            int i = 0;
+            for (Node current = head; current != null; current = current.next) {
+                ids[i++] = current.id;
+            }
+            cachedIds = ids;
+        }
+        return cachedIds;
+    }
+
+    private List<Task> resolve(int[] ids, int from) {
+        ArrayList<Task> history = new ArrayList<>(ids.length - from);
+        for (int i = from; i < ids.length; i++) {
+            Task task = resolver.apply(ids[i]);
+            if (task != null) { // задача могла быть удалена без уведомления истории
+                history.add(new Task(task));
+            }
         }
-        return history;
+        return Collections.unmodifiableList(history);
     }
 
     // Добавляет узел в конец списка
@@ -0,0 +1,55 @@
+package kanbanboard.manager.history;
+
+import kanbanboard.model.Task;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Потокобезопасная обертка над любым HistoryManager: все вызовы выполняются под одним монитором
+public class SynchronizedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+
+    public SynchronizedHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void bindResolver(IntFunction<Task> resolver) {
+        delegate.bindResolver(resolver);
+    }
+
+    @Override
+    public synchronized void add(Task task) {
+        delegate.add(task);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        delegate.remove(id);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return delegate.getHistory();
+    }
+
+    @Override
+    public synchronized List<Task> getHistory(int lastN) {
+        return delegate.getHistory(lastN);
+    }
+
+    @Override
+    public synchronized long getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public synchronized int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return delegate.getCapacity();
+    }
+}
@@ -0,0 +1,93 @@
+package kanbanboard.manager.metrics;
+
+import kanbanboard.manager.history.HistoryManager;
+import kanbanboard.model.Task;
+import kanbanboard.util.LatencyHistogram;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Декоратор HistoryManager с гистограммами history.<метод> и показателями history.size и history.version
+public class InstrumentedHistoryManager implements HistoryManager {
+    public static final String PREFIX = "history.";
+
+    private final HistoryManager delegate;
+    private final LatencyHistogram add;
+    private final LatencyHistogram remove;
+    private final LatencyHistogram getHistory;
+    private final LatencyHistogram getHistoryLastN;
+
+    public InstrumentedHistoryManager(HistoryManager delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        add = registry.histogram(PREFIX + "add");
+        remove = registry.histogram(PREFIX + "remove");
+        getHistory = registry.histogram(PREFIX + "getHistory");
+        getHistoryLastN = registry.histogram(PREFIX + "getHistoryLastN");
+        registry.gauge(PREFIX + "size", delegate::size);
+        registry.gauge(PREFIX + "version", delegate::getVersion);
+    }
+
+    public HistoryManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void bindResolver(IntFunction<Task> resolver) {
+        delegate.bindResolver(resolver);
+    }
+
+    @Override
+    public void add(Task task) {
+        long start = System.nanoTime();
+        try {
+            delegate.add(task);
+        } finally {
+            add.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.remove(id);
+        } finally {
+            remove.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHistory();
+        } finally {
+            getHistory.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int lastN) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHistory(lastN);
+        } finally {
+            getHistoryLastN.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return delegate.getCapacity();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+}
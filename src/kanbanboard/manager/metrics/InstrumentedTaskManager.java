@@ -0,0 +1,542 @@
+package kanbanboard.manager.metrics;
+
+import kanbanboard.manager.task.FileBackedTaskManager;
+import kanbanboard.manager.task.PersistenceStats;
+import kanbanboard.manager.task.TaskManager;
+import kanbanboard.manager.task.TaskSnapshot;
+import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
+import kanbanboard.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Декоратор TaskManager, измеряющий длительность каждого вызова: гистограмма task.<метод>
+// в MetricsRegistry, число вызовов — ее счетчик. Перегрузки без аргументов называются <метод>All,
+// getHistory(lastN) — getHistoryLastN. Накладные расходы — два System.nanoTime() и запись в гистограмму
+// без блокировок и выделения памяти.
+// Не измеряются создание потоков (время уходит на их обход у вызывающего) и O(1)-счетчики.
+// Вызовы внутри inTransaction идут напрямую в декорируемый менеджер и учитываются одной транзакцией
+public class InstrumentedTaskManager implements TaskManager {
+    public static final String PREFIX = "task.";
+
+    private final TaskManager delegate;
+    private final LatencyHistogram inTransaction;
+    private final LatencyHistogram createTask;
+    private final LatencyHistogram createEpic;
+    private final LatencyHistogram createSubtask;
+    private final LatencyHistogram createTasks;
+    private final LatencyHistogram createSubtasks;
+    private final LatencyHistogram updateSubtasks;
+    private final LatencyHistogram deleteByIds;
+    private final LatencyHistogram getTaskAll;
+    private final LatencyHistogram getEpicAll;
+    private final LatencyHistogram getSubtaskAll;
+    private final LatencyHistogram snapshot;
+    private final LatencyHistogram getTaskPage;
+    private final LatencyHistogram getEpicPage;
+    private final LatencyHistogram getSubtaskPage;
+    private final LatencyHistogram getTaskRange;
+    private final LatencyHistogram getEpicRange;
+    private final LatencyHistogram getSubtaskRange;
+    private final LatencyHistogram getTasksByStatus;
+    private final LatencyHistogram getEpicsByStatus;
+    private final LatencyHistogram getSubtasksByStatus;
+    private final LatencyHistogram getByStatus;
+    private final LatencyHistogram getTask;
+    private final LatencyHistogram getEpic;
+    private final LatencyHistogram getSubtask;
+    private final LatencyHistogram updateTask;
+    private final LatencyHistogram updateEpic;
+    private final LatencyHistogram updateSubtask;
+    private final LatencyHistogram deleteTask;
+    private final LatencyHistogram deleteEpic;
+    private final LatencyHistogram deleteSubtask;
+    private final LatencyHistogram deleteTaskAll;
+    private final LatencyHistogram deleteEpicAll;
+    private final LatencyHistogram deleteSubtaskAll;
+    private final LatencyHistogram getAllSubtasksOfEpic;
+    private final LatencyHistogram getHistory;
+    private final LatencyHistogram getHistoryLastN;
+
+    public InstrumentedTaskManager(TaskManager delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        inTransaction = registry.histogram(PREFIX + "inTransaction");
+        createTask = registry.histogram(PREFIX + "createTask");
+        createEpic = registry.histogram(PREFIX + "createEpic");
+        createSubtask = registry.histogram(PREFIX + "createSubtask");
+        createTasks = registry.histogram(PREFIX + "createTasks");
+        createSubtasks = registry.histogram(PREFIX + "createSubtasks");
+        updateSubtasks = registry.histogram(PREFIX + "updateSubtasks");
+        deleteByIds = registry.histogram(PREFIX + "deleteByIds");
+        getTaskAll = registry.histogram(PREFIX + "getTaskAll");
+        getEpicAll = registry.histogram(PREFIX + "getEpicAll");
+        getSubtaskAll = registry.histogram(PREFIX + "getSubtaskAll");
+        snapshot = registry.histogram(PREFIX + "snapshot");
+        getTaskPage = registry.histogram(PREFIX + "getTaskPage");
+        getEpicPage = registry.histogram(PREFIX + "getEpicPage");
+        getSubtaskPage = registry.histogram(PREFIX + "getSubtaskPage");
+        getTaskRange = registry.histogram(PREFIX + "getTaskRange");
+        getEpicRange = registry.histogram(PREFIX + "getEpicRange");
+        getSubtaskRange = registry.histogram(PREFIX + "getSubtaskRange");
+        getTasksByStatus = registry.histogram(PREFIX + "getTasksByStatus");
+        getEpicsByStatus = registry.histogram(PREFIX + "getEpicsByStatus");
+        getSubtasksByStatus = registry.histogram(PREFIX + "getSubtasksByStatus");
+        getByStatus = registry.histogram(PREFIX + "getByStatus");
+        getTask = registry.histogram(PREFIX + "getTask");
+        getEpic = registry.histogram(PREFIX + "getEpic");
+        getSubtask = registry.histogram(PREFIX + "getSubtask");
+        updateTask = registry.histogram(PREFIX + "updateTask");
+        updateEpic = registry.histogram(PREFIX + "updateEpic");
+        updateSubtask = registry.histogram(PREFIX + "updateSubtask");
+        deleteTask = registry.histogram(PREFIX + "deleteTask");
+        deleteEpic = registry.histogram(PREFIX + "deleteEpic");
+        deleteSubtask = registry.histogram(PREFIX + "deleteSubtask");
+        deleteTaskAll = registry.histogram(PREFIX + "deleteTaskAll");
+        deleteEpicAll = registry.histogram(PREFIX + "deleteEpicAll");
+        deleteSubtaskAll = registry.histogram(PREFIX + "deleteSubtaskAll");
+        getAllSubtasksOfEpic = registry.histogram(PREFIX + "getAllSubtasksOfEpic");
+        getHistory = registry.histogram(PREFIX + "getHistory");
+        getHistoryLastN = registry.histogram(PREFIX + "getHistoryLastN");
+        // Показатели читаются в потоке отчета или JMX: это O(1)-счетчики, которые менеджер поддерживает
+        // при изменениях, их чтение не меняет его состояние
+        registry.gauge(PREFIX + "largestEpicFanOut", delegate::largestEpicFanOut);
+        registry.gauge(PREFIX + "count", this::count);
+        if (delegate instanceof FileBackedTaskManager) {
+            PersistenceStats stats = ((FileBackedTaskManager) delegate).getPersistenceStats();
+            registry.register("persistence.snapshot", stats.getSnapshotLatency());
+            registry.register("persistence.journal", stats.getJournalLatency());
+            registry.gauge("persistence.bytesWritten", stats::getBytesWritten);
+            registry.gauge("persistence.flushCount", stats::getFlushCount);
+            registry.gauge("persistence.snapshotCount", stats::getSnapshotCount);
+        }
+    }
+
+    public TaskManager getDelegate() {
+        return delegate;
+    }
+
+    private long count() {
+        long count = 0;
+        for (TaskType type : TaskType.values()) {
+            count += delegate.count(type);
+        }
+        return count;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createTask(task);
+        } finally {
+            createTask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createEpic(epic);
+        } finally {
+            createEpic.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createSubtask(subtask);
+        } finally {
+            createSubtask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> createTasks(Collection<? extends Task> tasks) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createTasks(tasks);
+        } finally {
+            createTasks.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> createSubtasks(Collection<? extends Subtask> subtasks) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createSubtasks(subtasks);
+        } finally {
+            createSubtasks.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> updateSubtasks(Collection<? extends Subtask> subtasks) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateSubtasks(subtasks);
+        } finally {
+            updateSubtasks.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteByIds(ids);
+        } finally {
+            deleteByIds.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public <T> T inTransaction(Function<? super TaskManager, T> work) {
+        long start = System.nanoTime();
+        try {
+            return delegate.inTransaction(work);
+        } finally {
+            inTransaction.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTask() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTask();
+        } finally {
+            getTaskAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Epic> getEpic() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpic();
+        } finally {
+            getEpicAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtask() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtask();
+        } finally {
+            getSubtaskAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public TaskSnapshot snapshot() {
+        long start = System.nanoTime();
+        try {
+            return delegate.snapshot();
+        } finally {
+            snapshot.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTaskPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTaskPage(afterId, limit);
+        } finally {
+            getTaskPage.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpicPage(afterId, limit);
+        } finally {
+            getEpicPage.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtaskPage(int afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtaskPage(afterId, limit);
+        } finally {
+            getSubtaskPage.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTaskRange(int fromId, int toId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTaskRange(fromId, toId);
+        } finally {
+            getTaskRange.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicRange(int fromId, int toId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpicRange(fromId, toId);
+        } finally {
+            getEpicRange.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtaskRange(int fromId, int toId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtaskRange(fromId, toId);
+        } finally {
+            getSubtaskRange.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTasksByStatus(Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTasksByStatus(status);
+        } finally {
+            getTasksByStatus.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicsByStatus(Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpicsByStatus(status);
+        } finally {
+            getEpicsByStatus.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksByStatus(Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtasksByStatus(status);
+        } finally {
+            getSubtasksByStatus.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getByStatus(Status status) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getByStatus(status);
+        } finally {
+            getByStatus.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getTask(id);
+        } finally {
+            getTask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getEpic(id);
+        } finally {
+            getEpic.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getSubtask(id);
+        } finally {
+            getSubtask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateTask(task);
+        } finally {
+            updateTask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateEpic(epic);
+        } finally {
+            updateEpic.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateSubtask(subtask);
+        } finally {
+            updateSubtask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteTask(id);
+        } finally {
+            deleteTask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteEpic(id);
+        } finally {
+            deleteEpic.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteSubtask(id);
+        } finally {
+            deleteSubtask.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteTask() {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteTask();
+        } finally {
+            deleteTaskAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteEpic() {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteEpic();
+        } finally {
+            deleteEpicAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void deleteSubtask() {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteSubtask();
+        } finally {
+            deleteSubtaskAll.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtasksOfEpic(int id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getAllSubtasksOfEpic(id);
+        } finally {
+            getAllSubtasksOfEpic.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHistory();
+        } finally {
+            getHistory.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int lastN) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getHistory(lastN);
+        } finally {
+            getHistoryLastN.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return delegate.streamTasks();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return delegate.streamEpics();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return delegate.streamSubtasks();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksOfEpic(int epicId) {
+        return delegate.streamSubtasksOfEpic(epicId);
+    }
+
+    @Override
+    public int count(TaskType type) {
+        return delegate.count(type);
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return delegate.countByStatus(type, status);
+    }
+
+    @Override
+    public int largestEpicFanOut() {
+        return delegate.largestEpicFanOut();
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return delegate.getHistoryVersion();
+    }
+}
@@ -0,0 +1,112 @@
+package kanbanboard.manager.metrics;
+
+import kanbanboard.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ReflectionException;
+
+// MBean над реестром метрик: набор атрибутов строится по текущему составу реестра.
+// Для гистограммы name — атрибуты name.count, name.meanMicros, name.p50Micros, name.p99Micros,
+// name.p999Micros и name.maxMicros, для показателя — атрибут с его именем. Все атрибуты только для чтения
+class MetricsMBean implements DynamicMBean {
+    private static final String[] STATISTICS = {"count", "meanMicros", "p50Micros", "p99Micros", "p999Micros",
+            "maxMicros"};
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongSupplier gauge = registry.findGauge(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        LatencyHistogram histogram = dot < 0 ? null : registry.findHistogram(attribute.substring(0, dot));
+        if (histogram == null) {
+            throw new AttributeNotFoundException("Нет метрики " + attribute);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        switch (attribute.substring(dot + 1)) {
+            case "count":
+                return snapshot.getCount();
+            case "meanMicros":
+                return snapshot.getMean() / 1_000;
+            case "p50Micros":
+                return snapshot.getValueAtPercentile(50) / 1_000.0;
+            case "p99Micros":
+                return snapshot.getValueAtPercentile(99) / 1_000.0;
+            case "p999Micros":
+                return snapshot.getValueAtPercentile(99.9) / 1_000.0;
+            case "maxMicros":
+                return snapshot.getMax() / 1_000.0;
+            default:
+                throw new AttributeNotFoundException("Нет метрики " + attribute);
+        }
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Метрики только для чтения: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String name : attributes) {
+            try {
+                list.add(new Attribute(name, getAttribute(name)));
+            } catch (AttributeNotFoundException e) {
+                // Как принято в JMX, отсутствующие атрибуты пропускаются
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if ("dump".equals(actionName)) {
+            return registry.dump();
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName), "Нет операции " + actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (String name : registry.getHistograms().keySet()) {
+            for (String statistic : STATISTICS) {
+                String type = statistic.equals("count") ? long.class.getName() : double.class.getName();
+                attributes.add(new MBeanAttributeInfo(name + "." + statistic, type, statistic + " для " + name,
+                        true, false, false));
+            }
+        }
+        for (Map.Entry<String, LongSupplier> gauge : registry.getGauges().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(gauge.getKey(), long.class.getName(), gauge.getKey(),
+                    true, false, false));
+        }
+        MBeanOperationInfo dump = new MBeanOperationInfo("dump", "Текстовый отчет по всем метрикам",
+                new MBeanParameterInfo[0], String.class.getName(), MBeanOperationInfo.INFO);
+        return new MBeanInfo(getClass().getName(), "Метрики менеджера задач",
+                attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{dump}, null);
+    }
+}
@@ -0,0 +1,144 @@
+package kanbanboard.manager.metrics;
+
+import kanbanboard.util.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Реестр метрик: гистограммы длительностей операций и показатели, вычисляемые при чтении.
+// Декораторы получают свои гистограммы один раз при создании, поэтому запись не обращается к реестру.
+// Метрики доступны текстовым отчетом (dump, периодический вывод) и через JMX (registerMBean)
+public class MetricsRegistry implements AutoCloseable {
+    public static final String DEFAULT_OBJECT_NAME = "kanbanboard:type=Metrics";
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper; // защищен монитором this
+    private ObjectName registeredName;       // защищен монитором this
+
+    // Гистограмма с заданным именем; повторный вызов возвращает ту же гистограмму
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // Регистрация гистограммы, которую ведет сам источник (например, статистика записи на диск)
+    public void register(String name, LatencyHistogram histogram) {
+        histograms.put(name, histogram);
+    }
+
+    // Показатель, значение которого вычисляется при каждом чтении
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    LatencyHistogram findHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    LongSupplier findGauge(String name) {
+        return gauges.get(name);
+    }
+
+    // Имена по алфавиту
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public Map<String, LongSupplier> getGauges() {
+        return new TreeMap<>(gauges);
+    }
+
+    // Текстовый отчет: строка на гистограмму (число вызовов, среднее и перцентили в микросекундах)
+    // и строка на показатель
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            builder.append(String.format(Locale.ROOT,
+                    "%s count=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                    entry.getKey(), snapshot.getCount(), micros(snapshot.getMean()),
+                    micros(snapshot.getValueAtPercentile(50)), micros(snapshot.getValueAtPercentile(99)),
+                    micros(snapshot.getValueAtPercentile(99.9)), micros(snapshot.getMax())));
+        }
+        for (Map.Entry<String, LongSupplier> entry : getGauges().entrySet()) {
+            builder.append(entry.getKey()).append('=').append(entry.getValue().getAsLong())
+                    .append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+
+    private static double micros(double nanos) {
+        return nanos / 1_000;
+    }
+
+    // Вывод отчета раз в period в фоновом потоке kanban-metrics; повторный вызов заменяет расписание
+    public synchronized void startPeriodicDump(long period, TimeUnit unit, Consumer<String> out) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Период вывода должен быть положительным: " + period);
+        }
+        stopPeriodicDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kanban-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.accept(dump()), period, period, unit);
+    }
+
+    public synchronized void stopPeriodicDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    public ObjectName registerMBean() {
+        return registerMBean(DEFAULT_OBJECT_NAME);
+    }
+
+    // Регистрирует метрики в платформенном MBeanServer под именем objectName
+    public synchronized ObjectName registerMBean(String objectName) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            unregisterMBean();
+            server.registerMBean(new MetricsMBean(this), name);
+            registeredName = name;
+            return name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать MBean " + objectName, e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException e) {
+                throw new IllegalStateException("Не удалось снять MBean " + registeredName, e);
+            } finally {
+                registeredName = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        stopPeriodicDump();
+        unregisterMBean();
+    }
+}
@@ -0,0 +1,96 @@
+package kanbanboard.manager.search;
+
+import java.util.Arrays;
+
+// Список вхождений слова: id документов по возрастанию и вес слова в каждом из них.
+// Новые id больше прежних, поэтому добавление обычно — запись в конец массива.
+// Удаление оставляет метку (вес 0) за O(log n); метки вычищаются одним проходом, когда их становится
+// больше живых вхождений, поэтому удаление документов по одному стоит амортизированно O(log n)
+class PostingList {
+    private int[] ids = new int[2];
+    private int[] weights = new int[2]; // 0 — удаленное вхождение
+    private int length; // занятые позиции, включая метки
+    private int size; // живые вхождения
+
+    // Добавляет документ или заменяет его вес; вес положителен
+    void put(int id, int weight) {
+        if (length > 0 && ids[length - 1] >= id) {
+            int index = Arrays.binarySearch(ids, 0, length, id);
+            if (index >= 0) {
+                if (weights[index] == 0) {
+                    size++;
+                }
+                weights[index] = weight;
+                return;
+            }
+            insert(-index - 1, id, weight);
+            return;
+        }
+        insert(length, id, weight);
+    }
+
+    void remove(int id) {
+        if (mark(id) && length - size > size) {
+            compact();
+        }
+    }
+
+    // Удаление без уплотнения: для массового удаления, после которого вызывается compact
+    boolean mark(int id) {
+        int index = Arrays.binarySearch(ids, 0, length, id);
+        if (index < 0 || weights[index] == 0) {
+            return false;
+        }
+        weights[index] = 0;
+        size--;
+        return true;
+    }
+
+    // Убирает метки удаленных вхождений за O(length)
+    void compact() {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (weights[i] != 0) {
+                ids[count] = ids[i];
+                weights[count++] = weights[i];
+            }
+        }
+        length = count;
+    }
+
+    // Число живых вхождений
+    int size() {
+        return size;
+    }
+
+    // Позиции от 0 до length() - 1; вес 0 на позиции — удаленное вхождение
+    int length() {
+        return length;
+    }
+
+    int idAt(int index) {
+        return ids[index];
+    }
+
+    int weightAt(int index) {
+        return weights[index];
+    }
+
+    private void insert(int index, int id, int weight) {
+        if (length == ids.length) {
+            if (length - size > size / 2) {
+                compact(); // место под вставку освобождается за счет меток
+                index = -Arrays.binarySearch(ids, 0, length, id) - 1;
+            } else {
+                ids = Arrays.copyOf(ids, length * 2);
+                weights = Arrays.copyOf(weights, length * 2);
+            }
+        }
+        System.arraycopy(ids, index, ids, index + 1, length - index);
+        System.arraycopy(weights, index, weights, index + 1, length - index);
+        ids[index] = id;
+        weights[index] = weight;
+        length++;
+        size++;
+    }
+}
@@ -0,0 +1,229 @@
+package kanbanboard.manager.search;
+
+import kanbanboard.util.HashEntityStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Инвертированный индекс по заголовкам и описаниям задач.
+// Для каждого слова хранится список вхождений (id по возрастанию и вес), для каждого документа —
+// его слова, чтобы удалять документ без просмотра всего словаря.
+// Вес слова: число вхождений в описание плюс TITLE_WEIGHT за каждое вхождение в заголовок.
+// Поиск ранжирует документы по сумме BM25-подобных оценок слов запроса; слово запроса
+// от MIN_PREFIX_LENGTH символов совпадает и с более длинными словами (с коэффициентом PREFIX_FACTOR),
+// что покрывает изменение окончаний: "задач" находит "задача" и "задачи"
+public class TextIndex {
+    public static final int TITLE_WEIGHT = 3;
+    public static final int MIN_PREFIX_LENGTH = 3;
+    private static final double PREFIX_FACTOR = 0.5;
+    private static final double K1 = 1.2;
+
+    // Слова документа и их веса
+    private static final class Document {
+        final String[] terms;
+        final int[] weights;
+
+        Document(String[] terms, int[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+        }
+    }
+
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final HashEntityStore<String[]> documentTerms = new HashEntityStore<>();
+
+    // Добавляет документ или заменяет прежнюю версию
+    public void put(int id, String title, String description) {
+        remove(id);
+        Document document = analyze(title, description);
+        for (int i = 0; i < document.terms.length; i++) {
+            postings.computeIfAbsent(document.terms[i], term -> new PostingList()).put(id, document.weights[i]);
+        }
+        documentTerms.put(id, document.terms);
+    }
+
+    public void remove(int id) {
+        String[] terms = documentTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            list.remove(id);
+            if (list.size() == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Удаление пачки документов: вхождения только помечаются, а каждый затронутый список
+    // уплотняется один раз, поэтому удаление всех документов одного типа линейно по их словам
+    public void removeAll(Collection<Integer> ids) {
+        HashMap<String, PostingList> affected = new HashMap<>();
+        for (int id : ids) {
+            String[] terms = documentTerms.remove(id);
+            if (terms == null) {
+                continue;
+            }
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                list.mark(id);
+                affected.put(term, list);
+            }
+        }
+        for (Map.Entry<String, PostingList> entry : affected.entrySet()) {
+            if (entry.getValue().size() == 0) {
+                postings.remove(entry.getKey());
+            } else {
+                entry.getValue().compact();
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        documentTerms.clear();
+    }
+
+    // Количество проиндексированных документов
+    public int size() {
+        return documentTerms.size();
+    }
+
+    // Количество различных слов
+    public int termCount() {
+        return postings.size();
+    }
+
+    // До limit id документов по убыванию релевантности; при равной оценке — по возрастанию id
+    public int[] search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество результатов должно быть положительным: " + limit);
+        }
+        HashMap<Integer, Double> scores = new HashMap<>();
+        for (String term : new LinkedHashSet<>(TextTokenizer.tokenize(query))) {
+            // Для каждого документа берется лучшее совпадение слова: точное или по префиксу
+            HashMap<Integer, Double> termScores = new HashMap<>();
+            PostingList exact = postings.get(term);
+            if (exact != null) {
+                score(exact, 1.0, termScores);
+            }
+            if (term.length() >= MIN_PREFIX_LENGTH) {
+                for (PostingList list : postings.subMap(term, false, term + Character.MAX_VALUE, false).values()) {
+                    score(list, PREFIX_FACTOR, termScores);
+                }
+            }
+            termScores.forEach((id, score) -> scores.merge(id, score, Double::sum));
+        }
+        return top(scores, limit);
+    }
+
+    // Полное перестроение индекса. Разбор текста выполняется параллельно по документам,
+    // словарь — параллельно по шардам (слова распределяются по хешу, каждый шард заполняет одна задача)
+    public void rebuild(int[] ids, String[] titles, String[] descriptions, boolean parallel) {
+        clear();
+        int count = ids.length;
+        Document[] documents = new Document[count];
+        IntStream indexes = IntStream.range(0, count);
+        (parallel ? indexes.parallel() : indexes).forEach(i -> documents[i] = analyze(titles[i], descriptions[i]));
+
+        // Порядок документов по id, чтобы списки вхождений заполнялись дописыванием в конец
+        long[] order = new long[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = ((long) ids[i] << 32) | i;
+        }
+        if (parallel) {
+            Arrays.parallelSort(order);
+        } else {
+            Arrays.sort(order);
+        }
+
+        int shards = parallel ? Math.max(1, ForkJoinPool.getCommonPoolParallelism()) : 1;
+        List<HashMap<String, PostingList>> shardPostings = new ArrayList<>(shards);
+        for (int s = 0; s < shards; s++) {
+            shardPostings.add(new HashMap<>());
+        }
+        IntStream shardIndexes = IntStream.range(0, shards);
+        (parallel ? shardIndexes.parallel() : shardIndexes).forEach(shard -> {
+            HashMap<String, PostingList> target = shardPostings.get(shard);
+            for (long packed : order) {
+                int i = (int) packed;
+                Document document = documents[i];
+                for (int t = 0; t < document.terms.length; t++) {
+                    String term = document.terms[t];
+                    if (Math.floorMod(term.hashCode(), shards) == shard) {
+                        target.computeIfAbsent(term, key -> new PostingList()).put(ids[i], document.weights[t]);
+                    }
+                }
+            }
+        });
+        for (HashMap<String, PostingList> shard : shardPostings) {
+            postings.putAll(shard);
+        }
+        for (int i = 0; i < count; i++) {
+            documentTerms.put(ids[i], documents[i].terms);
+        }
+    }
+
+    private void score(PostingList list, double factor, HashMap<Integer, Double> termScores) {
+        int documents = documentTerms.size();
+        int frequency = list.size();
+        double idf = Math.log(1 + (documents - frequency + 0.5) / (frequency + 0.5));
+        for (int i = 0; i < list.length(); i++) {
+            int weight = list.weightAt(i);
+            if (weight == 0) {
+                continue; // удаленное вхождение
+            }
+            double score = factor * idf * weight * (K1 + 1) / (weight + K1);
+            termScores.merge(list.idAt(i), score, Math::max);
+        }
+    }
+
+    private static int[] top(HashMap<Integer, Double> scores, int limit) {
+        // Куча из limit лучших: в вершине — худший из отобранных
+        PriorityQueue<Map.Entry<Integer, Double>> best = new PriorityQueue<>(
+                (a, b) -> a.getValue().equals(b.getValue())
+                        ? Integer.compare(b.getKey(), a.getKey())
+                        : Double.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll().getKey();
+        }
+        return result;
+    }
+
+    private static Document analyze(String title, String description) {
+        LinkedHashMap<String, Integer> weights = new LinkedHashMap<>();
+        for (String token : TextTokenizer.tokenize(title)) {
+            weights.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : TextTokenizer.tokenize(description)) {
+            weights.merge(token, 1, Integer::sum);
+        }
+        String[] terms = new String[weights.size()];
+        int[] termWeights = new int[weights.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            terms[i] = entry.getKey();
+            termWeights[i] = entry.getValue();
+            i++;
+        }
+        return new Document(terms, termWeights);
+    }
+}
@@ -0,0 +1,39 @@
+package kanbanboard.manager.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Разбиение текста на слова для поискового индекса.
+// Словом считается последовательность букв и цифр любого алфавита; регистр приводится к нижнему,
+// "ё" заменяется на "е", чтобы "Ёлка" и "елка" совпадали
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(normalize(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static char normalize(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower == 'ё' ? 'е' : lower;
+    }
+}
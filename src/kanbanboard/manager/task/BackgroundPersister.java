@@ -0,0 +1,208 @@
+package kanbanboard.manager.task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Конвейер записи изменений: в режимах PERIODIC и ASYNC копит записи в ограниченной
+// очереди и сбрасывает их на диск пачками из фонового потока (групповая фиксация)
+class BackgroundPersister implements AutoCloseable {
+    // Запись пачки изменений
+    interface BatchWriter {
+        void write(List<String> records) throws IOException;
+    }
+
+    private static final String STOP = new String("STOP"); // маркер остановки, сравнивается по ссылке
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final DurabilityMode mode;
+    private final long flushIntervalMillis;
+    private final BatchWriter writer;
+    private final BlockingQueue<String> queue; // null для синхронных режимов
+    private final Object submitLock = new Object(); // записи одной пачки идут в очереди подряд
+    private final Thread thread;               // null для синхронных режимов
+
+    // Состояние ниже защищено монитором this
+    private long submitted;
+    private long persisted;
+    private boolean flushRequested;
+    private boolean closed;
+    private RuntimeException failure;
+
+    BackgroundPersister(StorageOptions options, BatchWriter writer) {
+        this.mode = options.getDurabilityMode();
+        this.flushIntervalMillis = options.getFlushIntervalMillis();
+        this.writer = writer;
+        if (mode == DurabilityMode.PERIODIC || mode == DurabilityMode.ASYNC) {
+            this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+            this.thread = new Thread(this::runWriter, "kanban-persister");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        } else {
+            this.queue = null;
+            this.thread = null;
+        }
+    }
+
+    // Передает запись на сохранение; в фоновых режимах ждет, пока в очереди появится место
+    void submit(String record) {
+        submitAll(List.of(record));
+    }
+
+    // Передает пачку записей: в синхронных режимах она записывается одной операцией,
+    // в фоновых — попадает в очередь и сбрасывается вместе с остальными изменениями
+    void submitAll(List<String> records) {
+        checkState();
+        if (records.isEmpty()) {
+            return;
+        }
+        if (thread == null) {
+            writeBatch(records);
+            return;
+        }
+        try {
+            synchronized (submitLock) {
+                for (String record : records) {
+                    while (!queue.offer(record, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        checkState();
+                    }
+                    synchronized (this) {
+                        submitted++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Прервано ожидание места в очереди записи", e);
+        }
+    }
+
+    // Ждет, пока все переданные ранее записи окажутся на диске
+    void flush() {
+        if (thread == null) {
+            checkFailure();
+            return;
+        }
+        synchronized (this) {
+            long target = submitted;
+            flushRequested = true;
+            notifyAll();
+            try {
+                while (persisted < target && failure == null && thread.isAlive()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Прервано ожидание записи на диск", e);
+            }
+        }
+        checkFailure();
+    }
+
+    // Дописывает накопленные записи и останавливает фоновый поток
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        if (thread != null) {
+            queue.offer(STOP);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailure();
+    }
+
+    private void runWriter() {
+        List<String> batch = new ArrayList<>();
+        while (true) {
+            try {
+                if (mode == DurabilityMode.PERIODIC) {
+                    awaitNextPeriod();
+                } else {
+                    String first = queue.take();
+                    if (first != STOP) {
+                        batch.add(first);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+            batch.removeIf(record -> record == STOP);
+            if (!batch.isEmpty()) {
+                try {
+                    writer.write(batch);
+                } catch (IOException e) {
+                    fail(new ManagerSaveException("Ошибка фоновой записи изменений", e));
+                    return;
+                } catch (RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                synchronized (this) {
+                    persisted += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+            synchronized (this) {
+                if (closed && queue.isEmpty()) {
+                    notifyAll();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Ждет окончания интервала, запроса flush() или закрытия
+    private synchronized void awaitNextPeriod() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (!flushRequested && !closed) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        flushRequested = false;
+    }
+
+    private void writeBatch(List<String> records) {
+        try {
+            writer.write(records);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи изменений", e);
+        }
+    }
+
+    private synchronized void fail(RuntimeException e) {
+        failure = e;
+        queue.clear();
+        notifyAll();
+    }
+
+    private synchronized void checkState() {
+        checkFailure();
+        if (closed) {
+            throw new IllegalStateException("Запись изменений уже остановлена");
+        }
+    }
+
+    private synchronized void checkFailure() {
+        if (failure != null) {
+            throw new ManagerSaveException("Не удалось сохранить изменения", failure);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// Двоичный формат снимка.
+// Заголовок: magic (int), версия (int), количество записей (int).
+// Запись: id (int), тип (byte), статус (byte), id эпика (int, 0 — нет),
+// затем название и описание: длина в байтах (int, -1 для null) и байты UTF-8.
+public class BinarySnapshotFormat {
+    public static final int MAGIC = 0x4B4E424E; // "KNBN"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int NULL_LENGTH = -1;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    // Кодирует задачи, эпики и подзадачи в буфер, готовый к записи (position = 0)
+    public ByteBuffer encode(Collection<Task> tasks, Collection<Epic> epics, Collection<Subtask> subtasks) {
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(tasks.size() + epics.size() + subtasks.size());
+        for (Task task : tasks) {
+            putRecord(task, TaskType.TASK, 0);
+        }
+        for (Epic epic : epics) {
+            putRecord(epic, TaskType.EPIC, 0);
+        }
+        for (Subtask subtask : subtasks) {
+            putRecord(subtask, TaskType.SUBTASK, subtask.getEpicId());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Освобождает буфер, выросший под большой снимок, после того как он записан:
+    // иначе он удерживался бы все время жизни менеджера
+    public void releaseBuffer() {
+        if (buffer.capacity() > INITIAL_CAPACITY) {
+            buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+        }
+    }
+
+    private void putRecord(Task task, TaskType type, int epicId) {
+        byte[] title = toBytes(task.getTitle());
+        byte[] description = toBytes(task.getDescription());
+        ensureCapacity(18 + length(title) + length(description));
+        buffer.putInt(task.getId());
+        buffer.put((byte) type.ordinal());
+        buffer.put((byte) task.getStatus().ordinal());
+        buffer.putInt(epicId);
+        putBytes(title);
+        putBytes(description);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (buffer.remaining() >= required) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + required);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    // Читает снимок в буфер в куче одним проходом по каналу и передает сущности в consumer.
+    // Отображение в память не используется: на Windows отображенный файл нельзя заменить
+    // переименованием, пока отображение не освободит сборщик мусора
+    public static void read(Path path, Consumer<Task> consumer) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снимок слишком велик для чтения в память: " + path);
+            }
+            in = ByteBuffer.allocate((int) size);
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("Снимок укоротился во время чтения: " + path);
+                }
+            }
+        }
+        in.flip();
+        decode(in, consumer, path);
+    }
+
+    private static void decode(ByteBuffer in, Consumer<Task> consumer, Path path) {
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Файл не является двоичным снимком: " + path);
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия снимка " + version + ": " + path);
+        }
+        int count = in.getInt();
+        byte[] scratch = new byte[4096]; // переиспользуется для строк обычной длины
+        try {
+            for (int i = 0; i < count; i++) {
+                int id = in.getInt();
+                TaskType type = TYPES[in.get()];
+                Status status = STATUSES[in.get()];
+                int epicId = in.getInt();
+                String title = getString(in, scratch);
+                String description = getString(in, scratch);
+                consumer.accept(toEntity(id, type, status, epicId, title, description));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Двоичный снимок поврежден: " + path, e);
+        }
+    }
+
+    private static String getString(ByteBuffer in, byte[] scratch) {
+        int length = in.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] target = length <= scratch.length ? scratch : new byte[length];
+        in.get(target, 0, length);
+        return new String(target, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Task toEntity(int id, TaskType type, Status status, int epicId,
+                                 String title, String description) {
+        switch (type) {
+            case TASK:
+                return new Task(title, description, status, id);
+            case EPIC:
+                Epic epic = new Epic(title, description);
+                epic.setId(id);
+                epic.setStatus(status);
+                return epic;
+            case SUBTASK:
+                return new Subtask(title, description, epicId, status, id);
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+}
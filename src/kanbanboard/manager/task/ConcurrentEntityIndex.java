@@ -0,0 +1,103 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+// Индексы сущностей одного типа для ConcurrentTaskManager: упорядоченные id и id по статусу.
+// Изменение индексов выполняется внутри compute по этому id, поэтому параллельные изменения
+// одной сущности не оставляют ее сразу в двух множествах статусов.
+// Выборки слабо согласованы: сущности, удаленные после чтения id из индекса, пропускаются
+class ConcurrentEntityIndex {
+    private static final Status[] STATUSES = Status.values();
+    private static final Object NO_STATUS = new Object();
+
+    private final ConcurrentHashMap<Integer, Object> indexed = new ConcurrentHashMap<>(); // id -> статус
+    private final ConcurrentSkipListSet<Integer> orderedIds = new ConcurrentSkipListSet<>();
+    private final List<Set<Integer>> byStatus = new ArrayList<>(STATUSES.length);
+
+    ConcurrentEntityIndex() {
+        for (int i = 0; i < STATUSES.length; i++) {
+            byStatus.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    // Добавляет сущность или обновляет ее статус
+    void put(int id, Status status) {
+        indexed.compute(id, (key, previous) -> {
+            if (previous instanceof Status) {
+                byStatus.get(((Status) previous).ordinal()).remove(key);
+            }
+            if (status != null) {
+                byStatus.get(status.ordinal()).add(key);
+            }
+            orderedIds.add(key);
+            return status != null ? status : NO_STATUS;
+        });
+    }
+
+    void remove(int id) {
+        indexed.computeIfPresent(id, (key, previous) -> {
+            if (previous instanceof Status) {
+                byStatus.get(((Status) previous).ordinal()).remove(key);
+            }
+            orderedIds.remove(key);
+            return null;
+        });
+    }
+
+    // Статус, под которым сущность учтена в индексе; null — сущности нет или статус не задан
+    Status indexedStatus(int id) {
+        Object status = indexed.get(id);
+        return status instanceof Status ? (Status) status : null;
+    }
+
+    int count(Status status) {
+        return byStatus.get(status.ordinal()).size();
+    }
+
+    <T> ArrayList<T> get(Status status, IntFunction<T> lookup) {
+        return collect(byStatus.get(status.ordinal()), Integer.MAX_VALUE, lookup);
+    }
+
+    <T> ArrayList<T> page(int afterId, int limit, IntFunction<T> lookup) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+        return collect(orderedIds.tailSet(afterId, false), limit, lookup);
+    }
+
+    <T> ArrayList<T> range(int fromId, int toId, IntFunction<T> lookup) {
+        if (fromId > toId) {
+            return new ArrayList<>();
+        }
+        return collect(orderedIds.subSet(fromId, true, toId, true), Integer.MAX_VALUE, lookup);
+    }
+
+    // Слабо согласованный поток по возрастанию id: не бросает ConcurrentModificationException,
+    // id, добавленные во время обхода, могут не попасть в поток
+    <T> Stream<T> stream(IntFunction<T> lookup) {
+        return orderedIds.stream().map(lookup::apply).filter(Objects::nonNull);
+    }
+
+    private static <T> ArrayList<T> collect(Set<Integer> ids, int limit, IntFunction<T> lookup) {
+        ArrayList<T> result = new ArrayList<>();
+        for (int id : ids) {
+            if (result.size() == limit) {
+                break;
+            }
+            T entity = lookup.apply(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,970 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.manager.history.HistoryManager;
+import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
+import kanbanboard.util.EntityStore;
+import kanbanboard.util.HashEntityStore;
+import kanbanboard.util.IntOrderedSet;
+import kanbanboard.util.PersistentIntMap;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Потокобезопасный менеджер задач.
+// Задачи хранятся в ConcurrentHashMap, id выдаются атомарным счетчиком, чтение задач не блокируется.
+// Эпик и его подзадачи изменяются под блокировкой полосы, выбранной по id эпика, задача — под полосой
+// своего id, поэтому изменения в разных эпиках не конкурируют между собой.
+// Снимок берет все полосы по порядку и копирует только сущности, измененные после прошлого снимка;
+// полная копия (первый снимок или после освобождения прежнего) строится без блокировок.
+// Транзакция удерживает все полосы до фиксации или отката.
+// Менеджеру истории требуется собственная потокобезопасность (см. Managers.getConcurrentHistoryManager).
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final AtomicInteger countId = new AtomicInteger();
+    private final HistoryManager viewHistory;
+
+    //Структуры для хранения задач
+    private final ConcurrentHashMap<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    // Счетчики статусов подзадач по id эпика; каждый изменяется под блокировкой полосы своего эпика
+    private final ConcurrentHashMap<Integer, EpicStatusCounter> epicCounters = new ConcurrentHashMap<>();
+
+    // Индексы id и статусов; изменения задач индексируются внутри compute карты задач,
+    // эпиков и подзадач — под блокировкой полосы эпика
+    private final ConcurrentEntityIndex taskIndex = new ConcurrentEntityIndex();
+    private final ConcurrentEntityIndex epicIndex = new ConcurrentEntityIndex();
+    private final ConcurrentEntityIndex subtaskIndex = new ConcurrentEntityIndex();
+
+    private final ReentrantLock[] epicLocks;
+    // Наибольшее число подзадач в эпиках каждой полосы; изменяется под блокировкой полосы
+    private final EpicFanOut[] fanOuts;
+
+    // Последний снимок; слабая ссылка: когда его никто не читает, копии освобождаются, а следующий
+    // снимок строится заново. Снимки публикуются по одному под publishLock, изменяются под всеми полосами
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private volatile WeakReference<TaskSnapshot> published = new WeakReference<>(null);
+    private long version; // число публикаций с изменениями
+    // id, измененные после прошлого снимка; отмечаются под полосой изменения.
+    // При stale версии строятся заново целиком, а id не отмечаются: до первого снимка, после
+    // освобождения последнего снимка и когда изменилось больше половины сущностей.
+    // Пока полная копия строится вне полос (building), изменения отмечаются в любом случае
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean stale = true;
+    private volatile boolean building;
+
+    // Транзакция: поток, удерживающий все полосы, id, измененные им, копии их значений до первого
+    // изменения (id без копии отсутствовал) и отложенные операции с историей; изменяются только
+    // под всеми полосами
+    private volatile Thread transactionOwner;
+    private IntOrderedSet touched;
+    private EntityStore<Task> undoTasks;
+    private EntityStore<Epic> undoEpics;
+    private EntityStore<Subtask> undoSubtasks;
+    private List<Runnable> deferred;
+
+    public ConcurrentTaskManager(HistoryManager viewHistory) {
+        this(viewHistory, DEFAULT_STRIPES);
+    }
+
+    // stripes округляется вверх до степени двойки
+    public ConcurrentTaskManager(HistoryManager viewHistory, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Количество полос блокировки должно быть положительным: " + stripes);
+        }
+        this.viewHistory = viewHistory;
+        viewHistory.bindResolver(this::findEntity);
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.epicLocks = new ReentrantLock[size];
+        this.fanOuts = new EpicFanOut[size];
+        for (int i = 0; i < size; i++) {
+            epicLocks[i] = new ReentrantLock();
+            fanOuts[i] = new EpicFanOut();
+        }
+    }
+
+    private Task findEntity(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task;
+    }
+
+    private ReentrantLock lockFor(int epicId) {
+        return epicLocks[stripeOf(epicId)];
+    }
+
+    private int stripeOf(int epicId) {
+        int hash = epicId * 0x9E3779B9; // перемешивание, чтобы соседние id попадали в разные полосы
+        return (hash ^ (hash >>> 16)) & (epicLocks.length - 1);
+    }
+
+    // Блокирует полосы двух эпиков в порядке номеров полос, чтобы встречные переносы
+    // подзадач не взаимоблокировались; одна и та же полоса берется один раз
+    private void lockBoth(int firstEpicId, int secondEpicId) {
+        int first = stripeOf(firstEpicId);
+        int second = stripeOf(secondEpicId);
+        epicLocks[Math.min(first, second)].lock();
+        if (first != second) {
+            epicLocks[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlockBoth(int firstEpicId, int secondEpicId) {
+        int first = stripeOf(firstEpicId);
+        int second = stripeOf(secondEpicId);
+        if (first != second) {
+            epicLocks[Math.max(first, second)].unlock();
+        }
+        epicLocks[Math.min(first, second)].unlock();
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        task.setId(countId.incrementAndGet());
+        ReentrantLock lock = lockFor(task.getId());
+        lock.lock();
+        try {
+            saveUndo(task.getId());
+            tasks.compute(task.getId(), (id, previous) -> {
+                taskIndex.put(id, task.getStatus());
+                return task;
+            });
+            markChanged(task.getId());
+        } finally {
+            lock.unlock();
+        }
+        return task;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        epic.setId(countId.incrementAndGet());
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            saveUndo(epic.getId());
+            epics.put(epic.getId(), epic);
+            epicIndex.put(epic.getId(), epic.getStatus());
+            epicCounters.put(epic.getId(), new EpicStatusCounter());
+            updateEpicStatus(epic);
+        } finally {
+            lock.unlock();
+        }
+        return epic;
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        ReentrantLock lock = lockFor(subtask.getEpicId());
+        lock.lock();
+        try {
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic == null) {
+                return null;
+            }
+            subtask.setId(countId.incrementAndGet());
+            saveUndo(subtask.getId());
+            saveUndo(epic.getId());
+            subtasks.put(subtask.getId(), subtask);
+            subtaskIndex.put(subtask.getId(), subtask.getStatus());
+            epic.addSubtask(subtask);
+            countSubtask(epic, subtask.getStatus());
+            markChanged(subtask.getId());
+            return subtask;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Массовые операции проверяют пачку заранее, но применяются поэлементно: каждое изменение атомарно,
+    // пачка целиком — нет. Подзадачи эпика, удаленного параллельно, пропускаются
+    @Override
+    public ArrayList<Task> createTasks(Collection<? extends Task> batch) {
+        ArrayList<Task> created = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            created.add(createTask(task));
+        }
+        return created;
+    }
+
+    @Override
+    public ArrayList<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        for (Subtask subtask : batch) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Эпик " + subtask.getEpicId() + " не найден");
+            }
+        }
+        ArrayList<Subtask> created = new ArrayList<>(batch.size());
+        for (Subtask subtask : batch) {
+            if (createSubtask(subtask) != null) {
+                created.add(subtask);
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public ArrayList<Subtask> updateSubtasks(Collection<? extends Subtask> batch) {
+        for (Subtask subtask : batch) {
+            if (!subtasks.containsKey(subtask.getId())) {
+                throw new IllegalArgumentException("Подзадача " + subtask.getId() + " не найдена");
+            }
+        }
+        ArrayList<Subtask> updated = new ArrayList<>(batch.size());
+        for (Subtask subtask : batch) {
+            if (updateSubtask(subtask) != null) {
+                updated.add(subtask);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        for (int id : ids) {
+            if (tasks.containsKey(id)) {
+                deleteTask(id);
+            } else if (epics.containsKey(id)) {
+                deleteEpic(id);
+            } else {
+                deleteSubtask(id);
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTask() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public ArrayList<Epic> getEpic() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtask() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public Task getTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            return null;
+        }
+        recordView(task);
+        return task;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic == null) {
+            return null;
+        }
+        recordView(epic);
+        return epic;
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        Subtask subtask = subtasks.get(id);
+        if (subtask == null) {
+            return null;
+        }
+        recordView(subtask);
+        return subtask;
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        ReentrantLock lock = lockFor(task.getId());
+        lock.lock();
+        try {
+            saveUndo(task.getId());
+            tasks.computeIfPresent(task.getId(), (id, previous) -> {
+                taskIndex.put(id, task.getStatus());
+                return task;
+            });
+            markChanged(task.getId());
+        } finally {
+            lock.unlock();
+        }
+        return task;
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        ReentrantLock lock = lockFor(epic.getId());
+        lock.lock();
+        try {
+            saveUndo(epic.getId());
+            if (epics.replace(epic.getId(), epic) == null) {
+                return null;
+            }
+            epicIndex.put(epic.getId(), epic.getStatus());
+            fanOuts[stripeOf(epic.getId())].update(epic.getId(), epic.getSubtaskCount());
+            markChanged(epic.getId());
+            return epic;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Блокируется полоса эпика, в котором подзадача хранится сейчас, а при переносе в другой эпик —
+    // и полоса нового эпика. Эпик хранимой подзадачи читается до блокировки, поэтому под ней
+    // перепроверяется: если подзадачу успели перенести, попытка повторяется.
+    // Перенос в несуществующий эпик не выполняется, как и создание подзадачи без эпика
+    @Override
+    public Subtask updateSubtask(Subtask subtask) {
+        int newEpicId = subtask.getEpicId();
+        while (true) {
+            Subtask stored = subtasks.get(subtask.getId());
+            if (stored == null) {
+                return null;
+            }
+            int oldEpicId = stored.getEpicId();
+            lockBoth(oldEpicId, newEpicId);
+            try {
+                Subtask previous = subtasks.get(subtask.getId());
+                if (previous == null) {
+                    return null;
+                }
+                if (previous.getEpicId() != oldEpicId) {
+                    continue; // перенесена параллельно — берем полосы заново
+                }
+                Epic epic = epics.get(newEpicId);
+                if (oldEpicId != newEpicId && epic == null) {
+                    return null;
+                }
+                saveUndo(subtask.getId());
+                saveUndo(oldEpicId);
+                saveUndo(newEpicId);
+                Status oldStatus = subtaskIndex.indexedStatus(subtask.getId());
+                subtasks.put(subtask.getId(), subtask);
+                subtaskIndex.put(subtask.getId(), subtask.getStatus());
+                markChanged(subtask.getId());
+                if (oldEpicId != newEpicId) {
+                    Epic oldEpic = epics.get(oldEpicId);
+                    if (oldEpic != null) {
+                        oldEpic.removeSubtask(subtask.getId());
+                        EpicStatusCounter counter = epicCounters.get(oldEpicId);
+                        counter.remove(oldStatus);
+                        setEpicStatus(oldEpic, counter.getStatus());
+                    }
+                    epic.addSubtask(subtask);
+                    countSubtask(epic, subtask.getStatus());
+                } else if (epic != null) {
+                    EpicStatusCounter counter = epicCounters.get(newEpicId);
+                    counter.change(oldStatus, subtask.getStatus());
+                    setEpicStatus(epic, counter.getStatus());
+                }
+                return subtask;
+            } finally {
+                unlockBoth(oldEpicId, newEpicId);
+            }
+        }
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            saveUndo(id);
+            tasks.computeIfPresent(id, (key, previous) -> {
+                taskIndex.remove(key);
+                return null;
+            });
+            markChanged(id);
+        } finally {
+            lock.unlock();
+        }
+        recordRemoval(id); // Удаляем из истории
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            saveUndo(id);
+            Epic epic = epics.remove(id);
+            if (epic != null) {
+                epicCounters.remove(id);
+                epicIndex.remove(id);
+                fanOuts[stripeOf(id)].remove(id);
+                markChanged(id);
+                PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+                while (ids.hasNext()) {
+                    int taskId = ids.nextInt();
+                    saveUndo(taskId);
+                    subtasks.remove(taskId);
+                    subtaskIndex.remove(taskId);
+                    markChanged(taskId);
+                    recordRemoval(taskId); // Удаляем подзадачи из истории
+                }
+                recordRemoval(id); // Удаляем эпик из истории
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Эпик подзадачи читается до блокировки и перепроверяется под ней: если подзадачу успели
+    // перенести в другой эпик, удаление повторяется под полосой нового эпика
+    @Override
+    public void deleteSubtask(int id) {
+        while (true) {
+            Subtask subtask = subtasks.get(id);
+            if (subtask == null) {
+                return;
+            }
+            int epicId = subtask.getEpicId();
+            ReentrantLock lock = lockFor(epicId);
+            lock.lock();
+            try {
+                Subtask current = subtasks.get(id);
+                if (current == null) {
+                    return;
+                }
+                if (current.getEpicId() != epicId) {
+                    continue;
+                }
+                saveUndo(id);
+                saveUndo(epicId);
+                Status oldStatus = subtaskIndex.indexedStatus(id);
+                subtasks.remove(id);
+                subtaskIndex.remove(id);
+                markChanged(id);
+                Epic epic = epics.get(epicId);
+                if (epic != null) {
+                    epic.removeSubtask(id);
+                    EpicStatusCounter counter = epicCounters.get(epicId);
+                    counter.remove(oldStatus);
+                    setEpicStatus(epic, counter.getStatus());
+                }
+                recordRemoval(id); // Удаляем подзадачу из истории
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Массовые удаления выполняются поэлементно: каждое удаление атомарно,
+    // но задачи, созданные параллельно с очисткой, могут сохраниться
+    @Override
+    public void deleteTask() {
+        for (Integer id : tasks.keySet()) {
+            deleteTask(id);
+        }
+    }
+
+    @Override
+    public void deleteEpic() {
+        for (Integer id : epics.keySet()) {
+            deleteEpic(id);
+        }
+    }
+
+    @Override
+    public void deleteSubtask() {
+        for (Integer epicId : epics.keySet()) {
+            ReentrantLock lock = lockFor(epicId);
+            lock.lock();
+            try {
+                Epic epic = epics.get(epicId);
+                if (epic == null) {
+                    continue; // эпик удален параллельно
+                }
+                saveUndo(epicId);
+                PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+                while (ids.hasNext()) {
+                    int taskId = ids.nextInt();
+                    saveUndo(taskId);
+                    subtasks.remove(taskId);
+                    subtaskIndex.remove(taskId);
+                    markChanged(taskId);
+                    recordRemoval(taskId); // Удаляем подзадачи из истории
+                }
+                epic.removeSubtaskAll();
+                updateEpicStatus(epic);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<Subtask> getAllSubtasksOfEpic(int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            Epic epic = epics.get(id);
+            ArrayList<Subtask> subtasksOfEpic = new ArrayList<>();
+            if (epic != null) {
+                PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+                while (ids.hasNext()) {
+                    int taskId = ids.nextInt();
+                    subtasksOfEpic.add(subtasks.get(taskId));
+                }
+            }
+            return subtasksOfEpic;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Учитывает добавленную в эпик подзадачу за O(1); вызывается под блокировкой полосы эпика
+    private void countSubtask(Epic epic, Status status) {
+        EpicStatusCounter counter = epicCounters.get(epic.getId());
+        counter.add(status);
+        setEpicStatus(epic, counter.getStatus());
+    }
+
+    // Полный пересчет счетчиков эпика по статусам из индекса подзадач; вызывается под блокировкой полосы эпика
+    private void updateEpicStatus(Epic epic) {
+        EpicStatusCounter counter = epicCounters.get(epic.getId());
+        counter.clear();
+        PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+        while (ids.hasNext()) {
+            int taskId = ids.nextInt();
+            if (subtasks.containsKey(taskId)) {
+                counter.add(subtaskIndex.indexedStatus(taskId));
+            }
+        }
+        setEpicStatus(epic, counter.getStatus());
+    }
+
+    // Вызывается под блокировкой полосы эпика; отмечает эпик и при изменении состава подзадач
+    private void setEpicStatus(Epic epic, Status status) {
+        epic.setStatus(status);
+        epicIndex.put(epic.getId(), status);
+        fanOuts[stripeOf(epic.getId())].update(epic.getId(), epic.getSubtaskCount());
+        markChanged(epic.getId());
+    }
+
+    // Внутри транзакции сохраняет копию сущности с этим id до ее первого изменения: вызывается
+    // под полосой сущности перед изменением, в том числе на месте. Во время транзакции изменения
+    // вносит только ее поток
+    private void saveUndo(int id) {
+        if (touched == null || !touched.add(id)) {
+            return;
+        }
+        saveCopy(undoTasks, id, tasks.get(id), Task::new);
+        saveCopy(undoEpics, id, epics.get(id), Epic::new);
+        saveCopy(undoSubtasks, id, subtasks.get(id), Subtask::new);
+    }
+
+    private static <T> void saveCopy(EntityStore<T> undo, int id, T current, UnaryOperator<T> copier) {
+        if (current != null) {
+            undo.put(id, copier.apply(current));
+        }
+    }
+
+    // Отмечает id для следующего снимка; вызывается под полосой, под которой изменена сущность
+    private void markChanged(int id) {
+        if (stale) {
+            return;
+        }
+        if (!building && published.get() == null) {
+            stale = true; // снимок освобожден: следующий построит версии заново
+            return;
+        }
+        changed.add(id);
+        if (changed.size() > (tasks.size() + epics.size() + subtasks.size()) / 2) {
+            stale = true;
+        }
+    }
+
+    // Транзакция берет все полосы по порядку, как снимок, и держит их до конца: изменения других
+    // потоков ждут ее завершения, снимки не видят ее промежуточных состояний. Чтения без блокировок
+    // (getTask, выборки по индексам) могут увидеть еще не зафиксированные изменения.
+    // Откат возвращает затронутые id к копиям, сохраненным при их первом изменении,
+    // за O(затронутых сущностей); выданные транзакцией id повторно не используются
+    @Override
+    public <T> T inTransaction(Function<? super TaskManager, T> work) {
+        if (transactionOwner == Thread.currentThread()) {
+            return work.apply(this);
+        }
+        lockAll();
+        List<Runnable> changes;
+        T result;
+        try {
+            touched = new IntOrderedSet();
+            undoTasks = new HashEntityStore<>();
+            undoEpics = new HashEntityStore<>();
+            undoSubtasks = new HashEntityStore<>();
+            deferred = new ArrayList<>();
+            transactionOwner = Thread.currentThread();
+            try {
+                result = work.apply(this);
+            } catch (RuntimeException | Error e) {
+                int[] ids = touched.toArray();
+                EntityStore<Task> previousTasks = undoTasks;
+                EntityStore<Epic> previousEpics = undoEpics;
+                EntityStore<Subtask> previousSubtasks = undoSubtasks;
+                endTransaction();
+                rollback(ids, previousTasks, previousEpics, previousSubtasks);
+                throw e;
+            }
+            changes = deferred;
+            endTransaction();
+        } finally {
+            unlockAll();
+        }
+        for (Runnable change : changes) {
+            change.run();
+        }
+        return result;
+    }
+
+    private void endTransaction() {
+        transactionOwner = null;
+        touched = null;
+        undoTasks = null;
+        undoEpics = null;
+        undoSubtasks = null;
+        deferred = null;
+    }
+
+    // Вызывается под всеми полосами. Счетчики статусов восстановленных эпиков пересчитываются
+    // по восстановленным подзадачам
+    private void rollback(int[] ids, EntityStore<Task> previousTasks, EntityStore<Epic> previousEpics,
+                          EntityStore<Subtask> previousSubtasks) {
+        for (int id : ids) {
+            restore(tasks, taskIndex, id, previousTasks.get(id));
+            restore(subtasks, subtaskIndex, id, previousSubtasks.get(id));
+            if (restore(epics, epicIndex, id, previousEpics.get(id))) {
+                epicCounters.put(id, new EpicStatusCounter());
+            } else {
+                epicCounters.remove(id);
+                fanOuts[stripeOf(id)].remove(id);
+            }
+            markChanged(id);
+        }
+        for (int id : ids) {
+            Epic epic = epics.get(id);
+            if (epic != null) {
+                updateEpicStatus(epic);
+            }
+        }
+    }
+
+    // Возвращает true, если сущность существовала до транзакции и восстановлена
+    private static <T extends Task> boolean restore(ConcurrentHashMap<Integer, T> entities,
+                                                    ConcurrentEntityIndex index, int id, T previous) {
+        if (previous == null) {
+            if (entities.remove(id) != null) {
+                index.remove(id);
+            }
+            return false;
+        }
+        entities.put(id, previous);
+        index.put(id, previous.getStatus());
+        return true;
+    }
+
+    // Внутри транзакции операции с историей применяются только при фиксации
+    private void recordView(Task task) {
+        if (transactionOwner == Thread.currentThread()) {
+            deferred.add(() -> viewHistory.add(task));
+        } else {
+            viewHistory.add(task);
+        }
+    }
+
+    private void recordRemoval(int id) {
+        if (transactionOwner == Thread.currentThread()) {
+            deferred.add(() -> viewHistory.remove(id));
+        } else {
+            viewHistory.remove(id);
+        }
+    }
+
+    // Все полосы берутся по возрастанию номера, как и в lockBoth, поэтому снимок не взаимоблокируется
+    // с переносами подзадач. Под ними в версии копируются сущности, отмеченные после прошлого снимка:
+    // изменения ждут O(изменений), а не O(всех сущностей). Полная копия снимается без полос, с отметкой
+    // изменений, сделанных за это время; под полосами затем досылаются только они
+    @Override
+    public TaskSnapshot snapshot() {
+        publishLock.lock();
+        try {
+            boolean modified;
+            lockAll();
+            try {
+                TaskSnapshot last = published.get();
+                if (last != null && !stale) {
+                    return changed.isEmpty() ? last : publish(last.taskMap(), last.epicMap(), last.subtaskMap(), true);
+                }
+                modified = stale || !changed.isEmpty();
+                stale = false;
+                changed.clear();
+                building = true;
+            } finally {
+                unlockAll();
+            }
+            try {
+                PersistentIntMap<Task> copiedTasks = copyAll(tasks, Task::new, false);
+                PersistentIntMap<Epic> copiedEpics = copyAll(epics, Epic::new, true);
+                PersistentIntMap<Subtask> copiedSubtasks = copyAll(subtasks, Subtask::new, false);
+                lockAll();
+                try {
+                    if (stale) { // за время копирования изменилось больше половины сущностей
+                        stale = false;
+                        changed.clear();
+                        modified = true;
+                        copiedTasks = copyAll(tasks, Task::new, false);
+                        copiedEpics = copyAll(epics, Epic::new, false);
+                        copiedSubtasks = copyAll(subtasks, Subtask::new, false);
+                    }
+                    return publish(copiedTasks, copiedEpics, copiedSubtasks, modified);
+                } finally {
+                    unlockAll();
+                }
+            } finally {
+                building = false;
+            }
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : epicLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = epicLocks.length - 1; i >= 0; i--) {
+            epicLocks[i].unlock();
+        }
+    }
+
+    // Вызывается под всеми полосами: копирует в версии отмеченные сущности и запоминает снимок.
+    // Номер версии растет, только если состояние изменилось
+    private TaskSnapshot publish(PersistentIntMap<Task> publishedTasks, PersistentIntMap<Epic> publishedEpics,
+                                 PersistentIntMap<Subtask> publishedSubtasks, boolean modified) {
+        if (!changed.isEmpty()) {
+            modified = true;
+            for (int id : changed) {
+                publishedTasks = publish(publishedTasks, id, tasks.get(id), Task::new);
+                publishedEpics = publish(publishedEpics, id, epics.get(id), Epic::new);
+                publishedSubtasks = publish(publishedSubtasks, id, subtasks.get(id), Subtask::new);
+            }
+            changed.clear();
+        }
+        if (modified) {
+            version++;
+        }
+        TaskSnapshot snapshot = new TaskSnapshot(publishedTasks, publishedEpics, publishedSubtasks, version);
+        published = new WeakReference<>(snapshot);
+        return snapshot;
+    }
+
+    private static <T> PersistentIntMap<T> publish(PersistentIntMap<T> published, int id, T current,
+                                                   UnaryOperator<T> copier) {
+        return current == null ? published.remove(id) : published.put(id, copier.apply(current));
+    }
+
+    // Вне полос карта может меняться во время обхода: удаленные сущности пропускаются, эпики,
+    // изменяемые на месте, копируются под полосой своего id (underStripe). Задачи и подзадачи
+    // менеджер не изменяет на месте, а заменяет
+    private <T extends Task> PersistentIntMap<T> copyAll(ConcurrentHashMap<Integer, T> source,
+                                                         UnaryOperator<T> copier, boolean underStripe) {
+        int[] ids = source.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        @SuppressWarnings("unchecked")
+        T[] copies = (T[]) new Task[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            T copy;
+            if (underStripe) {
+                ReentrantLock lock = lockFor(id);
+                lock.lock();
+                try {
+                    copy = copyOf(source.get(id), copier);
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                copy = copyOf(source.get(id), copier);
+            }
+            if (copy != null) {
+                ids[count] = id;
+                copies[count++] = copy;
+            }
+        }
+        return PersistentIntMap.fromSorted(ids, copies, count);
+    }
+
+    private static <T> T copyOf(T entity, UnaryOperator<T> copier) {
+        return entity == null ? null : copier.apply(entity);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return taskIndex.stream(tasks::get);
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epicIndex.stream(epics::get);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtaskIndex.stream(subtasks::get);
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksOfEpic(int epicId) {
+        ReentrantLock lock = lockFor(epicId);
+        lock.lock();
+        try {
+            // Снимок id берется под блокировкой; подзадачи читаются уже без нее
+            Epic epic = epics.get(epicId);
+            if (epic == null) {
+                return Stream.empty();
+            }
+            return StreamSupport.intStream(epic.subtaskIdSpliterator(), false)
+                    .mapToObj(subtasks::get)
+                    .filter(Objects::nonNull);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ArrayList<Task> getTaskPage(int afterId, int limit) {
+        return taskIndex.page(afterId, limit, tasks::get);
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicPage(int afterId, int limit) {
+        return epicIndex.page(afterId, limit, epics::get);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtaskPage(int afterId, int limit) {
+        return subtaskIndex.page(afterId, limit, subtasks::get);
+    }
+
+    @Override
+    public ArrayList<Task> getTaskRange(int fromId, int toId) {
+        return taskIndex.range(fromId, toId, tasks::get);
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicRange(int fromId, int toId) {
+        return epicIndex.range(fromId, toId, epics::get);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtaskRange(int fromId, int toId) {
+        return subtaskIndex.range(fromId, toId, subtasks::get);
+    }
+
+    @Override
+    public ArrayList<Task> getTasksByStatus(Status status) {
+        return taskIndex.get(status, tasks::get);
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicsByStatus(Status status) {
+        return epicIndex.get(status, epics::get);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksByStatus(Status status) {
+        return subtaskIndex.get(status, subtasks::get);
+    }
+
+    @Override
+    public ArrayList<Task> getByStatus(Status status) {
+        ArrayList<Task> result = getTasksByStatus(status);
+        result.addAll(getEpicsByStatus(status));
+        result.addAll(getSubtasksByStatus(status));
+        return result;
+    }
+
+    @Override
+    public int count(TaskType type) {
+        switch (type) {
+            case TASK:
+                return tasks.size();
+            case EPIC:
+                return epics.size();
+            case SUBTASK:
+                return subtasks.size();
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        switch (type) {
+            case TASK:
+                return taskIndex.count(status);
+            case EPIC:
+                return epicIndex.count(status);
+            case SUBTASK:
+                return subtaskIndex.count(status);
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    // Максимум по полосам: чтение без блокировок за O(полос)
+    @Override
+    public int largestEpicFanOut() {
+        int largest = 0;
+        for (EpicFanOut fanOut : fanOuts) {
+            largest = Math.max(largest, fanOut.largest());
+        }
+        return largest;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return viewHistory.getHistory();
+    }
+
+    @Override
+    public List<Task> getHistory(int lastN) {
+        return viewHistory.getHistory(lastN);
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return viewHistory.getVersion();
+    }
+}
@@ -2,8 +2,14 @@ package kanbanboard.manager.task;
 
 import kanbanboard.model.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 public class CsvConverter {
     private static final String CSV_HEADER = "id,type,name,status,description,epic";
+    private static final String NULL = "null"; // так String.format выводит null
 
     // Возвращает заголовок CSV
     public String getCsvHeader() {
@@ -12,19 +18,201 @@ public class CsvConverter {
 
     // Перегруженные методы для конвертации задач в CSV
     public String toCsvString(Task task) {
-        return String.format("%d,%s,%s,%s,%s,",
-                task.getId(), TaskType.TASK, task.getTitle(), task.getStatus(), task.getDescription());
+        return toCsvString(task, new StringBuilder()).toString();
     }
 
     public String toCsvString(Epic epic) {
-        return String.format("%d,%s,%s,%s,%s,",
-                epic.getId(), TaskType.EPIC, epic.getTitle(), epic.getStatus(), epic.getDescription());
+        return toCsvString(epic, new StringBuilder()).toString();
     }
 
     public String toCsvString(Subtask subtask) {
-        return String.format("%d,%s,%s,%s,%s,%d",
-                subtask.getId(), TaskType.SUBTASK, subtask.getTitle(), subtask.getStatus(),
-                subtask.getDescription(), subtask.getEpicId());
+        return toCsvString(subtask, new StringBuilder()).toString();
+    }
+
+    // Запись строки CSV напрямую в Appendable, CharBuffer или ByteBuffer (UTF-8) без String.format.
+    // Результат побайтно совпадает с toCsvString; при нехватке места в буфере
+    // выбрасывается BufferOverflowException.
+    public <A extends Appendable> A toCsvString(Task task, A out) {
+        new AppendableSink(out).row(task, TaskType.TASK, false, 0);
+        return out;
+    }
+
+    public <A extends Appendable> A toCsvString(Epic epic, A out) {
+        new AppendableSink(out).row(epic, TaskType.EPIC, false, 0);
+        return out;
+    }
+
+    public <A extends Appendable> A toCsvString(Subtask subtask, A out) {
+        new AppendableSink(out).row(subtask, TaskType.SUBTASK, true, subtask.getEpicId());
+        return out;
+    }
+
+    public CharBuffer toCsvString(Task task, CharBuffer out) {
+        new CharBufferSink(out).row(task, TaskType.TASK, false, 0);
+        return out;
+    }
+
+    public CharBuffer toCsvString(Epic epic, CharBuffer out) {
+        new CharBufferSink(out).row(epic, TaskType.EPIC, false, 0);
+        return out;
+    }
+
+    public CharBuffer toCsvString(Subtask subtask, CharBuffer out) {
+        new CharBufferSink(out).row(subtask, TaskType.SUBTASK, true, subtask.getEpicId());
+        return out;
+    }
+
+    public ByteBuffer toCsvString(Task task, ByteBuffer out) {
+        new Utf8Sink(out).row(task, TaskType.TASK, false, 0);
+        return out;
+    }
+
+    public ByteBuffer toCsvString(Epic epic, ByteBuffer out) {
+        new Utf8Sink(out).row(epic, TaskType.EPIC, false, 0);
+        return out;
+    }
+
+    public ByteBuffer toCsvString(Subtask subtask, ByteBuffer out) {
+        new Utf8Sink(out).row(subtask, TaskType.SUBTASK, true, subtask.getEpicId());
+        return out;
+    }
+
+    // Приемник символов строки CSV; форматирование чисел и перечислений выполняется вручную
+    private abstract static class Sink {
+        abstract void put(char c);
+
+        void put(String value) {
+            String text = value == null ? NULL : value;
+            for (int i = 0; i < text.length(); i++) {
+                put(text.charAt(i));
+            }
+        }
+
+        // Формат "%d,%s,%s,%s,%s,%d" для подзадачи и "%d,%s,%s,%s,%s," для остальных
+        void row(Task task, TaskType type, boolean hasEpic, int epicId) {
+            if (task.getId() == null) {
+                put(NULL);
+            } else {
+                putInt(task.getId());
+            }
+            put(',');
+            put(type.name());
+            put(',');
+            put(task.getTitle());
+            put(',');
+            put(task.getStatus() == null ? null : task.getStatus().name());
+            put(',');
+            put(task.getDescription());
+            put(',');
+            if (hasEpic) {
+                putInt(epicId);
+            }
+        }
+
+        // Десятичная запись без промежуточных строк, цифры выводятся от старшей к младшей
+        void putInt(int number) {
+            long value = number;
+            if (value < 0) {
+                put('-');
+                value = -value;
+            }
+            long divisor = 1;
+            while (divisor * 10 <= value) {
+                divisor *= 10;
+            }
+            while (divisor > 0) {
+                put((char) ('0' + value / divisor));
+                value %= divisor;
+                divisor /= 10;
+            }
+        }
+    }
+
+    private static class AppendableSink extends Sink {
+        private final Appendable out;
+
+        AppendableSink(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        void put(char c) {
+            try {
+                out.append(c);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class CharBufferSink extends Sink {
+        private final CharBuffer out;
+
+        CharBufferSink(CharBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        void put(char c) {
+            out.put(c);
+        }
+    }
+
+    // Кодирование в UTF-8 как у String.getBytes: непарный суррогат заменяется на '?'
+    private static class Utf8Sink extends Sink {
+        private final ByteBuffer out;
+        private char highSurrogate;
+
+        Utf8Sink(ByteBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        void put(String value) {
+            super.put(value);
+            if (highSurrogate != 0) {
+                out.put((byte) '?');
+                highSurrogate = 0;
+            }
+        }
+
+        @Override
+        void put(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    putCodePoint(Character.toCodePoint(high, c));
+                    return;
+                }
+                out.put((byte) '?');
+            }
+            if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                putCodePoint(c);
+            }
+        }
+
+        private void putCodePoint(int codePoint) {
+            if (codePoint < 0x80) {
+                out.put((byte) codePoint);
+            } else if (codePoint < 0x800) {
+                out.put((byte) (0xC0 | (codePoint >> 6)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (codePoint < 0x10000) {
+                out.put((byte) (0xE0 | (codePoint >> 12)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+        }
     }
 
     // Конвертация строки CSV в задачу (диспетчер)
@@ -0,0 +1,212 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Потоковая загрузка CSV-снимка: файл читается порциями в переиспользуемый буфер символов,
+// каждая строка разбирается за один проход без split и промежуточных строк для id, типа и статуса.
+// Память ограничена размером буфера (он растет только под строку длиннее буфера).
+public class CsvStreamLoader {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int FIELD_COUNT = 6; // id,type,name,status,description,epic
+    private static final int MIN_FIELD_COUNT = 5;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final char[][] TYPE_NAMES = names(TYPES);
+    private static final char[][] STATUS_NAMES = names(STATUSES);
+
+    private char[] buffer;
+    private final int[] fieldStarts = new int[FIELD_COUNT];
+    private final int[] fieldEnds = new int[FIELD_COUNT];
+
+    public CsvStreamLoader() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvStreamLoader(int bufferSize) {
+        this.buffer = new char[bufferSize];
+    }
+
+    // Загружает файл, пропуская заголовок и пустые строки
+    public void load(Path path, Consumer<Task> consumer) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
+            load(reader, consumer);
+        }
+    }
+
+    public void load(Reader reader, Consumer<Task> consumer) throws IOException {
+        load(reader, consumer, true);
+    }
+
+    // hasHeader = false для фрагментов файла, начинающихся сразу со строк данных
+    public void load(Reader reader, Consumer<Task> consumer, boolean hasHeader) throws IOException {
+        int start = 0;     // начало необработанной строки
+        int limit = 0;     // конец прочитанных данных
+        int scan = 0;      // позиция, с которой ищется конец строки
+        boolean header = hasHeader;
+        while (true) {
+            int newline = indexOfNewline(scan, limit);
+            if (newline >= 0) {
+                header = processLine(start, newline, header, consumer);
+                start = newline + 1;
+                scan = start;
+                continue;
+            }
+            // Строка не закончилась: переносим хвост в начало буфера и дочитываем
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                scan = limit;
+                start = 0;
+            } else {
+                scan = limit;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                if (limit > 0) {
+                    processLine(0, limit, header, consumer);
+                }
+                return;
+            }
+            limit += read;
+        }
+    }
+
+    private int indexOfNewline(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Возвращает, остается ли следующая строка заголовком
+    private boolean processLine(int start, int end, boolean header, Consumer<Task> consumer) {
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        if (header) {
+            return false;
+        }
+        if (!isBlank(start, end)) {
+            consumer.accept(parseRow(start, end));
+        }
+        return false;
+    }
+
+    private boolean isBlank(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Разбор одной строки за один проход: границы полей, затем значения
+    private Task parseRow(int start, int end) {
+        int fields = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end && fields < FIELD_COUNT; i++) {
+            if (i == end || buffer[i] == ',') {
+                fieldStarts[fields] = fieldStart;
+                fieldEnds[fields] = i;
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+        if (fields < MIN_FIELD_COUNT) {
+            throw new IllegalArgumentException("Недостаточно полей в строке CSV: " + line(start, end));
+        }
+        int id = parseInt(0, start, end);
+        TaskType type = TYPES[match(TYPE_NAMES, 1, start, end)];
+        String title = field(2);
+        String description = field(4);
+        switch (type) {
+            case TASK:
+                return new Task(title, description, STATUSES[match(STATUS_NAMES, 3, start, end)], id);
+            case EPIC:
+                Epic epic = new Epic(title, description);
+                epic.setId(id);
+                // Статус не устанавливается, будет пересчитан
+                return epic;
+            case SUBTASK:
+                if (fields < FIELD_COUNT) {
+                    throw new IllegalArgumentException("Не указан эпик подзадачи: " + line(start, end));
+                }
+                Status status = STATUSES[match(STATUS_NAMES, 3, start, end)];
+                return new Subtask(title, description, parseInt(5, start, end), status, id);
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    private String field(int index) {
+        return new String(buffer, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    private int parseInt(int index, int lineStart, int lineEnd) {
+        int from = fieldStarts[index];
+        int to = fieldEnds[index];
+        boolean negative = from < to && buffer[from] == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw new NumberFormatException("Ожидалось число в строке CSV: " + line(lineStart, lineEnd));
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Ожидалось число в строке CSV: " + line(lineStart, lineEnd));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Слишком большое число в строке CSV: " + line(lineStart, lineEnd));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Слишком большое число в строке CSV: " + line(lineStart, lineEnd));
+        }
+        return (int) value;
+    }
+
+    // Возвращает порядковый номер константы, имя которой совпадает с полем
+    private int match(char[][] names, int index, int lineStart, int lineEnd) {
+        int from = fieldStarts[index];
+        int length = fieldEnds[index] - from;
+        for (int ordinal = 0; ordinal < names.length; ordinal++) {
+            char[] name = names[ordinal];
+            if (name.length == length && Arrays.equals(name, 0, length, buffer, from, from + length)) {
+                return ordinal;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное значение '" + field(index) + "' в строке CSV: "
+                + line(lineStart, lineEnd));
+    }
+
+    // Строка создается только для сообщения об ошибке
+    private String line(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    private static char[][] names(Enum<?>[] values) {
+        char[][] names = new char[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().toCharArray();
+        }
+        return names;
+    }
+}
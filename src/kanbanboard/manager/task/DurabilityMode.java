@@ -0,0 +1,9 @@
+package kanbanboard.manager.task;
+
+// Режимы записи изменений на диск
+public enum DurabilityMode {
+    WRITE_THROUGH, // запись в вызывающем потоке без fsync (поведение по умолчанию)
+    SYNC,          // запись в вызывающем потоке с fsync после каждого изменения
+    PERIODIC,      // фоновая запись накопленных изменений раз в заданный интервал
+    ASYNC          // фоновая запись по мере поступления, ограниченная очередь с обратным давлением
+}
@@ -0,0 +1,64 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.util.EntityStore;
+import kanbanboard.util.HashEntityStore;
+
+import java.util.Arrays;
+
+// Наибольшее число подзадач в одном эпике, поддерживаемое при изменениях состава.
+// Хранит учтенный размер каждого непустого эпика и гистограмму эпиков по размеру: обновление — O(1),
+// кроме уменьшения максимума, когда поиск следующего непустого размера оплачен удаленными подзадачами.
+// Изменяется по правилам многопоточности своего менеджера; largest() можно читать из любого потока
+class EpicFanOut {
+    private final EntityStore<int[]> sizes = new HashEntityStore<>();
+    private int[] epicsBySize = new int[16]; // epicsBySize[k] — число эпиков с k > 0 подзадачами
+    private volatile int largest;
+
+    // Учитывает текущий размер эпика; size == 0 — эпик пуст или удален
+    void update(int epicId, int size) {
+        int[] entry = sizes.get(epicId);
+        int previous = entry == null ? 0 : entry[0];
+        if (previous == size) {
+            return;
+        }
+        if (size == 0) {
+            sizes.remove(epicId);
+        } else if (entry == null) {
+            sizes.put(epicId, new int[]{size});
+        } else {
+            entry[0] = size;
+        }
+        if (previous > 0) {
+            epicsBySize[previous]--;
+        }
+        if (size > 0) {
+            if (size >= epicsBySize.length) {
+                epicsBySize = Arrays.copyOf(epicsBySize, Math.max(size + 1, epicsBySize.length * 2));
+            }
+            epicsBySize[size]++;
+        }
+        int max = largest;
+        if (size > max) {
+            largest = size;
+        } else if (previous == max && epicsBySize[max] == 0) {
+            while (max > 0 && epicsBySize[max] == 0) {
+                max--;
+            }
+            largest = max;
+        }
+    }
+
+    void remove(int epicId) {
+        update(epicId, 0);
+    }
+
+    void clear() {
+        sizes.clear();
+        epicsBySize = new int[16];
+        largest = 0;
+    }
+
+    int largest() {
+        return largest;
+    }
+}
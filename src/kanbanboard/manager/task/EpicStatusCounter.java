@@ -0,0 +1,53 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.Status;
+
+import java.util.Arrays;
+
+// Счетчики статусов подзадач одного эпика.
+// Статус эпика вычисляется по счетчикам за O(1); при изменении подзадачи счетчики меняются на разность.
+// Прежний статус подзадачи передает вызывающий код — статус, под которым она учтена в индексе
+// статусов менеджера: подзадачи изменяются на месте, и из самого объекта его не получить
+class EpicStatusCounter {
+    private final int[] counts = new int[Status.values().length];
+    private int total;
+
+    // Учитывает новую подзадачу
+    void add(Status status) {
+        counts[countedAs(status).ordinal()]++;
+        total++;
+    }
+
+    // Исключает подзадачу, учтенную со статусом status
+    void remove(Status status) {
+        counts[countedAs(status).ordinal()]--;
+        total--;
+    }
+
+    // Переносит учтенную подзадачу из статуса previous в status
+    void change(Status previous, Status status) {
+        counts[countedAs(previous).ordinal()]--;
+        counts[countedAs(status).ordinal()]++;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    // Правила те же, что у InMemoryTaskManager.calculateEpicStatus
+    Status getStatus() {
+        if (total == counts[Status.NEW.ordinal()]) {
+            return Status.NEW; // в том числе эпик без подзадач
+        } else if (total == counts[Status.DONE.ordinal()]) {
+            return Status.DONE;
+        } else {
+            return Status.IN_PROGRESS;
+        }
+    }
+
+    // Подзадача без статуса не считается ни новой, ни завершенной
+    private static Status countedAs(Status status) {
+        return status == null ? Status.IN_PROGRESS : status;
+    }
+}
@@ -4,213 +4,752 @@ import kanbanboard.manager.history.HistoryManager;
 import kanbanboard.manager.history.InMemoryHistoryManager;
 import kanbanboard.model.*;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
     private final CsvConverter csvConverter;
+    private final StorageOptions options;
+    private final StorageFormat format;
+    private final BinarySnapshotFormat binaryFormat;
+    private final TaskJournal journal; // null, если журнал отключен
+    private final BackgroundPersister persister;
+    private final SnapshotFileWriter snapshotWriter;
+    private final PersistenceStats persistenceStats = new PersistenceStats();
+    // Монитор this защищает карты задач от фонового writer-а, ioLock — файлы снимка и журнала
+    private final Object ioLock = new Object();
+    // Порядок постановки записей в очередь сохранения; берется до монитора this
+    private final Object writeOrder = new Object();
+    // Записи журнала текущей транзакции и счетчик транзакций; защищены монитором this
+    private List<String> transactionRecords;
+    private long transactionCount;
+    // Журнал истории просмотров; null, если история не сохраняется или загрузка еще не завершена
+    private HistoryLog historyLog;
 
-    private FileBackedTaskManager(HistoryManager historyManager, File file) {
-        super(historyManager);
+    private FileBackedTaskManager(HistoryManager historyManager, File file, StorageOptions options) {
+        super(historyManager, options.getEntityStoreType());
         this.file = file;
         this.csvConverter = new CsvConverter();
+        this.options = options;
+        this.format = options.getFormat(file);
+        this.binaryFormat = new BinarySnapshotFormat();
+        this.journal = options.isJournalEnabled() ? new TaskJournal(getJournalFile(file)) : null;
+        this.snapshotWriter = new SnapshotFileWriter(file.toPath());
+        this.persister = new BackgroundPersister(options, this::writeBatch);
+    }
+
+    // Журнал хранится рядом со снимком
+    public static File getJournalFile(File file) {
+        return new File(file.getPath() + ".journal");
+    }
+
+    public static File getHistoryFile(File file) {
+        return new File(file.getPath() + ".history");
     }
 
     // Переопределение методов, модифицирующих состояние
     @Override
     public Task createTask(Task task) {
-        Task createdTask = super.createTask(task);
-        save();
-        return createdTask;
+        return mutate(() -> super.createTask(task), this::createdRecord);
     }
 
     @Override
     public Epic createEpic(Epic epic) {
-        Epic createdEpic = super.createEpic(epic);
-        save();
-        return createdEpic;
+        return mutate(() -> super.createEpic(epic), this::createdRecord);
     }
 
     @Override
     public Subtask createSubtask(Subtask subtask) {
-        Subtask createdSubtask = super.createSubtask(subtask);
-        if (createdSubtask != null) {
-            save();
+        return mutate(() -> super.createSubtask(subtask), this::createdRecord);
+    }
+
+    // Массовые операции: изменения под монитором одним блоком, на диск — одной пачкой записей
+    @Override
+    public ArrayList<Task> createTasks(Collection<? extends Task> batch) {
+        return mutate(() -> super.createTasks(batch), created -> records(created, this::createdRecord));
+    }
+
+    @Override
+    public ArrayList<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        return mutate(() -> super.createSubtasks(batch), created -> records(created, this::createdRecord));
+    }
+
+    @Override
+    public ArrayList<Subtask> updateSubtasks(Collection<? extends Subtask> batch) {
+        return mutate(() -> super.updateSubtasks(batch), updated -> records(updated, this::updatedRecord));
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        mutate(() -> {
+            List<String> deleted = new ArrayList<>();
+            for (int id : ids) {
+                TaskType type = typeOf(id);
+                if (type != null) {
+                    deleted.add(TaskJournal.deleted(type, id));
+                }
+            }
+            super.deleteByIds(ids);
+            return deleted;
+        }, deleted -> deleted);
+    }
+
+    // Транзакция выполняется под монитором: другие потоки, включая снимки, не видят промежуточных состояний. Записи журнала копятся и уходят на диск одной пачкой
+    // между BEGIN и COMMIT; при загрузке пачка без COMMIT (сбой во время записи) отбрасывается
+    @Override
+    public <T> T inTransaction(Function<? super TaskManager, T> work) {
+        synchronized (writeOrder) {
+            List<String> records;
+            T result;
+            synchronized (this) {
+                if (transactionRecords != null) {
+                    return super.inTransaction(work);
+                }
+                transactionRecords = new ArrayList<>();
+                try {
+                    result = super.inTransaction(work);
+                    records = transactionRecords;
+                } finally {
+                    transactionRecords = null;
+                }
+                if (!records.isEmpty()) {
+                    long transactionId = ++transactionCount;
+                    records.add(0, TaskJournal.begun(transactionId));
+                    records.add(TaskJournal.committed(transactionId));
+                }
+            }
+            persister.submitAll(records);
+            return result;
         }
-        return createdSubtask;
     }
 
     @Override
     public Task updateTask(Task task) {
-        Task updatedTask = super.updateTask(task);
-        save();
-        return updatedTask;
+        return mutate(() -> super.updateTask(task), this::updatedRecord);
     }
 
     @Override
     public Epic updateEpic(Epic epic) {
-        Epic updatedEpic = super.updateEpic(epic);
-        if (updatedEpic != null) {
-            save();
-        }
-        return updatedEpic;
+        return mutate(() -> super.updateEpic(epic), this::updatedRecord);
     }
 
     @Override
     public Subtask updateSubtask(Subtask subtask) {
-        Subtask updatedSubtask = super.updateSubtask(subtask);
-        if (updatedSubtask != null) {
-            save();
-        }
-        return updatedSubtask;
+        return mutate(() -> super.updateSubtask(subtask), this::updatedRecord);
     }
 
     @Override
     public void deleteTask(int id) {
-        super.deleteTask(id);
-        save();
+        mutate(() -> super.deleteTask(id), TaskJournal.deleted(TaskType.TASK, id));
     }
 
     @Override
     public void deleteEpic(int id) {
-        super.deleteEpic(id);
-        save();
+        mutate(() -> super.deleteEpic(id), TaskJournal.deleted(TaskType.EPIC, id));
     }
 
     @Override
     public void deleteSubtask(int id) {
-        super.deleteSubtask(id);
-        save();
+        mutate(() -> super.deleteSubtask(id), TaskJournal.deleted(TaskType.SUBTASK, id));
     }
 
     @Override
     public void deleteTask() {
-        super.deleteTask();
-        save();
+        mutate(() -> super.deleteTask(), TaskJournal.cleared(TaskType.TASK));
     }
 
     @Override
     public void deleteEpic() {
-        super.deleteEpic();
-        save();
+        mutate(() -> super.deleteEpic(), TaskJournal.cleared(TaskType.EPIC));
     }
 
     @Override
     public void deleteSubtask() {
-        super.deleteSubtask();
-        save();
+        mutate(() -> super.deleteSubtask(), TaskJournal.cleared(TaskType.SUBTASK));
+    }
+
+    // Снимок id для потока помечает блоки индекса разделяемыми, поэтому снимается под тем же монитором,
+    // что и изменения; сам обход выполняется без блокировки
+    @Override
+    public synchronized Stream<Task> streamTasks() {
+        return super.streamTasks();
+    }
+
+    @Override
+    public synchronized Stream<Epic> streamEpics() {
+        return super.streamEpics();
+    }
+
+    @Override
+    public synchronized Stream<Subtask> streamSubtasks() {
+        return super.streamSubtasks();
+    }
+
+    @Override
+    public synchronized Stream<Subtask> streamSubtasksOfEpic(int epicId) {
+        return super.streamSubtasksOfEpic(epicId);
+    }
+
+    // Снимок собирается под монитором из изменений, накопленных с прошлого снимка;
+    // читается он уже без блокировок
+    @Override
+    public synchronized TaskSnapshot snapshot() {
+        return super.snapshot();
+    }
+
+    // Просмотры и удаления из истории только ставятся в очередь журнала истории:
+    // getTask не ждет ни диска, ни фонового потока
+    @Override
+    protected void recordView(Task task) {
+        super.recordView(task);
+        HistoryLog log = historyLog;
+        if (log != null) {
+            log.viewed(task.getId());
+        }
+    }
+
+    @Override
+    protected void recordRemoval(int id) {
+        super.recordRemoval(id);
+        HistoryLog log = historyLog;
+        if (log != null) {
+            log.removed(id);
+        }
+    }
+
+    // Изменение карт и формирование записей выполняются под монитором, чтобы фоновый writer видел
+    // согласованное состояние, а запись описывала именно это изменение. writeOrder удерживается
+    // до постановки записей в очередь, поэтому журнал получает их в порядке изменений.
+    // Фоновый writer writeOrder не берет: ожидание места в очереди задерживает только других писателей
+    private <T> T mutate(Supplier<T> change, Function<T, List<String>> toRecords) {
+        synchronized (writeOrder) {
+            T result;
+            List<String> records;
+            synchronized (this) {
+                result = change.get();
+                records = toRecords.apply(result);
+            }
+            persistRecords(records);
+            return result;
+        }
+    }
+
+    private void mutate(Runnable change, String record) {
+        mutate(() -> {
+            change.run();
+            return null;
+        }, ignored -> List.of(record));
+    }
+
+    // Записи о созданной или обновленной сущности; пусто, если изменение не выполнено
+    private List<String> createdRecord(Task entity) {
+        return entity == null ? List.of() : List.of(TaskJournal.created(toCsvLine(entity)));
+    }
+
+    private List<String> updatedRecord(Task entity) {
+        return entity == null ? List.of() : List.of(TaskJournal.updated(toCsvLine(entity)));
+    }
+
+    // Перегрузки CsvConverter выбираются по статическому типу, поэтому тип уточняется здесь
+    private String toCsvLine(Task entity) {
+        if (entity instanceof Epic) {
+            return csvConverter.toCsvString((Epic) entity);
+        } else if (entity instanceof Subtask) {
+            return csvConverter.toCsvString((Subtask) entity);
+        }
+        return csvConverter.toCsvString(entity);
+    }
+
+    private static <T> List<String> records(List<T> entities, Function<T, List<String>> record) {
+        List<String> records = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            records.addAll(record.apply(entity));
+        }
+        return records;
+    }
+
+    // Передает изменение на сохранение согласно режиму DurabilityMode.
+    // Внутри транзакции записи копятся до фиксации: поток транзакции держит монитор,
+    // поэтому записи других потоков сюда не попадают
+    private void persistRecords(List<String> records) {
+        if (Thread.holdsLock(this) && transactionRecords != null) {
+            transactionRecords.addAll(records);
+            return;
+        }
+        persister.submitAll(records);
+    }
+
+    // Тип задачи по id; null, если задачи нет
+    private TaskType typeOf(int id) {
+        if (tasks.containsKey(id)) {
+            return TaskType.TASK;
+        } else if (epics.containsKey(id)) {
+            return TaskType.EPIC;
+        } else if (subtasks.containsKey(id)) {
+            return TaskType.SUBTASK;
+        }
+        return null;
+    }
+
+    // Запись пачки изменений: в журнал или полным снимком (одним на всю пачку)
+    private void writeBatch(List<String> records) throws IOException {
+        synchronized (ioLock) {
+            if (journal == null) {
+                writeSnapshot(options.getFsyncPolicy());
+                return;
+            }
+            long start = System.nanoTime();
+            int bytes = journal.append(records, options.getFsyncPolicy());
+            persistenceStats.journalWritten(bytes, System.nanoTime() - start);
+            if (journal.getRecordCount() >= options.getCheckpointInterval()) {
+                writeCheckpoint(options.getFsyncPolicy());
+            }
+        }
+    }
+
+    // Статистика записи на диск для мониторинга
+    public PersistenceStats getPersistenceStats() {
+        return persistenceStats;
+    }
+
+    // Ждет, пока все изменения и просмотры будут записаны на диск
+    public void flush() {
+        persister.flush();
+        if (historyLog != null) {
+            historyLog.flush();
+        }
+    }
+
+    // Дописывает накопленные изменения и освобождает файлы
+    @Override
+    public void close() {
+        persister.close();
+        if (historyLog != null) {
+            historyLog.close();
+        }
+        synchronized (ioLock) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка при закрытии журнала: " + journal.getFile().getPath(), e);
+                }
+            }
+        }
+    }
+
+    // Контрольная точка: полный снимок в CSV и очистка журнала
+    public void checkpoint() {
+        persister.flush();
+        synchronized (ioLock) {
+            try {
+                writeCheckpoint(options.getFsyncPolicy());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при записи контрольной точки: " + file.getPath(), e);
+            }
+        }
+    }
+
+    private void writeCheckpoint(FsyncPolicy fsyncPolicy) throws IOException {
+        writeSnapshot(fsyncPolicy);
+        if (journal != null) {
+            journal.truncate(snapshotWriter.getLastChecksum(), fsyncPolicy);
+        }
     }
 
     // Метод сохранения состояния в файл
     protected void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
-            // Записываем заголовок
-            writer.write(csvConverter.getCsvHeader());
-            writer.newLine();
+        synchronized (ioLock) {
+            try {
+                writeSnapshot(options.getFsyncPolicy());
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при сохранении в файл: " + file.getPath(), e);
+            }
+        }
+    }
 
-            // Записываем задачи
-            for (Task task : tasks.values()) {
-                writer.write(csvConverter.toCsvString(task));
-                writer.newLine();
+    // Снимок формируется в памяти под монитором и атомарно записывается на диск уже без него
+    private void writeSnapshot(FsyncPolicy fsyncPolicy) throws IOException {
+        long start = System.nanoTime();
+        long bytes;
+        if (format == StorageFormat.BINARY) {
+            ByteBuffer snapshot;
+            synchronized (this) {
+                snapshot = binaryFormat.encode(tasks.values(), epics.values(), subtasks.values());
             }
-            for (Epic epic : epics.values()) {
-                writer.write(csvConverter.toCsvString(epic));
-                writer.newLine();
+            try {
+                bytes = snapshotWriter.write(snapshot, fsyncPolicy);
+            } finally {
+                binaryFormat.releaseBuffer();
+            }
+        } else {
+            CharSequence snapshot;
+            synchronized (this) {
+                snapshot = renderSnapshot();
             }
-            for (Subtask subtask : subtasks.values()) {
-                writer.write(csvConverter.toCsvString(subtask));
-                writer.newLine();
+            bytes = snapshotWriter.write(snapshot, fsyncPolicy);
+        }
+        persistenceStats.snapshotWritten(bytes, System.nanoTime() - start);
+    }
+
+    // Выгрузка в CSV для чтения человеком, независимо от формата основного снимка
+    public void exportToCsv(File target) {
+        CharSequence snapshot;
+        synchronized (this) {
+            snapshot = renderSnapshot();
+        }
+        try {
+            new SnapshotFileWriter(target.toPath()).write(snapshot, options.getFsyncPolicy());
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при выгрузке в CSV: " + target.getPath(), e);
+        }
+    }
+
+    // Замена содержимого менеджера данными из CSV с записью контрольной точки в основном формате
+    public void importFromCsv(File source) {
+        try {
+            synchronized (this) {
+                setSnapshotPublishing(false); // изменения импорта не отмечаются, версия строится заново один раз
+                try {
+                    clearEntities();
+                    new CsvStreamLoader().load(source.toPath(), this::restoreEntity);
+                    updateAllEpicStatuses();
+                    rebuildTextIndex();
+                } finally {
+                    setSnapshotPublishing(true);
+                }
             }
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при сохранении в файл: " + file.getPath(), e);
+            throw new ManagerSaveException("Ошибка при чтении файла: " + source.getPath(), e);
+        }
+        checkpoint();
+    }
+
+    private CharSequence renderSnapshot() {
+        StringBuilder builder = new StringBuilder();
+        String lineSeparator = System.lineSeparator();
+        // Записываем заголовок
+        builder.append(csvConverter.getCsvHeader()).append(lineSeparator);
+
+        // Записываем задачи
+        for (Task task : tasks.values()) {
+            csvConverter.toCsvString(task, builder).append(lineSeparator);
         }
+        for (Epic epic : epics.values()) {
+            csvConverter.toCsvString(epic, builder).append(lineSeparator);
+        }
+        for (Subtask subtask : subtasks.values()) {
+            csvConverter.toCsvString(subtask, builder).append(lineSeparator);
+        }
+        return builder;
     }
 
     // Статический метод для загрузки из файла
     public static FileBackedTaskManager loadFromFile(HistoryManager historyManager, File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(historyManager, file);
+        return loadFromFile(historyManager, file, StorageOptions.snapshot());
+    }
+
+    // Загрузка с настройками хранения: последний снимок, затем хвост журнала.
+    // Если снимок отсутствует или поврежден, используется предыдущее поколение (.bak), но в режиме
+    // журнала — только когда журнал ведется именно от него: иначе часть изменений потерялась бы
+    // без следа, и загрузка завершается ManagerSaveException. Отсутствие и снимка, и .bak — тоже ошибка
+    public static FileBackedTaskManager loadFromFile(HistoryManager historyManager, File file,
+                                                     StorageOptions options) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(historyManager, file, options);
+        manager.setSnapshotPublishing(false); // версия для снимков строится один раз после загрузки
         try {
-            List<String> lines = manager.readLinesFromFile();
-            manager.processCsvLines(lines);
+            List<String> records = manager.journal != null ? manager.journal.readRecords() : List.of();
+            manager.loadSnapshot(file.toPath(), SnapshotFileWriter.getBackupFile(file.toPath()));
+            manager.replayJournal(records);
             manager.updateAllEpicStatuses();
-            manager.updateCountId();
+            manager.rebuildTextIndex();
+            manager.setSnapshotPublishing(true);
         } catch (IOException e) {
             throw new ManagerSaveException("Ошибка при чтении файла: " + file.getPath(), e);
         }
+        if (options.isHistoryLogEnabled()) {
+            manager.restoreHistory(new HistoryLog(getHistoryFile(file), options.getFlushIntervalMillis(),
+                    options.getFsyncPolicy(), manager.persistenceStats, manager.viewHistory.getCapacity()));
+        }
         return manager;
     }
 
-    // Чтение строк из файла
-    private List<String> readLinesFromFile() throws IOException {
-        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    // Восстановление истории за O(записей журнала истории), которых после сжатия не больше
+    // двух на просмотр в истории. Задачи, удаленные до сохранения их удаления из истории, пропускаются
+    private void restoreHistory(HistoryLog log) {
+        int[] ids = log.read();
+        int[] restored = new int[ids.length];
+        int count = 0;
+        for (int id : ids) {
+            Task entity = findEntity(id);
+            if (entity != null) {
+                viewHistory.add(entity);
+                restored[count++] = id;
+            }
+        }
+        log.start(Arrays.copyOf(restored, count));
+        historyLog = log;
+    }
+
+    private void loadSnapshot(Path snapshot, Path backup) throws IOException {
+        try {
+            if (!Files.exists(snapshot)) {
+                throw new NoSuchFileException(snapshot.toString());
+            }
+            readSnapshot(snapshot);
+        } catch (IOException | RuntimeException e) {
+            if (!Files.exists(backup)) {
+                throw e;
+            }
+            if (!journalStartsAt(backup)) {
+                throw new ManagerSaveException("Снимок не прочитан, а журнал ведется не от резервного поколения "
+                        + backup + ": восстановление потеряло бы изменения", e);
+            }
+            clearEntities();
+            readSnapshot(backup);
+        }
+    }
+
+    // Журнал дополняет снимок, только если был очищен при его записи. Без журнала .bak — предыдущее
+    // полное поколение, отстающее на последнюю пачку изменений
+    private boolean journalStartsAt(Path backup) throws IOException {
+        if (journal == null) {
+            return true;
+        }
+        Long base = journal.getBaseChecksum();
+        return base != null && base == SnapshotFileWriter.checksum(backup);
+    }
+
+    private void readSnapshot(Path snapshot) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            BinarySnapshotFormat.read(snapshot, this::restoreEntity);
+        } else if (options.isParallelLoad()) {
+            loadCsvInParallel(snapshot);
+        } else {
+            new CsvStreamLoader().load(snapshot, this::restoreEntity);
+        }
+    }
+
+    // Разбор фрагментов идет в ForkJoinPool. Хранилище каждого типа заполняет одна задача: хранилища и их
+    // индексы рассчитаны на одного писателя. Связывание подзадач с эпиками начинается сразу после заполнения
+    // карты эпиков, идет параллельно с заполнением карт задач и подзадач и разбито по диапазонам id эпиков
+    private void loadCsvInParallel(Path snapshot) throws IOException {
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(ForkJoinPool.commonPool(),
+                options.getParallelChunkSize()).load(snapshot);
+        ForkJoinTask.invokeAll(
+                ForkJoinTask.adapt(() -> result.tasks.forEach(task -> tasks.put(task.getId(), task))),
+                ForkJoinTask.adapt(() -> result.subtasks.forEach(subtask -> subtasks.put(subtask.getId(), subtask))),
+                ForkJoinTask.adapt(() -> {
+                    result.epics.forEach(epic -> epics.put(epic.getId(), epic));
+                    linkSubtasksInParallel(result.subtasks);
+                }));
+        countId = Math.max(countId, result.maxId); // максимум уже найден при разборе фрагментов
+    }
+
+    // Подзадачи упорядочиваются по ключу (id эпика, позиция в файле) и делятся на диапазоны id эпиков:
+    // каждый эпик изменяется одной задачей, а подзадачи добавляются в него в порядке файла —
+    // независимо от того, в каком фрагменте оказалась строка эпика. Карта эпиков при этом только читается
+    private void linkSubtasksInParallel(List<Subtask> loaded) {
+        if (loaded.isEmpty()) {
+            return;
+        }
+        long[] order = new long[loaded.size()];
+        Arrays.parallelSetAll(order, i -> ((long) loaded.get(i).getEpicId() << 32) | i);
+        Arrays.parallelSort(order);
+        int parts = Math.min(order.length, ForkJoinPool.commonPool().getParallelism() * 4);
+        List<ForkJoinTask<?>> ranges = new ArrayList<>(parts);
+        int from = 0;
+        for (int part = 1; part <= parts; part++) {
+            int to = (int) ((long) order.length * part / parts);
+            if (to <= from) {
+                continue;
+            }
+            // Граница сдвигается к началу следующего эпика, чтобы эпик не делился между задачами
+            while (to < order.length && order[to] >> 32 == order[to - 1] >> 32) {
+                to++;
+            }
+            int start = from;
+            int end = to;
+            ranges.add(ForkJoinTask.adapt(() -> linkSubtasks(loaded, order, start, end)));
+            from = to;
+        }
+        ForkJoinTask.invokeAll(ranges);
+    }
+
+    private void linkSubtasks(List<Subtask> loaded, long[] order, int from, int to) {
+        Epic epic = null;
+        for (int i = from; i < to; i++) {
+            if (i == from || order[i] >> 32 != order[i - 1] >> 32) {
+                epic = epics.get((int) (order[i] >> 32));
+            }
+            if (epic != null) {
+                epic.addSubtask(loaded.get((int) order[i]));
+            }
+        }
+    }
+
+    // Помещает восстановленную сущность в хранилище (вставка или замена). Счетчик id растет
+    // по ходу загрузки, поэтому отдельный проход по всем сущностям после нее не нужен
+    private void restoreEntity(Task entity) {
+        countId = Math.max(countId, entity.getId());
+        if (entity instanceof Epic) {
+            Epic epic = (Epic) entity;
+            Epic previous = epics.put(epic.getId(), epic);
+            if (previous != null) {
+                // Состав подзадач в CSV не хранится, переносим его из прежней версии эпика
+                PrimitiveIterator.OfInt ids = previous.subtaskIdIterator();
+                while (ids.hasNext()) {
+                    epic.addSubtaskId(ids.nextInt());
+                }
+            }
+        } else if (entity instanceof Subtask) {
+            Subtask subtask = (Subtask) entity;
+            Subtask previous = subtasks.put(subtask.getId(), subtask);
+            // Счетчики эпика будут пересчитаны при следующем изменении или после загрузки
+            epicCounters.remove(previous != null ? previous.getEpicId() : subtask.getEpicId());
+            Epic subtaskEpic = epics.get(subtask.getEpicId());
+            if (previous == null && subtaskEpic != null) {
+                subtaskEpic.addSubtask(subtask);
+            }
+        } else {
+            tasks.put(entity.getId(), entity);
+        }
+    }
+
+    private boolean containsEntity(Task entity) {
+        if (entity instanceof Epic) {
+            return epics.containsKey(entity.getId());
+        } else if (entity instanceof Subtask) {
+            return subtasks.containsKey(entity.getId());
+        }
+        return tasks.containsKey(entity.getId());
     }
 
-    // Обработка строк CSV
-    private void processCsvLines(List<String> lines) {
-        // Пропускаем заголовок
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i);
-            if (!line.trim().isEmpty()) {
-                processCsvLine(line);
+    // Повторное применение журнала поверх загруженного снимка
+    // Записи транзакции применяются только после ее COMMIT; незавершенная транзакция в конце
+    // журнала отбрасывается
+    private void replayJournal(List<String> records) {
+        List<String> transaction = null;
+        for (String record : records) {
+            if (record.startsWith(TaskJournal.Operation.BEGIN + ",")) {
+                transaction = new ArrayList<>();
+            } else if (record.startsWith(TaskJournal.Operation.COMMIT + ",")) {
+                if (transaction != null) { // COMMIT без BEGIN: начало транзакции ушло в контрольную точку
+                    transaction.forEach(this::applyJournalRecord);
+                    transaction = null;
+                }
+            } else if (transaction != null) {
+                transaction.add(record);
+            } else {
+                applyJournalRecord(record);
             }
         }
     }
 
-    // Обработка одной строки CSV
-    private void processCsvLine(String line) {
-        String[] parts = line.split(",");
+    private void applyJournalRecord(String record) {
+        String[] parts = record.split(",", 2);
         if (parts.length < 2) {
-            throw new IllegalArgumentException("Недостаточно полей в строке CSV: " + line);
+            throw new IllegalArgumentException("Некорректная запись журнала: " + record);
+        }
+        TaskJournal.Operation operation = TaskJournal.Operation.valueOf(parts[0]);
+        switch (operation) {
+            case CREATE:
+                restoreEntity(csvConverter.fromCsvString(parts[1]));
+                break;
+            case UPDATE:
+                // Как и в InMemoryTaskManager, обновление не создает отсутствующую сущность
+                Task updated = csvConverter.fromCsvString(parts[1]);
+                if (containsEntity(updated)) {
+                    restoreEntity(updated);
+                }
+                break;
+            case DELETE:
+                String[] target = parts[1].split(",");
+                deleteEntity(TaskType.valueOf(target[0]), Integer.parseInt(target[1]));
+                break;
+            case CLEAR:
+                clearEntities(TaskType.valueOf(parts[1]));
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная операция журнала: " + operation);
         }
-        TaskType type = TaskType.valueOf(parts[1]);
+    }
+
+    // Удаление без записи в журнал
+    private void deleteEntity(TaskType type, int id) {
         switch (type) {
             case TASK:
-                Task task = csvConverter.fromCsvStringToTask(line);
-                tasks.put(task.getId(), task);
+                super.deleteTask(id);
                 break;
             case EPIC:
-                Epic epic = csvConverter.fromCsvStringToEpic(line);
-                epics.put(epic.getId(), epic);
+                super.deleteEpic(id);
                 break;
             case SUBTASK:
-                Subtask subtask = csvConverter.fromCsvStringToSubtask(line);
-                subtasks.put(subtask.getId(), subtask);
-                Epic subtaskEpic = epics.get(subtask.getEpicId());
-                if (subtaskEpic != null) {
-                    subtaskEpic.addSubtask(subtask);
-                }
+                super.deleteSubtask(id);
                 break;
             default:
                 throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
         }
     }
 
-    // Обновление статусов всех эпиков
-    private void updateAllEpicStatuses() {
-        for (Epic epic : getEpic()) {
-            updateEpicStatus(epic.getId());
+    private void clearEntities() {
+        countId = 0;
+        tasks.clear();
+        epics.clear();
+        fanOut.clear();
+        epicCounters.clear();
+        subtasks.clear();
+    }
+
+    private void clearEntities(TaskType type) {
+        switch (type) {
+            case TASK:
+                super.deleteTask();
+                break;
+            case EPIC:
+                super.deleteEpic();
+                break;
+            case SUBTASK:
+                super.deleteSubtask();
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
         }
     }
 
-    // Обновление countId
-    private void updateCountId() {
-        int maxId = 0;
-        for (Task task : getTask()) {
-            maxId = Math.max(maxId, task.getId());
+    // Обновление статусов всех эпиков; при параллельной загрузке эпики пересчитываются параллельно,
+    // каждый эпик изменяется только своей задачей, карта подзадач при этом лишь читается
+    private void updateAllEpicStatuses() {
+        if (options.isParallelLoad()) {
+            // Счетчики создаются заранее: параллельные задачи только читают карту счетчиков
+            for (Integer epicId : epics.keySet()) {
+                epicCounters.putIfAbsent(epicId, new EpicStatusCounter());
+            }
+            epics.values().parallelStream().forEach(epic -> recountEpicStatus(epic.getId()));
+            epics.rebuildIndex();
+            for (Epic epic : epics.values()) {
+                fanOut.update(epic.getId(), epic.getSubtaskCount());
+            }
+            return;
         }
         for (Epic epic : getEpic()) {
-            maxId = Math.max(maxId, epic.getId());
-        }
-        for (Subtask subtask : getSubtask()) {
-            maxId = Math.max(maxId, subtask.getId());
+            updateEpicStatus(epic.getId());
         }
-        countId = maxId;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,8 @@
+package kanbanboard.manager.task;
+
+// Как принудительно сбрасывать записанные данные на диск
+public enum FsyncPolicy {
+    NONE, // не вызывать fsync, полагаться на кэш ОС
+    DATA, // сбрасывать только содержимое файла
+    FULL  // сбрасывать содержимое, метаданные и каталог после переименования снимка
+}
@@ -0,0 +1,316 @@
+package kanbanboard.manager.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Журнал истории просмотров: строка VIEW,<id> на просмотр и REMOVE,<id> на удаление из истории.
+// Вызовы viewed/removed только кладут событие в очередь — диск на пути getTask не трогается.
+// Фоновый поток kanban-history раз в интервал дописывает накопленные события одной записью и ведет
+// модель истории (порядок id); когда записей становится заметно больше, чем id в модели, файл
+// атомарно переписывается по модели. Модель вытесняет самый давний просмотр при превышении
+// capacity, как и история менеджера, поэтому размер файла, а с ним и время восстановления,
+// ограничен размером истории, а не числом просмотров или различных задач
+public class HistoryLog implements AutoCloseable {
+    public enum Operation {
+        VIEW,
+        REMOVE
+    }
+
+    // Сжатие, когда записей больше COMPACT_FACTOR * размер модели + MIN_COMPACT_RECORDS
+    private static final int COMPACT_FACTOR = 2;
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final File file;
+    private final long flushIntervalNanos;
+    private final FsyncPolicy fsyncPolicy;
+    private final SnapshotFileWriter compactor;
+    private final PersistenceStats stats;
+    // Просмотр — id, удаление — -id (id задач положительны)
+    private final Queue<Integer> events = new ConcurrentLinkedQueue<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final LinkedHashSet<Integer> model = new LinkedHashSet<>(); // только для потока записи
+    private final int capacity;
+    private FileChannel channel;     // только для потока записи; открывается при первой записи
+    private int recordCount;         // записей в файле
+    private Thread thread;
+
+    // Счетчик записанных событий защищен монитором this, флаги читаются и без него
+    private long persisted;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    public HistoryLog(File file, long flushIntervalMillis, FsyncPolicy fsyncPolicy) {
+        this(file, flushIntervalMillis, fsyncPolicy, new PersistenceStats(), Integer.MAX_VALUE);
+    }
+
+    // stats — общая статистика записи менеджера, в которую учитываются и записи истории;
+    // capacity — размер истории менеджера (HistoryManager.getCapacity())
+    public HistoryLog(File file, long flushIntervalMillis, FsyncPolicy fsyncPolicy, PersistenceStats stats,
+                      int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.stats = stats;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.fsyncPolicy = fsyncPolicy;
+        this.compactor = new SnapshotFileWriter(file.toPath());
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Формирование записей
+    public static String viewedRecord(int id) {
+        return Operation.VIEW + "," + id;
+    }
+
+    public static String removedRecord(int id) {
+        return Operation.REMOVE + "," + id;
+    }
+
+    // Читает файл и возвращает id истории от давних просмотров к последним; отсутствующий файл —
+    // пустая история. Повторный просмотр переносит id в конец, как и в InMemoryHistoryManager
+    public int[] read() {
+        model.clear();
+        recordCount = 0;
+        if (!file.exists()) {
+            return new int[0];
+        }
+        try {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Некорректная запись истории: " + line);
+                }
+                int id = Integer.parseInt(parts[1]);
+                model.remove(id);
+                if (Operation.valueOf(parts[0]) == Operation.VIEW) {
+                    view(id);
+                }
+                recordCount++;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении истории: " + file.getPath(), e);
+        }
+        return model.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Запускает фоновую запись. restoredIds — история, фактически восстановленная в менеджере
+    // (без задач, удаленных до загрузки); если она короче файла, файл будет сжат первым же проходом
+    public synchronized void start(int[] restoredIds) {
+        if (thread != null) {
+            throw new IllegalStateException("Журнал истории уже запущен");
+        }
+        model.clear();
+        for (int id : restoredIds) {
+            view(id);
+        }
+        thread = new Thread(this::runWriter, "kanban-history");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void viewed(int id) {
+        enqueue(id);
+    }
+
+    public void removed(int id) {
+        enqueue(-id);
+    }
+
+    // Без блокировок и без ожидания потока записи; после сбоя записи события отбрасываются,
+    // а ошибка сообщается из flush() и close()
+    private void enqueue(int event) {
+        if (failure != null || closed) {
+            return;
+        }
+        events.add(event);
+        submitted.incrementAndGet();
+    }
+
+    // Ждет, пока все переданные ранее события окажутся в файле
+    public void flush() {
+        long target = submitted.get();
+        synchronized (this) {
+            if (thread == null) {
+                return;
+            }
+            LockSupport.unpark(thread);
+            try {
+                while (persisted < target && failure == null && thread.isAlive()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Прервано ожидание записи истории", e);
+            }
+            checkFailure();
+        }
+    }
+
+    // Дописывает накопленные события, останавливает поток записи и закрывает файл
+    @Override
+    public void close() {
+        Thread writer;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writer = thread;
+        }
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeChannel();
+        synchronized (this) {
+            checkFailure();
+        }
+    }
+
+    private void runWriter() {
+        StringBuilder batch = new StringBuilder();
+        try {
+            if (recordCount > compactLimit()) {
+                compact();
+            }
+            while (true) {
+                boolean stopping = closed; // после закрытия дописываются уже переданные события
+                int count = drainTo(batch);
+                if (count > 0) {
+                    append(batch, count);
+                    batch.setLength(0);
+                    if (recordCount > compactLimit()) {
+                        compact();
+                    }
+                    synchronized (this) {
+                        persisted += count;
+                        notifyAll();
+                    }
+                } else if (stopping) {
+                    return;
+                } else {
+                    LockSupport.parkNanos(flushIntervalNanos);
+                }
+            }
+        } catch (IOException e) {
+            fail(new ManagerSaveException("Ошибка записи истории: " + file.getPath(), e));
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            synchronized (this) {
+                notifyAll(); // flush() не должен ждать остановившийся поток
+            }
+        }
+    }
+
+    // Переносит события из очереди в пачку записей и применяет их к модели
+    private int drainTo(StringBuilder batch) {
+        int count = 0;
+        Integer event;
+        while ((event = events.poll()) != null) {
+            int id = Math.abs(event);
+            model.remove(id);
+            if (event > 0) {
+                view(id);
+                batch.append(viewedRecord(id));
+            } else {
+                batch.append(removedRecord(id));
+            }
+            batch.append(System.lineSeparator());
+            count++;
+        }
+        return count;
+    }
+
+    // Просмотр в модели: id переносится в конец, самый давний вытесняется при переполнении
+    private void view(int id) {
+        model.add(id);
+        if (model.size() > capacity) {
+            Iterator<Integer> eldest = model.iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void append(CharSequence batch, int count) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsyncPolicy == FsyncPolicy.DATA) {
+            channel.force(false);
+        } else if (fsyncPolicy == FsyncPolicy.FULL) {
+            channel.force(true);
+        }
+        recordCount += count;
+        stats.written(buffer.capacity());
+    }
+
+    private int compactLimit() {
+        return COMPACT_FACTOR * model.size() + MIN_COMPACT_RECORDS;
+    }
+
+    // Атомарная замена файла записями VIEW по модели; дописывание продолжится в новый файл
+    private void compact() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int id : model) {
+            content.append(viewedRecord(id)).append(System.lineSeparator());
+        }
+        closeChannel();
+        stats.written(compactor.write(content, fsyncPolicy));
+        recordCount = model.size();
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                fail(new ManagerSaveException("Ошибка при закрытии истории: " + file.getPath(), e));
+            }
+            channel = null;
+        }
+    }
+
+    private synchronized void fail(RuntimeException e) {
+        if (failure == null) {
+            failure = e;
+        }
+        events.clear();
+        notifyAll();
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new ManagerSaveException("Не удалось сохранить историю просмотров", failure);
+        }
+    }
+}
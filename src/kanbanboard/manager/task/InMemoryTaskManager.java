@@ -1,13 +1,26 @@
 package kanbanboard.manager.task;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import kanbanboard.manager.event.ChangeType;
+import kanbanboard.manager.event.TaskEventBus;
 import kanbanboard.manager.history.HistoryManager;
+import kanbanboard.manager.search.TextIndex;
 import kanbanboard.model.*;
+import kanbanboard.util.EntityStore;
+import kanbanboard.util.EntityStoreType;
+import kanbanboard.util.IntOrderedSet;
 
 public class InMemoryTaskManager implements TaskManager {
+    private static final int PARALLEL_INDEX_THRESHOLD = 10_000;
+
     protected int countId = 0;
 
     protected int getCountId() {
@@ -17,12 +30,60 @@ public class InMemoryTaskManager implements TaskManager {
     protected final HistoryManager viewHistory;
 
     //Структуры для хранения задач
-    protected final HashMap<Integer, Task> tasks = new HashMap<>();
-    protected final HashMap<Integer, Epic> epics = new HashMap<>();
-    protected final HashMap<Integer, Subtask> subtasks = new HashMap<>();
+    protected final IndexedEntityStore<Task> tasks;
+    protected final IndexedEntityStore<Epic> epics;
+    protected final IndexedEntityStore<Subtask> subtasks;
+
+    // Счетчики статусов подзадач по id эпика
+    protected final EntityStore<EpicStatusCounter> epicCounters;
+
+    // Наибольшее число подзадач в эпике; обновляется вместе с индексом статусов эпиков
+    protected final EpicFanOut fanOut = new EpicFanOut();
+
+    // Полнотекстовый индекс по заголовкам и описаниям всех задач
+    protected final TextIndex textIndex = new TextIndex();
+
+    // Шина событий об изменениях; null — события не публикуются
+    private TaskEventBus eventBus;
+
+    // Операции с историей и события, отложенные до фиксации транзакции; null вне транзакции
+    private List<Runnable> deferred;
+
+    // Режим проверки: каждый статус, полученный по счетчикам, сверяется с полным пересчетом
+    private boolean verifyEpicStatus = Boolean.getBoolean("kanbanboard.verifyEpicStatus");
 
     public InMemoryTaskManager(HistoryManager viewHistory) {
+        this(viewHistory, EntityStoreType.HASH);
+    }
+
+    public InMemoryTaskManager(HistoryManager viewHistory, EntityStoreType storeType) {
         this.viewHistory = viewHistory;
+        this.tasks = new IndexedEntityStore<>(storeType.create(), Task::new);
+        this.epics = new IndexedEntityStore<>(storeType.create(), Epic::new);
+        this.subtasks = new IndexedEntityStore<>(storeType.create(), Subtask::new);
+        this.epicCounters = storeType.create();
+        viewHistory.bindResolver(this::findEntity);
+    }
+
+    public void setVerifyEpicStatus(boolean verifyEpicStatus) {
+        this.verifyEpicStatus = verifyEpicStatus;
+    }
+
+    // События публикуются изнутри изменений, поэтому шина получает их от одного потока за раз
+    public void setEventBus(TaskEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    // Поиск задачи любого типа по id без записи в историю
+    protected Task findEntity(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        if (task == null) {
+            task = subtasks.get(id);
+        }
+        return task;
     }
 
 
@@ -30,6 +91,8 @@ public class InMemoryTaskManager implements TaskManager {
     public Task createTask(Task task) {
         task.setId(getCountId());
         tasks.put(task.getId(), task);
+        textIndex.put(task.getId(), task.getTitle(), task.getDescription());
+        emit(ChangeType.CREATED, TaskType.TASK, task.getId(), 0, null, task.getStatus());
         return task;
     }
 
@@ -37,7 +100,11 @@ public class InMemoryTaskManager implements TaskManager {
     public Epic createEpic(Epic epic) {
         epic.setId(getCountId());
         epics.put(epic.getId(), epic);
-        updateEpicStatus(epic.getId());
+        textIndex.put(epic.getId(), epic.getTitle(), epic.getDescription());
+        recountEpicStatus(epic.getId());
+        epics.reindex(epic.getId());
+        fanOut.update(epic.getId(), epic.getSubtaskCount());
+        emit(ChangeType.CREATED, TaskType.EPIC, epic.getId(), 0, null, epic.getStatus());
         return epic;
     }
 
@@ -49,11 +116,101 @@ public class InMemoryTaskManager implements TaskManager {
         }
         subtask.setId(getCountId());
         subtasks.put(subtask.getId(), subtask);
-        epics.get(subtask.getEpicId()).addSubtask(subtask);
-        updateEpicStatus(subtask.getEpicId());
+        textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+        epicForUpdate(subtask.getEpicId()).addSubtask(subtask);
+        emit(ChangeType.CREATED, TaskType.SUBTASK, subtask.getId(), subtask.getEpicId(), null, subtask.getStatus());
+        countSubtask(subtask.getEpicId(), subtask.getStatus());
         return subtask;
     }
 
+    @Override
+    public ArrayList<Task> createTasks(Collection<? extends Task> batch) {
+        ArrayList<Task> created = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            task.setId(getCountId());
+            tasks.put(task.getId(), task);
+            textIndex.put(task.getId(), task.getTitle(), task.getDescription());
+            emit(ChangeType.CREATED, TaskType.TASK, task.getId(), 0, null, task.getStatus());
+            created.add(task);
+        }
+        return created;
+    }
+
+    @Override
+    public ArrayList<Subtask> createSubtasks(Collection<? extends Subtask> batch) {
+        for (Subtask subtask : batch) {
+            if (!epics.containsKey(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Эпик " + subtask.getEpicId() + " не найден");
+            }
+        }
+        ArrayList<Subtask> created = new ArrayList<>(batch.size());
+        IntOrderedSet affectedEpics = new IntOrderedSet();
+        for (Subtask subtask : batch) {
+            subtask.setId(getCountId());
+            subtasks.put(subtask.getId(), subtask);
+            textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+            epicForUpdate(subtask.getEpicId()).addSubtask(subtask);
+            emit(ChangeType.CREATED, TaskType.SUBTASK, subtask.getId(), subtask.getEpicId(), null, subtask.getStatus());
+            countWithoutApply(subtask.getEpicId(), subtask.getStatus());
+            affectedEpics.add(subtask.getEpicId());
+            created.add(subtask);
+        }
+        applyEpicStatuses(affectedEpics);
+        return created;
+    }
+
+    @Override
+    public ArrayList<Subtask> updateSubtasks(Collection<? extends Subtask> batch) {
+        for (Subtask subtask : batch) {
+            if (!subtasks.containsKey(subtask.getId())) {
+                throw new IllegalArgumentException("Подзадача " + subtask.getId() + " не найдена");
+            }
+        }
+        ArrayList<Subtask> updated = new ArrayList<>(batch.size());
+        IntOrderedSet affectedEpics = new IntOrderedSet();
+        for (Subtask subtask : batch) {
+            Status oldStatus = subtasks.indexedStatus(subtask.getId());
+            Subtask previous = subtasks.replace(subtask.getId(), subtask);
+            textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+            emit(ChangeType.UPDATED, TaskType.SUBTASK, subtask.getId(), previous.getEpicId(), oldStatus,
+                    subtask.getStatus());
+            changeWithoutApply(previous.getEpicId(), oldStatus, subtask.getStatus());
+            affectedEpics.add(previous.getEpicId());
+            updated.add(subtask);
+        }
+        applyEpicStatuses(affectedEpics);
+        return updated;
+    }
+
+    @Override
+    public void deleteByIds(Collection<Integer> ids) {
+        IntOrderedSet affectedEpics = new IntOrderedSet();
+        for (int id : ids) {
+            // Переопределяемые deleteTask/deleteEpic не вызываются: наследник сохраняет пачку целиком
+            if (tasks.containsKey(id)) {
+                removeTask(id);
+            } else if (epics.containsKey(id)) {
+                removeEpic(id);
+            } else {
+                Status oldStatus = subtasks.indexedStatus(id);
+                Subtask subtask = subtasks.remove(id);
+                if (subtask != null) {
+                    textIndex.remove(id);
+                    int epicId = subtask.getEpicId();
+                    emit(ChangeType.DELETED, TaskType.SUBTASK, id, epicId, oldStatus, null);
+                    epicForUpdate(epicId).removeSubtask(id);
+                    EpicStatusCounter counter = epicCounters.get(epicId);
+                    if (counter != null) {
+                        counter.remove(oldStatus);
+                    }
+                    affectedEpics.add(epicId);
+                    removeFromHistory(id); // Удаляем подзадачу из истории
+                }
+            }
+        }
+        applyEpicStatuses(affectedEpics); // эпики, удаленные позже в той же пачке, пропускаются
+    }
+
     @Override
     public ArrayList<Task> getTask() {
         return new ArrayList<>(tasks.values());
@@ -69,13 +226,269 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(subtasks.values());
     }
 
+    // Изменения применяются сразу, а хранилища при первом изменении id сохраняют копию прежнего
+    // значения: откат стоит O(затронутых сущностей) и не зависит от публикации версий для снимков
+    @Override
+    public <T> T inTransaction(Function<? super TaskManager, T> work) {
+        if (deferred != null) {
+            return work.apply(this);
+        }
+        int savedCountId = countId;
+        deferred = new ArrayList<>();
+        tasks.beginTransaction();
+        epics.beginTransaction();
+        subtasks.beginTransaction();
+        T result;
+        try {
+            result = work.apply(this);
+        } catch (RuntimeException | Error e) {
+            rollbackTransaction(savedCountId);
+            throw e;
+        }
+        tasks.commitTransaction();
+        epics.commitTransaction();
+        subtasks.commitTransaction();
+        List<Runnable> changes = deferred;
+        deferred = null;
+        for (Runnable change : changes) {
+            change.run();
+        }
+        return result;
+    }
+
+    private void rollbackTransaction(int savedCountId) {
+        deferred = null;
+        countId = savedCountId;
+        int[][] touched = {tasks.rollbackTransaction(), epics.rollbackTransaction(), subtasks.rollbackTransaction()};
+        for (int[] ids : touched) {
+            for (int id : ids) {
+                Task entity = findEntity(id);
+                if (entity == null) {
+                    textIndex.remove(id);
+                } else {
+                    textIndex.put(id, entity.getTitle(), entity.getDescription());
+                }
+                if (entity instanceof Epic) {
+                    fanOut.update(id, ((Epic) entity).getSubtaskCount());
+                } else if (entity == null) {
+                    fanOut.remove(id);
+                }
+            }
+        }
+        // Счетчики менялись на месте, возможно и прерванной операцией; без счетчика статус эпика
+        // при следующем изменении пересчитывается полностью
+        epicCounters.clear();
+    }
+
+    // Эпик, статус или состав подзадач которого меняется на месте: хранилище сохраняет его прежнюю
+    // копию для отката транзакции
+    private Epic epicForUpdate(int epicId) {
+        epics.touch(epicId);
+        return epics.get(epicId);
+    }
+
+    private void addToHistory(Task task) {
+        if (deferred != null) {
+            deferred.add(() -> recordView(task));
+        } else {
+            recordView(task);
+        }
+    }
+
+    private void removeFromHistory(int id) {
+        if (deferred != null) {
+            deferred.add(() -> recordRemoval(id));
+        } else {
+            recordRemoval(id);
+        }
+    }
+
+    // Применение изменения к истории просмотров; наследник может дополнительно сохранять его
+    protected void recordView(Task task) {
+        viewHistory.add(task);
+    }
+
+    protected void recordRemoval(int id) {
+        viewHistory.remove(id);
+    }
+
+    // Событие об изменении; внутри транзакции публикуется только при ее фиксации
+    private void emit(ChangeType changeType, TaskType taskType, int id, int epicId,
+                      Status oldStatus, Status newStatus) {
+        TaskEventBus bus = eventBus;
+        if (bus == null) {
+            return;
+        }
+        if (deferred != null) {
+            deferred.add(() -> bus.publish(changeType, taskType, id, epicId, oldStatus, newStatus));
+        } else {
+            bus.publish(changeType, taskType, id, epicId, oldStatus, newStatus);
+        }
+    }
+
+    // Хранилища копируют в опубликованные версии только сущности, измененные после прошлого снимка,
+    // поэтому снимок собирается за O(изменений), а изменения без снимков ничего не копируют.
+    // Версии удерживают только снимки: когда все снимки освобождены, следующий строится за O(n)
+    @Override
+    public TaskSnapshot snapshot() {
+        return new TaskSnapshot(tasks.published(), epics.published(), subtasks.published(),
+                tasks.version() + epics.version() + subtasks.version());
+    }
+
+    // Отключение публикации на время массовой загрузки; после включения версии строятся заново за O(n)
+    protected void setSnapshotPublishing(boolean enabled) {
+        tasks.setPublishing(enabled);
+        epics.setPublishing(enabled);
+        subtasks.setPublishing(enabled);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasksOfEpic(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return Stream.empty();
+        }
+        return StreamSupport.intStream(epic.subtaskIdSpliterator(), false)
+                .mapToObj(subtasks::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public ArrayList<Task> getTaskPage(int afterId, int limit) {
+        return tasks.page(afterId, limit);
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicPage(int afterId, int limit) {
+        return epics.page(afterId, limit);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtaskPage(int afterId, int limit) {
+        return subtasks.page(afterId, limit);
+    }
+
+    @Override
+    public ArrayList<Task> getTaskRange(int fromId, int toId) {
+        return tasks.range(fromId, toId);
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicRange(int fromId, int toId) {
+        return epics.range(fromId, toId);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtaskRange(int fromId, int toId) {
+        return subtasks.range(fromId, toId);
+    }
+
+    @Override
+    public ArrayList<Task> getTasksByStatus(Status status) {
+        return tasks.getByStatus(status);
+    }
+
+    @Override
+    public ArrayList<Epic> getEpicsByStatus(Status status) {
+        return epics.getByStatus(status);
+    }
+
+    @Override
+    public ArrayList<Subtask> getSubtasksByStatus(Status status) {
+        return subtasks.getByStatus(status);
+    }
+
+    @Override
+    public ArrayList<Task> getByStatus(Status status) {
+        ArrayList<Task> result = new ArrayList<>(tasks.count(status) + epics.count(status)
+                + subtasks.count(status));
+        result.addAll(tasks.getByStatus(status));
+        result.addAll(epics.getByStatus(status));
+        result.addAll(subtasks.getByStatus(status));
+        return result;
+    }
+
+    @Override
+    public int count(TaskType type) {
+        return storeOf(type).size();
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return storeOf(type).count(status);
+    }
+
+    @Override
+    public int largestEpicFanOut() {
+        return fanOut.largest();
+    }
+
+    private IndexedEntityStore<? extends Task> storeOf(TaskType type) {
+        switch (type) {
+            case TASK:
+                return tasks;
+            case EPIC:
+                return epics;
+            case SUBTASK:
+                return subtasks;
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+
+    // Полнотекстовый поиск по заголовкам и описаниям задач всех типов, лучшие совпадения первыми.
+    // Как и выборки по статусу, не добавляет найденное в историю просмотров
+    public List<Task> search(String query, int limit) {
+        int[] ids = textIndex.search(query, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(findEntity(id));
+        }
+        return result;
+    }
+
+    // Перестроение полнотекстового индекса по текущему содержимому хранилищ;
+    // на больших досках разбор текста и построение словаря идут параллельно
+    protected void rebuildTextIndex() {
+        int count = tasks.size() + epics.size() + subtasks.size();
+        int[] ids = new int[count];
+        String[] titles = new String[count];
+        String[] descriptions = new String[count];
+        int i = 0;
+        for (IndexedEntityStore<? extends Task> store : List.of(tasks, epics, subtasks)) {
+            for (int id : store.keySet()) {
+                Task entity = store.get(id);
+                ids[i] = id;
+                titles[i] = entity.getTitle();
+                descriptions[i] = entity.getDescription();
+                i++;
+            }
+        }
+        textIndex.rebuild(ids, titles, descriptions, count >= PARALLEL_INDEX_THRESHOLD);
+    }
+
     @Override
     public Task getTask(int id) {
         Task task = tasks.get(id); // Считываем значение один раз
         if (task == null) {        // Проверяем, существует ли задача
             return null;
         }
-        viewHistory.add(task);     // Используем сохраненное значение
+        addToHistory(task);        // Используем сохраненное значение
         return task;               // Возвращаем сохраненное значение
     }
 
@@ -85,7 +498,7 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             return null;
         }
-        viewHistory.add(epic);
+        addToHistory(epic);
         return epic;
     }
 
@@ -95,14 +508,18 @@ public class InMemoryTaskManager implements TaskManager {
         if (subtask == null) {
             return null;
         }
-        viewHistory.add(subtask);
+        addToHistory(subtask);
         return subtask;
     }
 
 
     @Override
     public Task updateTask(Task task) {
-        tasks.replace(task.getId(), task);
+        Status oldStatus = tasks.indexedStatus(task.getId());
+        if (tasks.replace(task.getId(), task) != null) {
+            textIndex.put(task.getId(), task.getTitle(), task.getDescription());
+            emit(ChangeType.UPDATED, TaskType.TASK, task.getId(), 0, oldStatus, task.getStatus());
+        }
         return task;
     }
 
@@ -111,7 +528,11 @@ public class InMemoryTaskManager implements TaskManager {
         if (!epics.containsKey(epic.getId())) {
             return null;
         }
+        Status oldStatus = epics.indexedStatus(epic.getId());
         epics.replace(epic.getId(), epic);
+        fanOut.update(epic.getId(), epic.getSubtaskCount());
+        textIndex.put(epic.getId(), epic.getTitle(), epic.getDescription());
+        emit(ChangeType.UPDATED, TaskType.EPIC, epic.getId(), 0, oldStatus, epic.getStatus());
         return epic;
     }
 
@@ -120,28 +541,53 @@ public class InMemoryTaskManager implements TaskManager {
         if (!subtasks.containsKey(subtask.getId())) {
             return null;
         }
-        subtasks.replace(subtask.getId(), subtask);
-        updateEpicStatus(subtask.getEpicId());
+        Status oldStatus = subtasks.indexedStatus(subtask.getId());
+        Subtask previous = subtasks.replace(subtask.getId(), subtask);
+        textIndex.put(subtask.getId(), subtask.getTitle(), subtask.getDescription());
+        emit(ChangeType.UPDATED, TaskType.SUBTASK, subtask.getId(), previous.getEpicId(), oldStatus,
+                subtask.getStatus());
+        // Подзадача учтена в том эпике, в списке которого она состоит, со статусом из индекса
+        changeSubtask(previous.getEpicId(), oldStatus, subtask.getStatus());
         return subtask;
     }
 
 
     @Override
     public void deleteTask(int id) {
-        tasks.remove(id);
-        viewHistory.remove(id); // Удаляем из истории
+        removeTask(id);
     }
 
     @Override
     public void deleteEpic(int id) {
+        removeEpic(id);
+    }
+
+    private void removeTask(int id) {
+        Status oldStatus = tasks.indexedStatus(id);
+        if (tasks.remove(id) != null) {
+            textIndex.remove(id);
+            emit(ChangeType.DELETED, TaskType.TASK, id, 0, oldStatus, null);
+        }
+        removeFromHistory(id); // Удаляем из истории
+    }
+
+    private void removeEpic(int id) {
         Epic epic = epics.get(id);
         if (epic != null) {
-            for (int taskId : epic.getSubtasksIds()) {
+            PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+            while (ids.hasNext()) {
+                int taskId = ids.nextInt();
+                emit(ChangeType.DELETED, TaskType.SUBTASK, taskId, id, subtasks.indexedStatus(taskId), null);
                 subtasks.remove(taskId);
-                viewHistory.remove(taskId); // Удаляем подзадачи из истории
+                textIndex.remove(taskId);
+                removeFromHistory(taskId); // Удаляем подзадачи из истории
             }
+            emit(ChangeType.DELETED, TaskType.EPIC, id, 0, epics.indexedStatus(id), null);
             epics.remove(id);
-            viewHistory.remove(id); // Удаляем эпик из истории
+            fanOut.remove(id);
+            textIndex.remove(id);
+            epicCounters.remove(id);
+            removeFromHistory(id); // Удаляем эпик из истории
         }
     }
 
@@ -150,56 +596,75 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask subtask = subtasks.get(id);
         if (subtask != null) {
             int epicId = subtask.getEpicId();
+            Status oldStatus = subtasks.indexedStatus(id);
+            emit(ChangeType.DELETED, TaskType.SUBTASK, id, epicId, oldStatus, null);
             subtasks.remove(id);
-            epics.get(epicId).removeSubtask(id);
-            updateEpicStatus(epicId);
-            viewHistory.remove(id); // Удаляем подзадачу из истории
+            textIndex.remove(id);
+            epicForUpdate(epicId).removeSubtask(id);
+            uncountSubtask(epicId, oldStatus);
+            removeFromHistory(id); // Удаляем подзадачу из истории
         }
     }
 
     @Override
     public void deleteTask() {
+        textIndex.removeAll(tasks.keySet());
         for (Integer id : tasks.keySet()) {
-            viewHistory.remove(id); // Удаляем все задачи из истории
+            emit(ChangeType.DELETED, TaskType.TASK, id, 0, tasks.indexedStatus(id), null);
+            removeFromHistory(id); // Удаляем все задачи из истории
         }
         tasks.clear();
     }
 
     @Override
     public void deleteEpic() {
+        textIndex.removeAll(epics.keySet());
+        textIndex.removeAll(subtasks.keySet()); // в том числе подзадачи, оставшиеся без эпика
         for (Epic epic : epics.values()) {
-            for (Integer taskId : epic.getSubtasksIds()) {
+            PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+            while (ids.hasNext()) {
+                int taskId = ids.nextInt();
+                emit(ChangeType.DELETED, TaskType.SUBTASK, taskId, epic.getId(), subtasks.indexedStatus(taskId), null);
                 subtasks.remove(taskId);
-                viewHistory.remove(taskId); // Удаляем подзадачи из истории
+                removeFromHistory(taskId); // Удаляем подзадачи из истории
             }
-            viewHistory.remove(epic.getId()); // Удаляем эпик из истории
+            emit(ChangeType.DELETED, TaskType.EPIC, epic.getId(), 0, epics.indexedStatus(epic.getId()), null);
+            removeFromHistory(epic.getId()); // Удаляем эпик из истории
         }
         epics.clear();
+        fanOut.clear();
+        epicCounters.clear();
         subtasks.clear();
     }
 
     @Override
     public void deleteSubtask() {
+        textIndex.removeAll(subtasks.keySet());
         for (Integer id : subtasks.keySet()) {
-            viewHistory.remove(id); // Удаляем подзадачи из истории
+            emit(ChangeType.DELETED, TaskType.SUBTASK, id, subtasks.get(id).getEpicId(), subtasks.indexedStatus(id),
+                    null);
+            removeFromHistory(id); // Удаляем подзадачи из истории
         }
         subtasks.clear();
         for (int i : epics.keySet()) {
-            epics.get(i).removeSubtaskAll();
+            epicForUpdate(i).removeSubtaskAll();
             updateEpicStatus(i);
         }
     }
 
     @Override
     public ArrayList<Subtask> getAllSubtasksOfEpic(int id) {
-        ArrayList<Subtask> subtasksOfEpic = new ArrayList<>();
-        for (int taskId : epics.get(id).getSubtasksIds()) {
+        Epic epic = epics.get(id);
+        ArrayList<Subtask> subtasksOfEpic = new ArrayList<>(epic.getSubtaskCount());
+        PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+        while (ids.hasNext()) {
+            int taskId = ids.nextInt();
             subtasksOfEpic.add(subtasks.get(taskId));
         }
         return subtasksOfEpic;
     }
 
-    private Status calculateEpicStatus(ArrayList<Subtask> epicSubtasks) {
+    static Status calculateEpicStatus(List<Subtask> epicSubtasks) {
         if (epicSubtasks.isEmpty()) {
             return Status.NEW;
         }
@@ -225,15 +690,135 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    // Полный пересчет счетчиков эпика за O(подзадач): при создании, загрузке и массовых изменениях
     protected void updateEpicStatus(int epicId) {
-        ArrayList<Subtask> epicSubtasks = getAllSubtasksOfEpic(epicId);
-        Status epicStatus = calculateEpicStatus(epicSubtasks);
-        epics.get(epicId).setStatus(epicStatus);
+        recountEpicStatus(epicId);
+        reindexEpic(epicId);
+    }
+
+    // Пересчет без обновления индекса статусов: эпики можно пересчитывать параллельно,
+    // после чего индекс перестраивается один раз. Подзадачи учитываются со статусами из индекса,
+    // как и при последующих изменениях
+    protected void recountEpicStatus(int epicId) {
+        Epic epic = epicForUpdate(epicId);
+        EpicStatusCounter counter = epicCounters.get(epicId);
+        if (counter == null) {
+            counter = new EpicStatusCounter();
+            epicCounters.put(epicId, counter);
+        }
+        counter.clear();
+        PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+        while (ids.hasNext()) {
+            int taskId = ids.nextInt();
+            if (subtasks.containsKey(taskId)) {
+                counter.add(subtasks.indexedStatus(taskId));
+            }
+        }
+        epic.setStatus(counter.getStatus());
+    }
+
+    // Учитывают созданную, измененную или удаленную подзадачу за O(1); oldStatus — статус,
+    // под которым подзадача была в индексе. Без счетчика эпик пересчитывается полностью
+    private void countSubtask(int epicId, Status status) {
+        EpicStatusCounter counter = epicCounters.get(epicId);
+        if (counter == null) {
+            updateEpicStatus(epicId);
+            return;
+        }
+        counter.add(status);
+        applyEpicStatus(epicId, counter);
+    }
+
+    private void changeSubtask(int epicId, Status oldStatus, Status status) {
+        EpicStatusCounter counter = epicCounters.get(epicId);
+        if (counter == null) {
+            updateEpicStatus(epicId);
+            return;
+        }
+        counter.change(oldStatus, status);
+        applyEpicStatus(epicId, counter);
+    }
+
+    private void uncountSubtask(int epicId, Status oldStatus) {
+        EpicStatusCounter counter = epicCounters.get(epicId);
+        if (counter == null) {
+            updateEpicStatus(epicId);
+            return;
+        }
+        counter.remove(oldStatus);
+        applyEpicStatus(epicId, counter);
+    }
+
+    // Учитывают подзадачу в счетчике без обновления статуса эпика: для массовых операций,
+    // после которых статус каждого эпика публикуется один раз через applyEpicStatuses
+    private void countWithoutApply(int epicId, Status status) {
+        EpicStatusCounter counter = epicCounters.get(epicId);
+        if (counter != null) {
+            counter.add(status);
+        }
+    }
+
+    private void changeWithoutApply(int epicId, Status oldStatus, Status status) {
+        EpicStatusCounter counter = epicCounters.get(epicId);
+        if (counter != null) {
+            counter.change(oldStatus, status);
+        }
+    }
+
+    private void applyEpicStatuses(IntOrderedSet epicIds) {
+        PrimitiveIterator.OfInt ids = epicIds.iterator();
+        while (ids.hasNext()) {
+            int epicId = ids.nextInt();
+            if (!epics.containsKey(epicId)) {
+                continue;
+            }
+            EpicStatusCounter counter = epicCounters.get(epicId);
+            if (counter == null) {
+                updateEpicStatus(epicId); // счетчика нет — полный пересчет учтет всю пачку
+            } else {
+                applyEpicStatus(epicId, counter);
+            }
+        }
+    }
+
+    private void applyEpicStatus(int epicId, EpicStatusCounter counter) {
+        Status status = counter.getStatus();
+        if (verifyEpicStatus) {
+            Status expected = calculateEpicStatus(getAllSubtasksOfEpic(epicId));
+            if (status != expected) {
+                throw new IllegalStateException("Счетчики эпика " + epicId + " дают статус " + status
+                        + ", полный пересчет — " + expected);
+            }
+        }
+        epicForUpdate(epicId).setStatus(status);
+        reindexEpic(epicId);
+    }
+
+    // Обновляет индекс статусов эпика, статус которого уже изменен на месте, и сообщает о переходе
+    private void reindexEpic(int epicId) {
+        Status oldStatus = epics.indexedStatus(epicId);
+        epics.reindex(epicId);
+        Epic epic = epics.get(epicId);
+        fanOut.update(epicId, epic.getSubtaskCount());
+        Status newStatus = epic.getStatus();
+        if (oldStatus != newStatus) {
+            emit(ChangeType.UPDATED, TaskType.EPIC, epicId, 0, oldStatus, newStatus);
+        }
     }
 
     public List<Task> getHistory() {
         return viewHistory.getHistory();
     }
+
+    @Override
+    public List<Task> getHistory(int lastN) {
+        return viewHistory.getHistory(lastN);
+    }
+
+    @Override
+    public long getHistoryVersion() {
+        return viewHistory.getVersion();
+    }
 }
 
 
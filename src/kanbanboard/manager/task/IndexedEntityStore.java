@@ -0,0 +1,430 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.Status;
+import kanbanboard.model.Task;
+import kanbanboard.util.EntityStore;
+import kanbanboard.util.HashEntityStore;
+import kanbanboard.util.IntOrderedSet;
+import kanbanboard.util.IntSortedSet;
+import kanbanboard.util.PersistentIntMap;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Хранилище сущностей с индексами:
+// - упорядоченное множество id: обход values()/keySet() и постраничные выборки идут по возрастанию id;
+// - по статусу: для каждого статуса — множество id в порядке индексации.
+// Индексы обновляются при каждом put/replace/remove, поэтому код, работающий с хранилищем напрямую
+// (например, загрузка FileBackedTaskManager), поддерживает их автоматически.
+// - опубликованная версия (если задан copier): неизменяемое PersistentIntMap с копиями сущностей
+//   для снимков менеджера. Версия обновляется лениво: изменения только отмечают id, а published()
+//   копирует отмеченные сущности за O(измененных id), поэтому без снимков изменения ничего не копируют.
+//   Хранилище держит версию слабой ссылкой: когда ни один снимок на нее не ссылается, копии
+//   освобождаются, а следующая публикация строит версию заново.
+// - журнал отката транзакции: копия прежнего значения id при первом его изменении в транзакции.
+// Сущность, изменяемую на месте без записи в хранилище (статус, состав подзадач эпика),
+// нужно отметить touch до изменения и учесть вызовом reindex после него
+public class IndexedEntityStore<T extends Task> implements EntityStore<T> {
+    private static final Status[] STATUSES = Status.values();
+
+    private final EntityStore<T> delegate;
+    private final IntSortedSet orderedIds = new IntSortedSet();
+    private final IntOrderedSet[] byStatus = new IntOrderedSet[STATUSES.length];
+    private final UnaryOperator<T> copier;
+    private WeakReference<PersistentIntMap<T>> published = new WeakReference<>(PersistentIntMap.empty());
+    private boolean publishing;
+    private PersistentIntMap<T> pinned; // версия, удерживаемая, пока публикация отключена
+    // id, измененные после последней публикации; при stale версия строится заново целиком,
+    // а id не отмечаются: так отметки не растут больше половины хранилища и не ведутся,
+    // пока опубликованная версия освобождена
+    private IntOrderedSet changed = new IntOrderedSet();
+    private boolean stale;
+    private long version; // число публикаций; только растет
+    // Транзакция: id, затронутые с ее начала, и копии их значений до первого изменения
+    // (id без копии отсутствовал); null вне транзакции
+    private IntOrderedSet touched;
+    private EntityStore<T> undo;
+
+    public IndexedEntityStore(EntityStore<T> delegate) {
+        this(delegate, null);
+    }
+
+    // copier делает копию сущности для опубликованной версии; null — версия не ведется
+    public IndexedEntityStore(EntityStore<T> delegate, UnaryOperator<T> copier) {
+        this.delegate = delegate;
+        this.copier = copier;
+        this.publishing = copier != null;
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new IntOrderedSet();
+        }
+    }
+
+    @Override
+    public T get(int id) {
+        return delegate.get(id);
+    }
+
+    @Override
+    public boolean containsKey(int id) {
+        return delegate.containsKey(id);
+    }
+
+    @Override
+    public T put(int id, T value) {
+        touch(id);
+        T previous = delegate.put(id, value);
+        if (previous == null) {
+            orderedIds.add(id);
+        }
+        index(id, value.getStatus());
+        markChanged(id);
+        return previous;
+    }
+
+    @Override
+    public T putIfAbsent(int id, T value) {
+        touch(id);
+        T previous = delegate.putIfAbsent(id, value);
+        if (previous == null) {
+            orderedIds.add(id);
+            index(id, value.getStatus());
+            markChanged(id);
+        }
+        return previous;
+    }
+
+    @Override
+    public T replace(int id, T value) {
+        touch(id);
+        T previous = delegate.replace(id, value);
+        if (previous != null) {
+            index(id, value.getStatus());
+            markChanged(id);
+        }
+        return previous;
+    }
+
+    @Override
+    public T remove(int id) {
+        touch(id);
+        T previous = delegate.remove(id);
+        if (previous != null) {
+            orderedIds.remove(id);
+            index(id, null);
+            markChanged(id);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (touched != null) {
+            PrimitiveIterator.OfInt ids = orderedIds.iterator();
+            while (ids.hasNext()) {
+                touch(ids.nextInt());
+            }
+        }
+        delegate.clear();
+        orderedIds.clear();
+        for (IntOrderedSet ids : byStatus) {
+            ids.clear();
+        }
+        markStale();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    // Представления только для чтения в порядке возрастания id
+    @Override
+    public Collection<T> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                PrimitiveIterator.OfInt ids = orderedIds.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return ids.hasNext();
+                    }
+
+                    @Override
+                    public T next() {
+                        return delegate.get(ids.nextInt());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return delegate.size();
+            }
+        };
+    }
+
+    // Поток по снимку id на момент вызова, по возрастанию id, без копирования сущностей.
+    // Сущность читается из хранилища при обходе: удаленные после создания потока пропускаются,
+    // измененные возвращаются в актуальном виде. Изменять хранилище во время обхода можно
+    public Stream<T> stream() {
+        return StreamSupport.intStream(orderedIds.spliterator(), false)
+                .mapToObj(delegate::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return orderedIds.iterator();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && delegate.containsKey((Integer) o);
+            }
+
+            @Override
+            public int size() {
+                return delegate.size();
+            }
+        };
+    }
+
+    // До limit сущностей с id больше afterId по возрастанию id; затрагивает только возвращаемые записи
+    public ArrayList<T> page(int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+        ArrayList<T> result = new ArrayList<>(Math.min(limit, delegate.size()));
+        if (afterId == Integer.MAX_VALUE) {
+            return result;
+        }
+        PrimitiveIterator.OfInt ids = orderedIds.iteratorFrom(afterId + 1);
+        while (ids.hasNext() && result.size() < limit) {
+            result.add(delegate.get(ids.nextInt()));
+        }
+        return result;
+    }
+
+    // Сущности с id от fromId до toId включительно по возрастанию id
+    public ArrayList<T> range(int fromId, int toId) {
+        ArrayList<T> result = new ArrayList<>();
+        PrimitiveIterator.OfInt ids = orderedIds.iteratorFrom(fromId);
+        while (ids.hasNext()) {
+            int id = ids.nextInt();
+            if (id > toId) {
+                break;
+            }
+            result.add(delegate.get(id));
+        }
+        return result;
+    }
+
+    // Учитывает изменение сущности на месте, без записи в хранилище
+    public void reindex(int id) {
+        touch(id);
+        T value = delegate.get(id);
+        if (value != null) {
+            index(id, value.getStatus());
+            markChanged(id);
+        }
+    }
+
+    // Версия с текущим состоянием хранилища; не меняется при последующих изменениях.
+    // Публикует изменения, накопленные с прошлого вызова. Пока публикация отключена,
+    // возвращает версию, опубликованную до отключения
+    public PersistentIntMap<T> published() {
+        if (!publishing) {
+            return pinned != null ? pinned : PersistentIntMap.empty();
+        }
+        return publishChanges();
+    }
+
+    // Число публикаций; актуально после published()
+    public long version() {
+        return version;
+    }
+
+    // Массовая загрузка: изменения не отмечаются, а после включения версия строится заново за O(n).
+    // Пока публикация отключена, снимки видят версию до загрузки
+    public void setPublishing(boolean enabled) {
+        if (copier == null || enabled == publishing) {
+            return;
+        }
+        publishing = enabled;
+        pinned = enabled ? null : published.get();
+        markStale();
+    }
+
+    // Начало транзакции: дальнейшие изменения можно откатить к текущему состоянию.
+    // Ничего не копирует: журнал отката заполняется по мере изменений
+    public void beginTransaction() {
+        if (copier == null) {
+            throw new IllegalStateException("Транзакции требуют копирования сущностей");
+        }
+        touched = new IntOrderedSet();
+        undo = new HashEntityStore<>();
+    }
+
+    public void commitTransaction() {
+        touched = null;
+        undo = null;
+    }
+
+    // Возвращает затронутые сущности к значениям до начала транзакции за O(затронутых id).
+    // Возвращает затронутые id
+    public int[] rollbackTransaction() {
+        EntityStore<T> previousValues = undo;
+        int[] ids = touched.toArray();
+        commitTransaction();
+        for (int id : ids) {
+            T previous = previousValues.get(id);
+            if (previous == null) {
+                remove(id);
+            } else {
+                put(id, previous);
+            }
+        }
+        return ids;
+    }
+
+    // Отмечает сущность перед изменением: при первом изменении в транзакции сохраняет копию
+    // ее прежнего значения для отката. Изменение на месте нужно отметить до него
+    public void touch(int id) {
+        if (touched != null && touched.add(id)) {
+            T previous = delegate.get(id);
+            if (previous != null) {
+                undo.put(id, copier.apply(previous));
+            }
+        }
+    }
+
+    private void markChanged(int id) {
+        if (!publishing || stale) {
+            return;
+        }
+        if (published.get() == null) {
+            markStale(); // версию уже не читает ни один снимок: следующая публикация построит ее заново
+            return;
+        }
+        changed.add(id);
+        if (changed.size() > delegate.size() / 2) {
+            markStale();
+        }
+    }
+
+    private void markStale() {
+        stale = true;
+        changed = new IntOrderedSet();
+    }
+
+    // Копирует в версию сущности, измененные после прошлой публикации, или строит ее заново.
+    // Освобожденная версия без изменений строится заново под прежним номером
+    private PersistentIntMap<T> publishChanges() {
+        PersistentIntMap<T> current = published.get();
+        if (stale || current == null) {
+            if (stale || !changed.isEmpty()) {
+                version++;
+            }
+            current = republish();
+            stale = false;
+            changed = new IntOrderedSet();
+        } else if (!changed.isEmpty()) {
+            PrimitiveIterator.OfInt ids = changed.iterator();
+            while (ids.hasNext()) {
+                int id = ids.nextInt();
+                T value = delegate.get(id);
+                current = value == null ? current.remove(id) : current.put(id, copier.apply(value));
+            }
+            changed = new IntOrderedSet();
+            version++;
+            published = new WeakReference<>(current);
+        }
+        return current;
+    }
+
+    private PersistentIntMap<T> republish() {
+        int[] ids = new int[delegate.size()];
+        @SuppressWarnings("unchecked")
+        T[] copies = (T[]) new Task[ids.length];
+        int count = 0;
+        PrimitiveIterator.OfInt iterator = orderedIds.iterator();
+        while (iterator.hasNext()) {
+            int id = iterator.nextInt();
+            ids[count] = id;
+            copies[count++] = copier.apply(delegate.get(id));
+        }
+        PersistentIntMap<T> current = PersistentIntMap.fromSorted(ids, copies, count);
+        published = new WeakReference<>(current);
+        return current;
+    }
+
+    // Полное перестроение индекса статусов за O(сущностей)
+    public void rebuildIndex() {
+        for (IntOrderedSet ids : byStatus) {
+            ids.clear();
+        }
+        for (int id : delegate.keySet()) { // id сущности мог быть изменен снаружи, берем ключ хранилища
+            Status status = delegate.get(id).getStatus();
+            if (status != null) {
+                byStatus[status.ordinal()].add(id);
+            }
+        }
+    }
+
+    // Статус, под которым сущность учтена в индексе: прежний статус, даже если объект уже изменен
+    // на месте; null, если сущности нет или ее статус не задан
+    public Status indexedStatus(int id) {
+        for (Status status : STATUSES) {
+            if (byStatus[status.ordinal()].contains(id)) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    public int count(Status status) {
+        return byStatus[status.ordinal()].size();
+    }
+
+    // Сущности с заданным статусом за O(результата)
+    public ArrayList<T> getByStatus(Status status) {
+        IntOrderedSet ids = byStatus[status.ordinal()];
+        ArrayList<T> result = new ArrayList<>(ids.size());
+        PrimitiveIterator.OfInt iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            result.add(delegate.get(iterator.nextInt()));
+        }
+        return result;
+    }
+
+    // status == null — исключить id из индекса
+    private void index(int id, Status status) {
+        for (Status other : STATUSES) {
+            if (other != status) {
+                byStatus[other.ordinal()].remove(id);
+            }
+        }
+        if (status != null) {
+            byStatus[status.ordinal()].add(id);
+        }
+    }
+}
@@ -1,9 +1,7 @@
 package kanbanboard.manager.task;
 
-import java.io.IOException;
-
 public class ManagerSaveException extends RuntimeException {
-    public ManagerSaveException(String message, IOException e) {
-        super(message);
+    public ManagerSaveException(String message, Throwable cause) {
+        super(message, cause);
     }
 }
@@ -0,0 +1,202 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.Epic;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Параллельная загрузка CSV-снимка: файл делится на фрагменты по границам строк,
+// фрагменты разбираются в ForkJoinPool, результаты склеиваются в порядке следования в файле.
+// Связи подзадач с эпиками здесь не устанавливаются: эпик может оказаться в другом фрагменте.
+public class ParallelCsvLoader {
+    public static final int DEFAULT_MIN_CHUNK_SIZE = 1 << 20;
+    // Фрагмент читается в один массив: целевой размер ограничен, чтобы фрагмент вместе с хвостом
+    // последней строки гарантированно помещался в int
+    static final int MAX_CHUNK_SIZE = 1 << 28;
+    private static final int SCAN_BLOCK_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int minChunkSize;
+
+    public ParallelCsvLoader(ForkJoinPool pool, int minChunkSize) {
+        if (minChunkSize <= 0) {
+            throw new IllegalArgumentException("Размер фрагмента должен быть положительным: " + minChunkSize);
+        }
+        this.pool = pool;
+        this.minChunkSize = minChunkSize;
+    }
+
+    // Сущности каждого типа в порядке файла и максимальный id
+    public static class Result {
+        public final List<Task> tasks;
+        public final List<Epic> epics;
+        public final List<Subtask> subtasks;
+        public final int maxId;
+
+        Result(List<Task> tasks, List<Epic> epics, List<Subtask> subtasks, int maxId) {
+            this.tasks = tasks;
+            this.epics = epics;
+            this.subtasks = subtasks;
+            this.maxId = maxId;
+        }
+    }
+
+    public Result load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = splitAtLines(channel);
+            Chunk[] chunks = new Chunk[bounds.length - 1];
+            try {
+                pool.invoke(new ParseTask(channel, bounds, chunks, 0, chunks.length));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return merge(chunks);
+        }
+    }
+
+    // Границы фрагментов: первый начинается после заголовка, каждый следующий — после '\n'
+    private long[] splitAtLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long firstRow = indexOfNewline(channel, 0, size) + 1;
+        if (firstRow == 0) {
+            return new long[]{size}; // только заголовок или пустой файл
+        }
+        long target = Math.min(MAX_CHUNK_SIZE, Math.max(minChunkSize, size / (pool.getParallelism() * 4L)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(firstRow);
+        long position = firstRow;
+        while (position + target < size) {
+            long newline = indexOfNewline(channel, position + target, size);
+            if (newline < 0) {
+                break;
+            }
+            position = newline + 1;
+            bounds.add(position);
+        }
+        if (position < size) {
+            bounds.add(size);
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long indexOfNewline(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        long position = from;
+        while (position < size) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+
+    private static Result merge(Chunk[] chunks) {
+        int taskCount = 0;
+        int epicCount = 0;
+        int subtaskCount = 0;
+        int maxId = 0;
+        for (Chunk chunk : chunks) {
+            taskCount += chunk.tasks.size();
+            epicCount += chunk.epics.size();
+            subtaskCount += chunk.subtasks.size();
+            maxId = Math.max(maxId, chunk.maxId);
+        }
+        List<Task> tasks = new ArrayList<>(taskCount);
+        List<Epic> epics = new ArrayList<>(epicCount);
+        List<Subtask> subtasks = new ArrayList<>(subtaskCount);
+        for (Chunk chunk : chunks) {
+            tasks.addAll(chunk.tasks);
+            epics.addAll(chunk.epics);
+            subtasks.addAll(chunk.subtasks);
+        }
+        return new Result(tasks, epics, subtasks, maxId);
+    }
+
+    // Результат разбора одного фрагмента
+    private static class Chunk {
+        final List<Task> tasks = new ArrayList<>();
+        final List<Epic> epics = new ArrayList<>();
+        final List<Subtask> subtasks = new ArrayList<>();
+        int maxId;
+
+        void add(Task entity) {
+            if (entity instanceof Epic) {
+                epics.add((Epic) entity);
+            } else if (entity instanceof Subtask) {
+                subtasks.add((Subtask) entity);
+            } else {
+                tasks.add(entity);
+            }
+            maxId = Math.max(maxId, entity.getId());
+        }
+    }
+
+    private static class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final Chunk[] chunks;
+        private final int from;
+        private final int to;
+
+        ParseTask(FileChannel channel, long[] bounds, Chunk[] chunks, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(channel, bounds, chunks, from, middle),
+                        new ParseTask(channel, bounds, chunks, middle, to));
+            } else if (to - from == 1) {
+                try {
+                    chunks[from] = parse(bounds[from], bounds[from + 1]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private Chunk parse(long start, long end) throws IOException {
+            // Строка длиннее 2 ГБ в один фрагмент не помещается
+            ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(end - start));
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes, start + bytes.position()) < 0) {
+                    break;
+                }
+            }
+            Chunk chunk = new Chunk();
+            InputStreamReader reader = new InputStreamReader(
+                    new ByteArrayInputStream(bytes.array(), 0, bytes.position()), StandardCharsets.UTF_8);
+            new CsvStreamLoader().load(reader, chunk::add, false);
+            return chunk;
+        }
+    }
+}
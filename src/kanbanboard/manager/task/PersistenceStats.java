@@ -0,0 +1,56 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Статистика записи FileBackedTaskManager на диск: байты и число записей (сбросов) снимков,
+// журнала изменений и журнала истории, длительности записи снимков и пачек журнала.
+// Обновляется потоками записи, читается без блокировок
+public final class PersistenceStats {
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder snapshotCount = new LongAdder();
+    private final LatencyHistogram snapshotLatency = new LatencyHistogram();
+    private final LatencyHistogram journalLatency = new LatencyHistogram();
+
+    // Все байты, записанные в файлы снимка и журналов
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    // Число операций записи на диск: снимков и пачек журналов
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.sum();
+    }
+
+    // Полные снимки: save(), контрольные точки и запись в режиме снимка
+    public LatencyHistogram getSnapshotLatency() {
+        return snapshotLatency;
+    }
+
+    // Дописывание пачки записей в журнал изменений
+    public LatencyHistogram getJournalLatency() {
+        return journalLatency;
+    }
+
+    void snapshotWritten(long bytes, long nanos) {
+        snapshotCount.increment();
+        snapshotLatency.record(nanos);
+        written(bytes);
+    }
+
+    void journalWritten(long bytes, long nanos) {
+        journalLatency.record(nanos);
+        written(bytes);
+    }
+
+    void written(long bytes) {
+        bytesWritten.add(bytes);
+        flushCount.increment();
+    }
+}
@@ -0,0 +1,179 @@
+package kanbanboard.manager.task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Атомарная запись снимка: данные пишутся во временный файл рядом с целевым,
+// сбрасываются на диск согласно FsyncPolicy и переименованием заменяют оригинал.
+// Предыдущее поколение снимка сохраняется в файле .bak.
+// Для каждого записанного снимка вычисляется CRC32: по ней журнал узнает, от какого поколения ведется.
+// Экземпляр не потокобезопасен: буфер и кодировщик переиспользуются между записями.
+public class SnapshotFileWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path temp;
+    private final Path backup;
+    private final ByteBuffer buffer;
+    private final CharsetEncoder encoder;
+    private final CRC32 crc = new CRC32();
+    private long lastChecksum;
+
+    public SnapshotFileWriter(Path target) {
+        this.target = target;
+        this.temp = getTempFile(target);
+        this.backup = getBackupFile(target);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.encoder = StandardCharsets.UTF_8.newEncoder();
+    }
+
+    public static Path getTempFile(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    public static Path getBackupFile(Path target) {
+        return target.resolveSibling(target.getFileName() + ".bak");
+    }
+
+    // CRC32 содержимого последнего записанного снимка
+    public long getLastChecksum() {
+        return lastChecksum;
+    }
+
+    // CRC32 файла снимка, в том же виде, что и getLastChecksum()
+    public static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    // Текстовый снимок, кодируется в UTF-8; возвращает размер записанного файла в байтах
+    public long write(CharSequence content, FsyncPolicy fsyncPolicy) throws IOException {
+        long written;
+        crc.reset();
+        try (FileChannel channel = openTemp()) {
+            encodeTo(channel, CharBuffer.wrap(content));
+            force(channel, fsyncPolicy);
+            written = channel.position();
+        }
+        replaceTarget(fsyncPolicy);
+        return written;
+    }
+
+    // Двоичный снимок, записывается от position до limit
+    public long write(ByteBuffer content, FsyncPolicy fsyncPolicy) throws IOException {
+        long written;
+        crc.reset();
+        crc.update(content.duplicate());
+        try (FileChannel channel = openTemp()) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            force(channel, fsyncPolicy);
+            written = channel.position();
+        }
+        replaceTarget(fsyncPolicy);
+        return written;
+    }
+
+    private FileChannel openTemp() throws IOException {
+        return FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void replaceTarget(FsyncPolicy fsyncPolicy) throws IOException {
+        lastChecksum = crc.getValue();
+        keepPreviousGeneration();
+        moveIntoPlace();
+        if (fsyncPolicy == FsyncPolicy.FULL) {
+            forceDirectory();
+        }
+    }
+
+    // Кодирует символы в UTF-8 через переиспользуемый буфер и пишет их в канал
+    private void encodeTo(FileChannel channel, CharBuffer chars) throws IOException {
+        encoder.reset();
+        buffer.clear();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            drainTo(channel);
+        } while (result.isOverflow());
+        do {
+            result = encoder.flush(buffer);
+            drainTo(channel);
+        } while (result.isOverflow());
+    }
+
+    private void drainTo(FileChannel channel) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void force(FileChannel channel, FsyncPolicy fsyncPolicy) throws IOException {
+        if (fsyncPolicy == FsyncPolicy.DATA) {
+            channel.force(false);
+        } else if (fsyncPolicy == FsyncPolicy.FULL) {
+            channel.force(true);
+        }
+    }
+
+    // Текущий снимок становится резервным: жесткая ссылка, а если ФС их не поддерживает — копия
+    private void keepPreviousGeneration() throws IOException {
+        if (!Files.exists(target)) {
+            return;
+        }
+        Files.deleteIfExists(backup);
+        try {
+            Files.createLink(backup, target);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(target, backup, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void moveIntoPlace() throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Фиксирует переименование; на платформах без fsync каталогов (Windows) пропускается
+    private void forceDirectory() {
+        Path directory = target.toAbsolutePath().getParent();
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Каталог нельзя открыть как канал — переименование все равно уже выполнено
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package kanbanboard.manager.task;
+
+import java.io.File;
+
+// Формат файла снимка
+public enum StorageFormat {
+    CSV,
+    BINARY;
+
+    public static final String BINARY_EXTENSION = ".bin";
+
+    // Формат по расширению: *.bin — двоичный, остальные — CSV
+    public static StorageFormat forFile(File file) {
+        return file.getName().endsWith(BINARY_EXTENSION) ? BINARY : CSV;
+    }
+}
@@ -0,0 +1,166 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.util.EntityStoreType;
+
+import java.io.File;
+
+// Настройки хранения для FileBackedTaskManager
+public class StorageOptions {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private boolean journalEnabled = false;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private DurabilityMode durabilityMode = DurabilityMode.WRITE_THROUGH;
+    private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private FsyncPolicy fsyncPolicy; // null — определяется режимом записи
+    private StorageFormat format;    // null — определяется расширением файла
+    private boolean parallelLoad = false;
+    private int parallelChunkSize = ParallelCsvLoader.DEFAULT_MIN_CHUNK_SIZE;
+    private EntityStoreType entityStoreType = EntityStoreType.HASH;
+    private boolean historyLogEnabled = false;
+
+    // Режим по умолчанию: полный снимок CSV после каждого изменения
+    public static StorageOptions snapshot() {
+        return new StorageOptions();
+    }
+
+    // Режим журнала: каждое изменение дописывается в журнал,
+    // полный снимок пишется раз в checkpointInterval записей
+    public static StorageOptions journal(int checkpointInterval) {
+        return new StorageOptions().withJournal(checkpointInterval);
+    }
+
+    public StorageOptions withJournal(int checkpointInterval) {
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Интервал контрольной точки должен быть положительным: "
+                    + checkpointInterval);
+        }
+        this.journalEnabled = true;
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    public StorageOptions withDurability(DurabilityMode durabilityMode) {
+        if (durabilityMode == null) {
+            throw new IllegalArgumentException("Режим записи не задан");
+        }
+        this.durabilityMode = durabilityMode;
+        return this;
+    }
+
+    // Интервал фоновой записи для режима PERIODIC
+    public StorageOptions withFlushInterval(long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Интервал записи должен быть положительным: " + flushIntervalMillis);
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+        return this;
+    }
+
+    // Емкость очереди фоновой записи; при заполнении изменяющие вызовы ждут writer
+    public StorageOptions withQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Емкость очереди должна быть положительной: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public StorageOptions withFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        if (fsyncPolicy == null) {
+            throw new IllegalArgumentException("Политика fsync не задана");
+        }
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    public StorageOptions withFormat(StorageFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("Формат снимка не задан");
+        }
+        this.format = format;
+        return this;
+    }
+
+    // Параллельная загрузка CSV-снимка в ForkJoinPool.commonPool()
+    public StorageOptions withParallelLoad() {
+        return withParallelLoad(ParallelCsvLoader.DEFAULT_MIN_CHUNK_SIZE);
+    }
+
+    // minChunkSize — минимальный размер фрагмента файла в байтах, обрабатываемого одной задачей
+    public StorageOptions withParallelLoad(int minChunkSize) {
+        if (minChunkSize <= 0) {
+            throw new IllegalArgumentException("Размер фрагмента должен быть положительным: " + minChunkSize);
+        }
+        this.parallelLoad = true;
+        this.parallelChunkSize = minChunkSize;
+        return this;
+    }
+
+    // Реализация хранилища сущностей в памяти
+    public StorageOptions withEntityStore(EntityStoreType entityStoreType) {
+        if (entityStoreType == null) {
+            throw new IllegalArgumentException("Тип хранилища не задан");
+        }
+        this.entityStoreType = entityStoreType;
+        return this;
+    }
+
+    // Сохранение истории просмотров в отдельный журнал с фоновой записью и восстановление при загрузке
+    public StorageOptions withHistoryLog() {
+        this.historyLogEnabled = true;
+        return this;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public boolean isHistoryLogEnabled() {
+        return historyLogEnabled;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public boolean isParallelLoad() {
+        return parallelLoad;
+    }
+
+    public int getParallelChunkSize() {
+        return parallelChunkSize;
+    }
+
+    public EntityStoreType getEntityStoreType() {
+        return entityStoreType;
+    }
+
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    // Если политика не задана явно: WRITE_THROUGH пишет без fsync, остальные режимы — с полным fsync
+    public FsyncPolicy getFsyncPolicy() {
+        if (fsyncPolicy != null) {
+            return fsyncPolicy;
+        }
+        return durabilityMode == DurabilityMode.WRITE_THROUGH ? FsyncPolicy.NONE : FsyncPolicy.FULL;
+    }
+
+    // Явно заданный формат или формат по расширению файла
+    public StorageFormat getFormat(File file) {
+        return format != null ? format : StorageFormat.forFile(file);
+    }
+}
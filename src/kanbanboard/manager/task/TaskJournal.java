@@ -0,0 +1,152 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Журнал изменений: одна строка на каждую операцию, файл только дописывается
+public class TaskJournal {
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE,
+        CLEAR,
+        BEGIN,  // начало транзакции: записи до COMMIT применяются только вместе
+        COMMIT,
+        BASE    // первая запись после контрольной точки: контрольная сумма снимка, от которого ведется журнал
+    }
+
+    private final File file;
+    private int recordCount;
+    private Long baseChecksum;   // null, если журнал не содержит записи BASE
+    private FileChannel channel; // открывается при первой записи
+
+    public TaskJournal(File file) {
+        this.file = file;
+        this.recordCount = 0;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Количество записей, накопленных после последней контрольной точки
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    // Контрольная сумма снимка, после записи которого журнал был очищен; null, если неизвестна.
+    // Заполняется при чтении журнала
+    public Long getBaseChecksum() {
+        return baseChecksum;
+    }
+
+    // Формирование записей журнала
+    public static String created(String csvLine) {
+        return Operation.CREATE + "," + csvLine;
+    }
+
+    public static String updated(String csvLine) {
+        return Operation.UPDATE + "," + csvLine;
+    }
+
+    public static String deleted(TaskType type, int id) {
+        return Operation.DELETE + "," + type + "," + id;
+    }
+
+    public static String cleared(TaskType type) {
+        return Operation.CLEAR + "," + type;
+    }
+
+    public static String begun(long transactionId) {
+        return Operation.BEGIN + "," + transactionId;
+    }
+
+    public static String committed(long transactionId) {
+        return Operation.COMMIT + "," + transactionId;
+    }
+
+    // Дописывает пачку записей в конец журнала одной операцией записи; возвращает число байт
+    public int append(List<String> records, FsyncPolicy fsyncPolicy) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (String record : records) {
+            builder.append(record).append(System.lineSeparator());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+        FileChannel out = getChannel();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        force(out, fsyncPolicy);
+        recordCount += records.size();
+        return buffer.capacity();
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    // Читает все записи журнала, кроме BASE; отсутствующий журнал считается пустым
+    public List<String> readRecords() {
+        baseChecksum = null;
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try {
+            List<String> records = new ArrayList<>();
+            String basePrefix = Operation.BASE + ",";
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.startsWith(basePrefix)) {
+                    baseChecksum = Long.parseLong(line.substring(basePrefix.length()));
+                } else if (!line.isBlank()) {
+                    records.add(line);
+                }
+            }
+            recordCount = records.size();
+            return records;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала: " + file.getPath(), e);
+        }
+    }
+
+    // Очищает журнал после записи контрольной точки и отмечает, от какого снимка он ведется
+    public void truncate(long snapshotChecksum, FsyncPolicy fsyncPolicy) throws IOException {
+        FileChannel out = getChannel();
+        out.truncate(0);
+        ByteBuffer base = ByteBuffer.wrap((Operation.BASE + "," + snapshotChecksum + System.lineSeparator())
+                .getBytes(StandardCharsets.UTF_8));
+        while (base.hasRemaining()) {
+            out.write(base);
+        }
+        force(out, fsyncPolicy);
+        recordCount = 0;
+        baseChecksum = snapshotChecksum;
+    }
+
+    private void force(FileChannel out, FsyncPolicy fsyncPolicy) throws IOException {
+        if (fsyncPolicy == FsyncPolicy.DATA) {
+            out.force(false);
+        } else if (fsyncPolicy == FsyncPolicy.FULL) {
+            out.force(true);
+        }
+    }
+
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
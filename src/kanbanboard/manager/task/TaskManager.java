@@ -1,11 +1,17 @@
 package kanbanboard.manager.task;
 
 import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
 import kanbanboard.model.Subtask;
 import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public interface TaskManager {
 
@@ -15,12 +21,96 @@ public interface TaskManager {
 
     Subtask createSubtask(Subtask subtask);
 
+    // Массовые операции: вся пачка проверяется до изменений, статус каждого затронутого эпика
+    // пересчитывается один раз, FileBackedTaskManager сохраняет пачку одной записью на диск.
+    // Возвращают созданные или обновленные задачи в порядке пачки
+    ArrayList<Task> createTasks(Collection<? extends Task> tasks);
+
+    // IllegalArgumentException, если эпика какой-либо подзадачи нет; тогда не создается ничего
+    ArrayList<Subtask> createSubtasks(Collection<? extends Subtask> subtasks);
+
+    // IllegalArgumentException, если какой-либо подзадачи нет; тогда не обновляется ничего
+    ArrayList<Subtask> updateSubtasks(Collection<? extends Subtask> subtasks);
+
+    // Удаление задач любого типа по id (эпики — вместе с подзадачами); отсутствующие id пропускаются
+    void deleteByIds(Collection<Integer> ids);
+
     ArrayList<Task> getTask();
 
     ArrayList<Epic> getEpic();
 
     ArrayList<Subtask> getSubtask();
 
+    // Выполняет work как одну транзакцию: если work завершается исключением, все ее изменения
+    // откатываются и исключение пробрасывается дальше. Изменения истории просмотров применяются
+    // только при фиксации. Вложенный вызов становится частью внешней транзакции
+    <T> T inTransaction(Function<? super TaskManager, T> work);
+
+    // Неизменяемый согласованный снимок всех задач на момент вызова. Снимок собирает сущности,
+    // измененные после предыдущего снимка, поэтому вызывается по тем же правилам многопоточности,
+    // что и изменения менеджера. Чтение снимка не блокирует изменения и не видит их;
+    // неизмененные части разделяются между версиями
+    TaskSnapshot snapshot();
+
+    // Потоки без копирования списков, по возрастанию id. Набор id фиксируется при создании потока
+    // (в ConcurrentTaskManager — слабо согласован, как обход ConcurrentHashMap), сущности читаются
+    // при обходе: удаленные к этому моменту пропускаются, поэтому менять задачи во время обхода безопасно.
+    // Потоки можно делать параллельными для больших агрегаций.
+    // Обход, как и getTask(), не попадает в историю просмотров
+    Stream<Task> streamTasks();
+
+    Stream<Epic> streamEpics();
+
+    Stream<Subtask> streamSubtasks();
+
+    // Подзадачи эпика в порядке добавления; пустой поток, если эпика нет
+    Stream<Subtask> streamSubtasksOfEpic(int epicId);
+
+    default void forEachTask(Consumer<? super Task> action) {
+        streamTasks().forEach(action);
+    }
+
+    default void forEachEpic(Consumer<? super Epic> action) {
+        streamEpics().forEach(action);
+    }
+
+    default void forEachSubtask(Consumer<? super Subtask> action) {
+        streamSubtasks().forEach(action);
+    }
+
+    // Постраничные выборки по возрастанию id: до limit записей с id больше afterId.
+    // Первая страница — afterId = 0, следующая — id последней записи предыдущей страницы
+    ArrayList<Task> getTaskPage(int afterId, int limit);
+
+    ArrayList<Epic> getEpicPage(int afterId, int limit);
+
+    ArrayList<Subtask> getSubtaskPage(int afterId, int limit);
+
+    // Записи с id от fromId до toId включительно по возрастанию id
+    ArrayList<Task> getTaskRange(int fromId, int toId);
+
+    ArrayList<Epic> getEpicRange(int fromId, int toId);
+
+    ArrayList<Subtask> getSubtaskRange(int fromId, int toId);
+
+    // Выборки по статусу через индекс: стоимость пропорциональна размеру результата
+    ArrayList<Task> getTasksByStatus(Status status);
+
+    ArrayList<Epic> getEpicsByStatus(Status status);
+
+    ArrayList<Subtask> getSubtasksByStatus(Status status);
+
+    // Задачи всех типов с заданным статусом
+    ArrayList<Task> getByStatus(Status status);
+
+    int count(TaskType type);
+
+    int countByStatus(TaskType type, Status status);
+
+    // Наибольшее число подзадач в одном эпике за O(1): значение поддерживается при изменениях,
+    // его чтение не меняет состояние менеджера и допустимо из любого потока (может слегка отставать)
+    int largestEpicFanOut();
+
     Task getTask(int id);
 
     Epic getEpic(int id);
@@ -47,5 +137,12 @@ public interface TaskManager {
 
     ArrayList<Subtask> getAllSubtasksOfEpic(int id);
 
+    // Неизменяемый список просмотров; пока история не меняется, повторный вызов не копирует ее
     List<Task> getHistory();
+
+    // Последние lastN просмотров в порядке истории
+    List<Task> getHistory(int lastN);
+
+    // Номер версии истории: пока он не изменился, перечитывать историю не нужно
+    long getHistoryVersion();
 }
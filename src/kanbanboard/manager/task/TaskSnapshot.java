@@ -0,0 +1,103 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.Epic;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
+import kanbanboard.util.PersistentIntMap;
+
+import java.util.ArrayList;
+import java.util.PrimitiveIterator;
+import java.util.stream.Stream;
+
+// Согласованное состояние менеджера на момент вызова TaskManager.snapshot().
+// Снимок неизменяем: последующие изменения менеджера публикуют новые версии, не затрагивая эту,
+// поэтому снимок можно читать сколько угодно долго из любого потока без блокировок.
+// Сущности снимка — копии, общие для всех его читателей; изменять их нельзя.
+// Чтение снимка не попадает в историю просмотров
+public final class TaskSnapshot {
+    private final PersistentIntMap<Task> tasks;
+    private final PersistentIntMap<Epic> epics;
+    private final PersistentIntMap<Subtask> subtasks;
+    private final long version;
+
+    TaskSnapshot(PersistentIntMap<Task> tasks, PersistentIntMap<Epic> epics,
+                 PersistentIntMap<Subtask> subtasks, long version) {
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.version = version;
+    }
+
+    // Версии хранилищ: менеджер строит по ним следующий снимок
+    PersistentIntMap<Task> taskMap() {
+        return tasks;
+    }
+
+    PersistentIntMap<Epic> epicMap() {
+        return epics;
+    }
+
+    PersistentIntMap<Subtask> subtaskMap() {
+        return subtasks;
+    }
+
+    // Номер версии: у более позднего снимка того же менеджера он не меньше, у равных снимков совпадает
+    public long getVersion() {
+        return version;
+    }
+
+    public Task getTask(int id) {
+        return tasks.get(id);
+    }
+
+    public Epic getEpic(int id) {
+        return epics.get(id);
+    }
+
+    public Subtask getSubtask(int id) {
+        return subtasks.get(id);
+    }
+
+    // Потоки по возрастанию id
+    public Stream<Task> streamTasks() {
+        return tasks.stream();
+    }
+
+    public Stream<Epic> streamEpics() {
+        return epics.stream();
+    }
+
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.stream();
+    }
+
+    public ArrayList<Subtask> getAllSubtasksOfEpic(int epicId) {
+        Epic epic = epics.get(epicId);
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+        ArrayList<Subtask> result = new ArrayList<>(epic.getSubtaskCount());
+        PrimitiveIterator.OfInt ids = epic.subtaskIdIterator();
+        while (ids.hasNext()) {
+            Subtask subtask = subtasks.get(ids.nextInt());
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    public int count(TaskType type) {
+        switch (type) {
+            case TASK:
+                return tasks.size();
+            case EPIC:
+                return epics.size();
+            case SUBTASK:
+                return subtasks.size();
+            default:
+                throw new IllegalArgumentException("Неизвестный тип задачи: " + type);
+        }
+    }
+}
@@ -1,24 +1,52 @@
 package kanbanboard.model;
 
+import kanbanboard.util.IntOrderedSet;
+
 import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
 
 public class Epic extends Task {
-    private final ArrayList<Integer> subtasksIds;
+    private final IntOrderedSet subtasksIds; // порядок добавления, без повторов
 
     public Epic(String title, String description) {
         super(title, description);
-        this.subtasksIds = new ArrayList<>();
+        this.subtasksIds = new IntOrderedSet();
     }
 
     public Epic(Epic source) {
         super(source);
-        this.subtasksIds = new ArrayList<>(source.subtasksIds);
+        this.subtasksIds = source.subtasksIds.copy(); // массивы копируются только при изменении
     }
 
+    // Копия id подзадач: изменение списка не меняет эпик, изменять состав нужно через методы эпика
     public ArrayList<Integer> getSubtasksIds() {
-        return subtasksIds;
+        return new ArrayList<>(subtasksIds.asList());
+    }
+
+    // Представление только для чтения без копирования
+    public List<Integer> getSubtaskIdsView() {
+        return subtasksIds.asList();
     }
 
+    // Обход id подзадач без упаковки
+    public PrimitiveIterator.OfInt subtaskIdIterator() {
+        return subtasksIds.iterator();
+    }
+
+    // Снимок id подзадач: эпик можно менять, пока снимок обходится
+    public Spliterator.OfInt subtaskIdSpliterator() {
+        return subtasksIds.spliterator();
+    }
+
+    public int getSubtaskCount() {
+        return subtasksIds.size();
+    }
+
+    public boolean containsSubtask(int id) {
+        return subtasksIds.contains(id);
+    }
 
     public void addSubtask(Subtask subtask) {
         if (subtask.getId() == null) {
@@ -27,8 +55,15 @@ public class Epic extends Task {
         this.subtasksIds.add(subtask.getId());
     }
 
+    public void addSubtaskId(int id) {
+        if (this.id != null && this.id == id) {
+            return; // эпик не может быть своей подзадачей; в addSubtask это обеспечивает Subtask.setId
+        }
+        subtasksIds.add(id);
+    }
+
     public void removeSubtask(int id) {
-        subtasksIds.remove(Integer.valueOf(id));
+        subtasksIds.remove(id);
     }
 
     public void removeSubtaskAll() {
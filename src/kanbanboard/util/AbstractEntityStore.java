@@ -0,0 +1,125 @@
+package kanbanboard.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+// Общие представления values() и keySet() для хранилищ, где сущности лежат в ячейках массива
+abstract class AbstractEntityStore<T> implements EntityStore<T> {
+    protected int size;
+    protected int modCount;
+
+    // Количество ячеек; пустая ячейка возвращает null из valueAt
+    protected abstract int slotCount();
+
+    protected abstract T valueAt(int slot);
+
+    protected abstract int keyAt(int slot);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Collection<T> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    T element(int slot) {
+                        return valueAt(slot);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    Integer element(int slot) {
+                        return keyAt(slot);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && containsKey((Integer) o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int slot = 0; slot < slotCount(); slot++) {
+            T value = valueAt(slot);
+            if (value != null) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(keyAt(slot)).append('=').append(value);
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private final int expectedModCount = modCount;
+        private int slot = advance(0);
+
+        abstract E element(int slot);
+
+        private int advance(int from) {
+            int count = slotCount();
+            while (from < count && valueAt(from) == null) {
+                from++;
+            }
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < slotCount();
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (slot >= slotCount()) {
+                throw new NoSuchElementException();
+            }
+            E element = element(slot);
+            slot = advance(slot + 1);
+            return element;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package kanbanboard.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Хранилище на массиве, индексируемом id: доступ — одно обращение к массиву,
+// на сущность приходится одна ссылка. Подходит для плотных id, которые выдает менеджер;
+// память пропорциональна максимальному id, поэтому для разреженных id лучше HashEntityStore
+public class DenseEntityStore<T> extends AbstractEntityStore<T> {
+    private static final int MIN_CAPACITY = 16;
+
+    private Object[] values = new Object[MIN_CAPACITY];
+
+    @Override
+    public T get(int id) {
+        return id >= 0 && id < values.length ? valueAt(id) : null;
+    }
+
+    @Override
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public T put(int id, T value) {
+        Objects.requireNonNull(value, "Сущность не задана");
+        if (id < 0) {
+            throw new IllegalArgumentException("Отрицательный id не поддерживается: " + id);
+        }
+        if (id >= values.length) {
+            values = Arrays.copyOf(values, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max((long) id + 1, values.length * 2L)));
+        }
+        T previous = valueAt(id);
+        values[id] = value;
+        if (previous == null) {
+            size++;
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    public T putIfAbsent(int id, T value) {
+        T previous = get(id);
+        return previous != null ? previous : put(id, value);
+    }
+
+    @Override
+    public T replace(int id, T value) {
+        Objects.requireNonNull(value, "Сущность не задана");
+        T previous = get(id);
+        if (previous != null) {
+            values[id] = value;
+        }
+        return previous;
+    }
+
+    @Override
+    public T remove(int id) {
+        T previous = get(id);
+        if (previous != null) {
+            values[id] = null;
+            size--;
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    protected int slotCount() {
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T valueAt(int slot) {
+        return (T) values[slot];
+    }
+
+    @Override
+    protected int keyAt(int slot) {
+        return slot;
+    }
+}
@@ -0,0 +1,35 @@
+package kanbanboard.util;
+
+import java.util.Collection;
+import java.util.Set;
+
+// Хранилище сущностей по целочисленному id без упаковки ключей.
+// Набор методов повторяет используемую менеджерами часть Map<Integer, T>,
+// поэтому код, работавший с HashMap, переносится без изменений. Значения null не допускаются
+public interface EntityStore<T> {
+
+    T get(int id);
+
+    boolean containsKey(int id);
+
+    // Возвращает прежнее значение или null
+    T put(int id, T value);
+
+    T putIfAbsent(int id, T value);
+
+    // Заменяет значение, только если id уже есть; возвращает прежнее значение или null
+    T replace(int id, T value);
+
+    T remove(int id);
+
+    void clear();
+
+    int size();
+
+    boolean isEmpty();
+
+    // Представления только для чтения; порядок обхода — по возрастанию позиции в хранилище
+    Collection<T> values();
+
+    Set<Integer> keySet();
+}
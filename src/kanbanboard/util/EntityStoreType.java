@@ -0,0 +1,13 @@
+package kanbanboard.util;
+
+// Реализация хранилища сущностей
+public enum EntityStoreType {
+    // Хеш-таблица с открытой адресацией: не зависит от разреженности id
+    HASH,
+    // Массив, индексируемый id: самый быстрый доступ при плотных id, память — O(максимального id)
+    DENSE;
+
+    public <T> EntityStore<T> create() {
+        return this == DENSE ? new DenseEntityStore<>() : new HashEntityStore<>();
+    }
+}
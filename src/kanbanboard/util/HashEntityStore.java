@@ -0,0 +1,161 @@
+package kanbanboard.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Хранилище на хеш-таблице с открытой адресацией и линейным пробированием.
+// Ключи лежат в int[], значения — в параллельном Object[]: на сущность приходится
+// около 12 байт при заполнении до 3/4 против ~48 байт у HashMap<Integer, T>.
+// Удаление сдвигает цепочку назад, меток удаленных ячеек нет
+public class HashEntityStore<T> extends AbstractEntityStore<T> {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values; // null — свободная ячейка
+
+    public HashEntityStore() {
+        this(MIN_CAPACITY);
+    }
+
+    public HashEntityStore(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    @Override
+    public T get(int id) {
+        return valueAt(find(id));
+    }
+
+    @Override
+    public boolean containsKey(int id) {
+        return values[find(id)] != null;
+    }
+
+    @Override
+    public T put(int id, T value) {
+        Objects.requireNonNull(value, "Сущность не задана");
+        int slot = find(id);
+        T previous = valueAt(slot);
+        values[slot] = value;
+        if (previous == null) {
+            keys[slot] = id;
+            size++;
+            modCount++;
+            if (size * 4 > values.length * 3) {
+                resize(values.length * 2);
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    public T putIfAbsent(int id, T value) {
+        T previous = get(id);
+        return previous != null ? previous : put(id, value);
+    }
+
+    @Override
+    public T replace(int id, T value) {
+        Objects.requireNonNull(value, "Сущность не задана");
+        int slot = find(id);
+        T previous = valueAt(slot);
+        if (previous != null) {
+            values[slot] = value;
+        }
+        return previous;
+    }
+
+    @Override
+    public T remove(int id) {
+        int slot = find(id);
+        T previous = valueAt(slot);
+        if (previous != null) {
+            deleteSlot(slot);
+            size--;
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(values, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    protected int slotCount() {
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected T valueAt(int slot) {
+        return (T) values[slot];
+    }
+
+    @Override
+    protected int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    // Ячейка с ключом или первая свободная ячейка на пути пробирования
+    private int find(int id) {
+        int mask = values.length - 1;
+        int slot = hash(id) & mask;
+        while (values[slot] != null && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void deleteSlot(int slot) {
+        int mask = values.length - 1;
+        int hole = slot;
+        int current = (hole + 1) & mask;
+        while (values[current] != null) {
+            int home = hash(keys[current]) & mask;
+            // Элемент можно перенести, если его исходная ячейка не лежит между дырой и текущей позицией
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                keys[hole] = keys[current];
+                values[hole] = values[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        values[hole] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // Фибоначчиево умножение разносит последовательные id по всей таблице. С почти тождественным
+    // хешем они образовали бы один сплошной кластер, и каждое удаление сдвигало бы его до конца
+    private static int hash(int id) {
+        int hash = id * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,344 @@
+package kanbanboard.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+// Множество int без упаковки, сохраняющее порядок добавления.
+// Значения лежат в массиве ячеек, связанных в двусвязный список (порядок обхода),
+// поиск ячейки по значению — хеш-таблица с открытой адресацией и линейным пробированием.
+// add, remove и contains выполняются за O(1); освобожденные ячейки используются повторно.
+// copy() делает копию за O(1): массивы разделяются, пока одна из копий не изменится.
+public class IntOrderedSet {
+    private static final int NONE = -1;
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] table;  // номер ячейки + 1; 0 — свободно
+    private int[] values; // значения ячеек
+    private int[] prev;   // предыдущая ячейка в порядке добавления
+    private int[] next;   // следующая ячейка в порядке добавления или следующая свободная
+    private int head = NONE;
+    private int tail = NONE;
+    private int free = NONE; // начало списка освобожденных ячеек
+    private int used;        // сколько ячеек выдавалось хотя бы раз
+    private int size;
+    private int modCount;
+    private boolean shared;  // массивы разделены с копией и перед изменением копируются
+
+    public IntOrderedSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntOrderedSet(int expectedSize) {
+        int capacity = Math.max(MIN_CAPACITY, expectedSize);
+        values = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return table[find(value)] != 0;
+    }
+
+    // Возвращает false, если значение уже есть
+    public boolean add(int value) {
+        int bucket = find(value);
+        if (table[bucket] != 0) {
+            return false;
+        }
+        unshare();
+        int slot;
+        if (free != NONE) {
+            slot = free;
+            free = next[slot];
+        } else {
+            if (used == values.length) {
+                growSlots();
+            }
+            slot = used++;
+        }
+        values[slot] = value;
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+        size++;
+        modCount++;
+        if (size * 4 > table.length * 3) {
+            rehash(table.length * 2); // новая ячейка уже в списке и попадет в таблицу при перестроении
+        } else {
+            table[bucket] = slot + 1;
+        }
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int bucket = find(value);
+        if (table[bucket] == 0) {
+            return false;
+        }
+        unshare();
+        int slot = table[bucket] - 1;
+        deleteBucket(bucket);
+        if (prev[slot] == NONE) {
+            head = next[slot];
+        } else {
+            next[prev[slot]] = next[slot];
+        }
+        if (next[slot] == NONE) {
+            tail = prev[slot];
+        } else {
+            prev[next[slot]] = prev[slot];
+        }
+        next[slot] = free;
+        free = slot;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    public void clear() {
+        if (size == 0 && used == 0) {
+            return;
+        }
+        if (shared) {
+            int capacity = Math.max(MIN_CAPACITY, values.length);
+            values = new int[capacity];
+            prev = new int[capacity];
+            next = new int[capacity];
+            table = new int[table.length];
+            shared = false;
+        } else {
+            Arrays.fill(table, 0);
+        }
+        head = NONE;
+        tail = NONE;
+        free = NONE;
+        used = 0;
+        size = 0;
+        modCount++;
+    }
+
+    // Копия за O(1): обе копии разделяют массивы до первого изменения любой из них
+    public IntOrderedSet copy() {
+        IntOrderedSet copy = new IntOrderedSet(this);
+        shared = true;
+        return copy;
+    }
+
+    private IntOrderedSet(IntOrderedSet source) {
+        table = source.table;
+        values = source.values;
+        prev = source.prev;
+        next = source.next;
+        head = source.head;
+        tail = source.tail;
+        free = source.free;
+        used = source.used;
+        size = source.size;
+        shared = true;
+    }
+
+    // Обход в порядке добавления без упаковки значений
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int slot = head;
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return slot != NONE;
+            }
+
+            @Override
+            public int nextInt() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (slot == NONE) {
+                    throw new NoSuchElementException();
+                }
+                int value = values[slot];
+                slot = next[slot];
+                return value;
+            }
+        };
+    }
+
+    // Обход снимка на момент вызова в порядке добавления; изменения множества на него не влияют
+    public Spliterator.OfInt spliterator() {
+        IntOrderedSet snapshot = copy();
+        return Spliterators.spliterator(snapshot.iterator(), snapshot.size(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            result[i++] = values[slot];
+        }
+        return result;
+    }
+
+    // Представление только для чтения в виде List<Integer> для совместимости со старым API.
+    // Последовательный доступ по индексу выполняется за O(1) благодаря запомненной позиции
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (slot != head) {
+                builder.append(", ");
+            }
+            builder.append(values[slot]);
+        }
+        return builder.append(']').toString();
+    }
+
+    private class ListView extends AbstractList<Integer> {
+        private int cursorIndex = NONE;
+        private int cursorSlot = NONE;
+        private int cursorModCount;
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Индекс " + index + ", размер " + size);
+            }
+            if (cursorModCount != modCount || cursorIndex == NONE || cursorIndex > index) {
+                cursorIndex = 0;
+                cursorSlot = head;
+                cursorModCount = modCount;
+            }
+            while (cursorIndex < index) {
+                cursorSlot = next[cursorSlot];
+                cursorIndex++;
+            }
+            return values[cursorSlot];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && IntOrderedSet.this.contains((Integer) o);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!contains(o)) {
+                return -1;
+            }
+            int value = (Integer) o;
+            int index = 0;
+            for (int slot = head; slot != NONE; slot = next[slot]) {
+                if (values[slot] == value) {
+                    return index;
+                }
+                index++;
+            }
+            return -1;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return IntOrderedSet.this.iterator();
+        }
+    }
+
+    // Корзина со значением или первая свободная корзина на пути пробирования
+    private int find(int value) {
+        int mask = table.length - 1;
+        int bucket = hash(value) & mask;
+        while (table[bucket] != 0 && values[table[bucket] - 1] != value) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    // Удаление со сдвигом: последующие элементы цепочки переносятся на освободившееся место,
+    // поэтому таблице не нужны метки удаленных корзин
+    private void deleteBucket(int bucket) {
+        int mask = table.length - 1;
+        int hole = bucket;
+        int current = (hole + 1) & mask;
+        while (table[current] != 0) {
+            int home = hash(values[table[current] - 1]) & mask;
+            // Элемент можно перенести, если его исходная корзина не лежит между дырой и текущей позицией
+            if (((current - home) & mask) >= ((current - hole) & mask)) {
+                table[hole] = table[current];
+                hole = current;
+            }
+            current = (current + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private void growSlots() {
+        int capacity = values.length * 2;
+        values = Arrays.copyOf(values, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        next = Arrays.copyOf(next, capacity);
+    }
+
+    private void rehash(int tableSize) {
+        table = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            int bucket = hash(values[slot]) & mask;
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & mask;
+            }
+            table[bucket] = slot + 1;
+        }
+    }
+
+    private void unshare() {
+        if (shared) {
+            table = table.clone();
+            values = values.clone();
+            prev = prev.clone();
+            next = next.clone();
+            shared = false;
+        }
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = MIN_CAPACITY;
+        while (size * 3 < capacity * 4) {
+            size <<= 1;
+        }
+        return size * 2;
+    }
+}
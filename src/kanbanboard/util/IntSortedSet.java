@@ -0,0 +1,297 @@
+package kanbanboard.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+// Упорядоченное множество int без упаковки: отсортированные блоки ограниченного размера.
+// Блок ищется двоичным поиском по последним элементам блоков, значение в блоке — двоичным поиском,
+// вставка и удаление сдвигают не больше одного блока. Возрастающие значения (новые id) дописываются
+// в конец последнего блока. Обход с любого значения стоит O(log n) на поиск начала и O(1) на элемент.
+// copy() копирует только таблицу блоков: сами блоки разделяются и копируются по одному при первом изменении
+public class IntSortedSet {
+    private static final int BLOCK_SIZE = 512;
+
+    private int[][] blocks = new int[4][];
+    private int[] blockSizes = new int[4];
+    private boolean[] owned = new boolean[4]; // блок принадлежит только этому множеству и может меняться на месте
+    private int blockCount;
+    private int size;
+    private int modCount;
+
+    public IntSortedSet() {
+    }
+
+    private IntSortedSet(IntSortedSet source) {
+        blocks = source.blocks.clone();
+        blockSizes = source.blockSizes.clone();
+        owned = new boolean[blocks.length];
+        blockCount = source.blockCount;
+        size = source.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        if (size == 0) {
+            return false;
+        }
+        int block = findBlock(value);
+        return Arrays.binarySearch(blocks[block], 0, blockSizes[block], value) >= 0;
+    }
+
+    public boolean add(int value) {
+        if (blockCount == 0) {
+            insertBlock(0, new int[BLOCK_SIZE], 0);
+        }
+        int block = findBlock(value);
+        int[] values = blocks[block];
+        int blockSize = blockSizes[block];
+        int index = Arrays.binarySearch(values, 0, blockSize, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (blockSize == BLOCK_SIZE) {
+            // Полный блок делится; при дописывании в конец последнего блока начинается новый пустой
+            boolean append = block == blockCount - 1 && index == blockSize;
+            int keep = append ? BLOCK_SIZE : BLOCK_SIZE / 2;
+            int[] right = new int[BLOCK_SIZE];
+            System.arraycopy(values, keep, right, 0, blockSize - keep);
+            blockSizes[block] = keep;
+            insertBlock(block + 1, right, blockSize - keep);
+            if (index > keep || append) {
+                block++;
+                index -= keep;
+            }
+            blockSize = blockSizes[block];
+        }
+        values = writable(block);
+        System.arraycopy(values, index, values, index + 1, blockSize - index);
+        values[index] = value;
+        blockSizes[block]++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        if (size == 0) {
+            return false;
+        }
+        int block = findBlock(value);
+        int[] values = blocks[block];
+        int blockSize = blockSizes[block];
+        int index = Arrays.binarySearch(values, 0, blockSize, value);
+        if (index < 0) {
+            return false;
+        }
+        values = writable(block);
+        System.arraycopy(values, index + 1, values, index, blockSize - index - 1);
+        blockSizes[block]--;
+        if (blockSizes[block] == 0) {
+            removeBlock(block);
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(blocks, 0, blockCount, null);
+        blockCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    // Копия за O(n / BLOCK_SIZE): блоки разделяются, пока их не изменит одна из копий
+    public IntSortedSet copy() {
+        IntSortedSet copy = new IntSortedSet(this);
+        Arrays.fill(owned, 0, blockCount, false);
+        return copy;
+    }
+
+    // Разделяемый обход снимка множества на момент вызова: последующие изменения на него не влияют,
+    // поэтому снимок можно обходить параллельно и менять множество во время обхода
+    public Spliterator.OfInt spliterator() {
+        IntSortedSet snapshot = copy();
+        return snapshot.new BlockSpliterator(0, 0, snapshot.blockCount);
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return iteratorFrom(Integer.MIN_VALUE);
+    }
+
+    // Обход по возрастанию, начиная с первого значения, не меньшего from
+    public PrimitiveIterator.OfInt iteratorFrom(int from) {
+        int startBlock = 0;
+        int startIndex = 0;
+        if (size > 0) {
+            startBlock = findBlock(from);
+            int index = Arrays.binarySearch(blocks[startBlock], 0, blockSizes[startBlock], from);
+            startIndex = index >= 0 ? index : -index - 1;
+        }
+        return new Cursor(startBlock, startIndex);
+    }
+
+    private final class Cursor implements PrimitiveIterator.OfInt {
+        private final int expectedModCount = modCount;
+        private int block;
+        private int index;
+
+        Cursor(int block, int index) {
+            this.block = block;
+            this.index = index;
+            skipExhausted();
+        }
+
+        private void skipExhausted() {
+            while (block < blockCount && index >= blockSizes[block]) {
+                block++;
+                index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return block < blockCount;
+        }
+
+        @Override
+        public int nextInt() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (block >= blockCount) {
+                throw new NoSuchElementException();
+            }
+            int value = blocks[block][index++];
+            skipExhausted();
+            return value;
+        }
+    }
+
+    // Обходит блоки [block, endBlock) снимка; делится по границам блоков
+    private final class BlockSpliterator implements Spliterator.OfInt {
+        private int block;
+        private int index;
+        private final int endBlock;
+
+        BlockSpliterator(int block, int index, int endBlock) {
+            this.block = block;
+            this.index = index;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            while (block < endBlock) {
+                if (index < blockSizes[block]) {
+                    action.accept(blocks[block][index++]);
+                    return true;
+                }
+                block++;
+                index = 0;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (; block < endBlock; block++, index = 0) {
+                int[] values = blocks[block];
+                int blockSize = blockSizes[block];
+                while (index < blockSize) {
+                    action.accept(values[index++]);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int mid = (block + 1 + endBlock) >>> 1;
+            if (mid >= endBlock) {
+                return null;
+            }
+            BlockSpliterator prefix = new BlockSpliterator(block, index, mid);
+            block = mid;
+            index = 0;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long remaining = 0;
+            for (int i = block; i < endBlock; i++) {
+                remaining += blockSizes[i];
+            }
+            return remaining - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    private int[] writable(int block) {
+        if (!owned[block]) {
+            blocks[block] = blocks[block].clone();
+            owned[block] = true;
+        }
+        return blocks[block];
+    }
+
+    // Первый блок, последний элемент которого не меньше value, либо последний блок
+    private int findBlock(int value) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks[mid][blockSizes[mid] - 1] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void insertBlock(int position, int[] values, int blockSize) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            blockSizes = Arrays.copyOf(blockSizes, blockCount * 2);
+            owned = Arrays.copyOf(owned, blockCount * 2);
+        }
+        System.arraycopy(blocks, position, blocks, position + 1, blockCount - position);
+        System.arraycopy(blockSizes, position, blockSizes, position + 1, blockCount - position);
+        System.arraycopy(owned, position, owned, position + 1, blockCount - position);
+        blocks[position] = values;
+        blockSizes[position] = blockSize;
+        owned[position] = true;
+        blockCount++;
+    }
+
+    private void removeBlock(int position) {
+        System.arraycopy(blocks, position + 1, blocks, position, blockCount - position - 1);
+        System.arraycopy(blockSizes, position + 1, blockSizes, position, blockCount - position - 1);
+        System.arraycopy(owned, position + 1, owned, position, blockCount - position - 1);
+        blockCount--;
+        blocks[blockCount] = null;
+    }
+}
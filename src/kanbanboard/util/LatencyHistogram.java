@@ -0,0 +1,116 @@
+package kanbanboard.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма длительностей в наносекундах с логарифмически-линейными корзинами, как в HdrHistogram:
+// значения до 64 хранятся точно, каждый следующий интервал [2^k, 2^(k+1)) делится на 32 корзины,
+// поэтому относительная погрешность перцентилей не больше 1/32 (около 3%). Значения от 2^43 нс
+// (около двух с половиной часов) попадают в последнюю корзину.
+// Запись без блокировок и выделения памяти: инкремент корзины, два LongAdder и редкое обновление максимума.
+// Чтение идет через snapshot(): копия корзин, по которой согласованно считаются все показатели
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 42;
+    private static final int BUCKET_COUNT = 2 * SUB_COUNT + (MAX_EXPONENT - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BITS;
+        return 2 * SUB_COUNT + (shift - 1) * SUB_COUNT + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    // Наибольшее значение, попадающее в корзину
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - 2 * SUB_COUNT) / SUB_COUNT + 1;
+        long sub = (index - 2 * SUB_COUNT) % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        // Значение, которого не превышают percentile процентов записей (0 < percentile <= 100):
+        // верхняя граница корзины, но не больше максимума
+        public long getValueAtPercentile(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("Перцентиль должен быть в (0, 100]: " + percentile);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
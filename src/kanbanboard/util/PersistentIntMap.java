@@ -0,0 +1,260 @@
+package kanbanboard.util;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Неизменяемое отображение int -> V со структурным разделением.
+// Префиксное дерево по 5 бит ключа (7 уровней: 2 + 6 * 5 бит), в узле хранятся только занятые
+// ветви и битовая маска занятости. put и remove копируют лишь путь от корня до листа (не больше
+// семи маленьких массивов), остальные узлы общие со старой версией, поэтому старые версии
+// остаются валидными и их можно читать из любого потока без блокировок.
+// Обход идет по возрастанию ключа
+public final class PersistentIntMap<V> implements Iterable<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int TOP_SHIFT = 30;
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentIntMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    // Построение за O(n) по ключам, отсортированным по возрастанию без повторов
+    public static <V> PersistentIntMap<V> fromSorted(int[] keys, V[] values, int count) {
+        for (int i = 1; i < count; i++) {
+            if (keys[i - 1] >= keys[i]) {
+                throw new IllegalArgumentException("Ключи должны возрастать: " + keys[i - 1] + ", " + keys[i]);
+            }
+        }
+        if (count == 0) {
+            return empty();
+        }
+        return new PersistentIntMap<>(build(keys, values, 0, count, TOP_SHIFT), count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int k = key ^ Integer.MIN_VALUE; // знаковый порядок ключей совпадает с беззнаковым порядком ветвей
+        Node node = root;
+        for (int shift = TOP_SHIFT; node != null; shift -= BITS) {
+            int bit = 1 << ((k >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.slots[node.index(bit)];
+            if (shift == 0) {
+                return (V) child;
+            }
+            node = (Node) child;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    // Новая версия со значением по ключу; текущая версия не меняется
+    public PersistentIntMap<V> put(int key, V value) {
+        Objects.requireNonNull(value, "value");
+        int newSize = get(key) == null ? size + 1 : size;
+        return new PersistentIntMap<>(put(root, key ^ Integer.MIN_VALUE, TOP_SHIFT, value), newSize);
+    }
+
+    public PersistentIntMap<V> remove(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        return new PersistentIntMap<>(remove(root, key ^ Integer.MIN_VALUE, TOP_SHIFT), size - 1);
+    }
+
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super V> action) {
+        if (root != null) {
+            forEach(root, TOP_SHIFT, action);
+        }
+    }
+
+    public Stream<V> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    private static final class Node {
+        final int bitmap;     // занятые ветви
+        final Object[] slots; // по одной ячейке на занятую ветвь: Node или значение на последнем уровне
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    private static Node put(Node node, int k, int shift, Object value) {
+        int bit = 1 << ((k >>> shift) & MASK);
+        if (node == null) {
+            Object child = shift == 0 ? value : put(null, k, shift - BITS, value);
+            return new Node(bit, new Object[]{child});
+        }
+        int index = node.index(bit);
+        if ((node.bitmap & bit) != 0) {
+            Object child = shift == 0 ? value : put((Node) node.slots[index], k, shift - BITS, value);
+            Object[] slots = node.slots.clone();
+            slots[index] = child;
+            return new Node(node.bitmap, slots);
+        }
+        Object child = shift == 0 ? value : put(null, k, shift - BITS, value);
+        Object[] slots = new Object[node.slots.length + 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        slots[index] = child;
+        System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+        return new Node(node.bitmap | bit, slots);
+    }
+
+    // Ключ заведомо есть; возвращает null, если узел опустел
+    private static Node remove(Node node, int k, int shift) {
+        int bit = 1 << ((k >>> shift) & MASK);
+        int index = node.index(bit);
+        if (shift > 0) {
+            Node child = remove((Node) node.slots[index], k, shift - BITS);
+            if (child != null) {
+                Object[] slots = node.slots.clone();
+                slots[index] = child;
+                return new Node(node.bitmap, slots);
+            }
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        Object[] slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+        return new Node(node.bitmap & ~bit, slots);
+    }
+
+    private static Node build(int[] keys, Object[] values, int from, int to, int shift) {
+        int bitmap = 0;
+        for (int i = from; i < to; i++) {
+            bitmap |= 1 << (((keys[i] ^ Integer.MIN_VALUE) >>> shift) & MASK);
+        }
+        Object[] slots = new Object[Integer.bitCount(bitmap)];
+        int slot = 0;
+        int i = from;
+        while (i < to) {
+            int digit = ((keys[i] ^ Integer.MIN_VALUE) >>> shift) & MASK;
+            int end = i + 1;
+            while (end < to && (((keys[end] ^ Integer.MIN_VALUE) >>> shift) & MASK) == digit) {
+                end++;
+            }
+            slots[slot++] = shift == 0 ? Objects.requireNonNull(values[i], "value")
+                    : build(keys, values, i, end, shift - BITS);
+            i = end;
+        }
+        return new Node(bitmap, slots);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, int shift, Consumer<? super V> action) {
+        for (Object child : node.slots) {
+            if (shift == 0) {
+                action.accept((V) child);
+            } else {
+                forEach((Node) child, shift - BITS, action);
+            }
+        }
+    }
+
+    // Обход в глубину со стеком позиций; глубина дерева не больше семи уровней
+    private final class ValueIterator implements Iterator<V> {
+        private final ArrayDeque<Node> nodes = new ArrayDeque<>();
+        private final ArrayDeque<Integer> positions = new ArrayDeque<>();
+        private Node leaf;
+        private int leafIndex;
+
+        ValueIterator() {
+            if (root != null) {
+                descend(root, TOP_SHIFT);
+            }
+        }
+
+        // Спускается по первым ветвям до листового узла
+        private void descend(Node node, int shift) {
+            while (shift > 0) {
+                nodes.push(node);
+                positions.push(0);
+                node = (Node) node.slots[0];
+                shift -= BITS;
+            }
+            leaf = node;
+            leafIndex = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) leaf.slots[leafIndex++];
+            if (leafIndex == leaf.slots.length) {
+                advance();
+            }
+            return value;
+        }
+
+        // Переходит к следующему листу: вверх до узла с непройденной ветвью и снова вниз
+        private void advance() {
+            leaf = null;
+            int shift = 0;
+            while (!nodes.isEmpty()) {
+                shift += BITS;
+                Node node = nodes.peek();
+                int position = positions.pop() + 1;
+                if (position < node.slots.length) {
+                    positions.push(position);
+                    descend((Node) node.slots[position], shift - BITS);
+                    return;
+                }
+                nodes.pop();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package kanbanboard.manager.event;
+
+import kanbanboard.model.Status;
+import kanbanboard.model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventBusTest {
+
+    @Test
+    void subscribe_receivesEventsInOrder_afterClose() {
+        TaskEventBus bus = new TaskEventBus(64, 8);
+        List<Integer> ids = new ArrayList<>();
+        List<Boolean> batchEnds = new ArrayList<>();
+        bus.subscribe("test", (event, endOfBatch) -> {
+            ids.add(event.getId());
+            batchEnds.add(endOfBatch);
+        });
+
+        for (int i = 1; i <= 50; i++) {
+            bus.publish(ChangeType.CREATED, TaskType.TASK, i, 0, null, Status.NEW);
+        }
+        bus.close(); // дочитывает опубликованные события
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, ids);
+        assertTrue(batchEnds.get(batchEnds.size() - 1), "Последнее событие не закрыло пачку");
+        assertEquals(49, bus.getCursor());
+    }
+
+    @Test
+    void publish_slowSubscriber_publisherNotBlockedAndLossReported() throws InterruptedException {
+        TaskEventBus bus = new TaskEventBus(16, 4);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> ids = new ArrayList<>();
+        long[] overflow = new long[1];
+        TaskEventBus.Subscription subscription = bus.subscribe("slow", new TaskEventListener() {
+            @Override
+            public void onEvent(TaskEvent event, boolean endOfBatch) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ids.add(event.getId());
+            }
+
+            @Override
+            public void onOverflow(long lost) {
+                overflow[0] += lost;
+            }
+        });
+
+        bus.publish(ChangeType.CREATED, TaskType.TASK, 0, 0, null, Status.NEW);
+        assertTrue(started.await(1, TimeUnit.SECONDS), "Подписчик не получил первое событие");
+        for (int i = 1; i <= 1000; i++) {
+            bus.publish(ChangeType.UPDATED, TaskType.TASK, i, 0, Status.NEW, Status.DONE);
+        }
+        assertEquals(1000, bus.getCursor(), "Публикация ждала подписчика");
+        release.countDown();
+        subscription.close();
+
+        assertTrue(subscription.getLostCount() > 0, "Переполнение не учтено");
+        assertEquals(subscription.getLostCount(), overflow[0]);
+        assertEquals(1001, ids.size() + subscription.getLostCount(), "События потеряны без учета");
+        assertEquals(1000, ids.get(ids.size() - 1));
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i), "Нарушен порядок событий");
+        }
+    }
+
+    @Test
+    void subscribe_listenerException_doesNotStopDelivery() {
+        TaskEventBus bus = new TaskEventBus(16, 4);
+        List<Integer> ids = new ArrayList<>();
+        TaskEventBus.Subscription subscription = bus.subscribe("failing", (event, endOfBatch) -> {
+            if (event.getId() == 1) {
+                throw new IllegalStateException("Сбой подписчика");
+            }
+            ids.add(event.getId());
+        });
+
+        bus.publish(ChangeType.CREATED, TaskType.TASK, 1, 0, null, Status.NEW);
+        bus.publish(ChangeType.CREATED, TaskType.TASK, 2, 0, null, Status.NEW);
+        subscription.close();
+
+        assertEquals(List.of(2), ids);
+    }
+
+    @Test
+    void constructor_invalidCapacity_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new TaskEventBus(0, 8));
+        assertEquals(16, new TaskEventBus(10, 8).getCapacity());
+    }
+}
@@ -0,0 +1,155 @@
+package kanbanboard.manager.history;
+
+import kanbanboard.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+    private static final int THREADS = 8;
+
+    private HistoryManager historyManager;
+
+    @BeforeEach
+    void setUp() {
+        historyManager = new ConcurrentHistoryManager(new InMemoryHistoryManager(), 4);
+    }
+
+    private static Task task(int id) {
+        Task task = new Task("Задача " + id, "Описание");
+        task.setId(id);
+        return task;
+    }
+
+    @Test
+    void add_movesRepeatedViewToEnd() {
+        for (int i = 1; i <= 10; i++) {
+            historyManager.add(task(i));
+        }
+        historyManager.add(task(3));
+        historyManager.remove(5);
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(9, history.size());
+        assertEquals(3, history.get(history.size() - 1).getId());
+        for (Task task : history) {
+            assertNotEquals(5, task.getId(), "Удаленная задача осталась в истории");
+        }
+    }
+
+    @Test
+    void getVersion_changesWithPendingEvents_lastNDrainsQueue() {
+        historyManager.add(task(1));
+        long version = historyManager.getVersion();
+        historyManager.add(task(2)); // событие еще в очереди: порог сброса не достигнут
+
+        assertNotEquals(version, historyManager.getVersion(), "Версия не учла событие в очереди");
+        assertEquals(List.of(2), historyManager.getHistory(1).stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void add_keepsStateAtViewTime() {
+        Task task = task(1);
+        historyManager.add(task);
+        task.setTitle("Новый заголовок");
+
+        assertEquals("Задача 1", historyManager.getHistory().get(0).getTitle());
+    }
+
+    @Test
+    void concurrentAdd_keepsEachTaskOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        historyManager.add(task(i % 100 + 1));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        List<Task> history = historyManager.getHistory();
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : history) {
+            assertTrue(ids.add(task.getId()), "Задача повторяется в истории: " + task.getId());
+        }
+        assertEquals(100, ids.size());
+    }
+
+    @Test
+    void add_fromDifferentThreads_keepsViewOrder() throws Exception {
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            first.submit(() -> {
+                for (int i = 1; i <= 50; i++) {
+                    historyManager.add(task(i));
+                }
+            }).get();
+            // Повторные просмотры из другого потока (и другой полосы) должны оказаться в конце
+            second.submit(() -> {
+                for (int i = 1; i <= 25; i++) {
+                    historyManager.add(task(i));
+                }
+            }).get();
+        } finally {
+            first.shutdownNow();
+            second.shutdownNow();
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 26; i <= 50; i++) {
+            expected.add(i);
+        }
+        for (int i = 1; i <= 25; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, historyManager.getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void size_concurrentAdd_countsAllWrittenEvents() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * 1000;
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= 1000; i++) {
+                        historyManager.add(task(offset + i));
+                    }
+                }));
+            }
+            Future<Integer> reader = executor.submit(() -> {
+                int previous = 0;
+                for (int i = 0; i < 1000; i++) {
+                    int size = historyManager.size();
+                    assertTrue(size >= previous, "Размер уменьшился без удалений: " + previous + " -> " + size);
+                    previous = size;
+                }
+                return previous;
+            });
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(reader.get() <= THREADS * 1000);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * 1000, historyManager.size(), "Размер не учел события в буферах");
+    }
+}
@@ -4,7 +4,10 @@ import kanbanboard.model.Task;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -117,4 +120,112 @@ class InMemoryHistoryManagerTest {
         assertEquals(1, history.get(0).getId(), "Неверный порядок: задача 1");
         assertEquals(3, history.get(1).getId(), "Неверный порядок: задача 3");
     }
-}
\ No newline at end of file
+
+    @Test
+    void add_evictsOldestView_capacityReached() {
+        historyManager = new InMemoryHistoryManager(2);
+        for (int i = 1; i <= 3; i++) {
+            Task task = new Task("Задача " + i, "Описание");
+            task.setId(i);
+            historyManager.add(task);
+        }
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(2, history.size(), "История превысила заданный размер");
+        assertEquals(2, history.get(0).getId(), "Вытеснен не самый давний просмотр");
+        assertEquals(3, history.get(1).getId());
+    }
+
+    @Test
+    void getHistory_resolvesCurrentTasks_storeIdsOnly() {
+        Map<Integer, Task> board = new HashMap<>();
+        Task task1 = new Task("Задача 1", "Описание 1");
+        task1.setId(1);
+        Task task2 = new Task("Задача 2", "Описание 2");
+        task2.setId(2);
+        board.put(1, task1);
+        board.put(2, task2);
+        historyManager = new InMemoryHistoryManager(InMemoryHistoryManager.UNBOUNDED, true);
+        historyManager.bindResolver(board::get);
+
+        historyManager.add(task1);
+        historyManager.add(task2);
+        task1.setTitle("Новый заголовок");
+        board.remove(2);
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(1, history.size(), "Удаленная задача осталась в истории");
+        assertEquals("Новый заголовок", history.get(0).getTitle(), "Задача не получена из источника");
+    }
+
+    @Test
+    void getHistory_throwsException_storeIdsOnlyWithoutResolver() {
+        historyManager = new InMemoryHistoryManager(10, true);
+        Task task = new Task("Задача", "Описание");
+        task.setId(1);
+        historyManager.add(task);
+
+        assertThrows(IllegalStateException.class, () -> historyManager.getHistory());
+    }
+
+    @Test
+    void getHistory_unchanged_returnsCachedImmutableList() {
+        Task task1 = new Task("Задача 1", "Описание 1");
+        task1.setId(1);
+        Task task2 = new Task("Задача 2", "Описание 2");
+        task2.setId(2);
+        historyManager.add(task1);
+        long version = historyManager.getVersion();
+
+        List<Task> first = historyManager.getHistory();
+        assertSame(first, historyManager.getHistory(), "История построена заново без изменений");
+        assertEquals(version, historyManager.getVersion());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(task2));
+
+        historyManager.add(task2);
+        assertNotEquals(version, historyManager.getVersion(), "Версия не изменилась после просмотра");
+        assertEquals(1, first.size(), "Выданный ранее список изменился");
+        assertEquals(2, historyManager.getHistory().size());
+
+        version = historyManager.getVersion();
+        historyManager.remove(42);
+        assertEquals(version, historyManager.getVersion(), "Удаление непросмотренной задачи изменило версию");
+    }
+
+    @Test
+    void getHistory_lastN_returnsTail() {
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("Задача " + i, "Описание");
+            task.setId(i);
+            historyManager.add(task);
+        }
+
+        assertEquals(List.of(4, 5), historyManager.getHistory(2).stream().map(Task::getId).toList());
+        assertEquals(5, historyManager.getHistory(10).size());
+        assertTrue(historyManager.getHistory(0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> historyManager.getHistory(-1));
+    }
+
+    @Test
+    void getHistory_lastN_storeIdsOnly_resolvesOnlyTail() {
+        Map<Integer, Task> board = new HashMap<>();
+        List<Integer> resolved = new ArrayList<>();
+        historyManager = new InMemoryHistoryManager(InMemoryHistoryManager.UNBOUNDED, true);
+        historyManager.bindResolver(id -> {
+            resolved.add(id);
+            return board.get(id);
+        });
+        for (int i = 1; i <= 5; i++) {
+            Task task = new Task("Задача " + i, "Описание");
+            task.setId(i);
+            board.put(i, task);
+            historyManager.add(task);
+        }
+        board.get(5).setTitle("Новый заголовок");
+
+        List<Task> tail = historyManager.getHistory(2);
+
+        assertEquals(List.of(4, 5), resolved, "Запрошены задачи вне хвоста");
+        assertEquals("Новый заголовок", tail.get(1).getTitle(), "Задача не получена из источника");
+    }
+}
@@ -0,0 +1,118 @@
+package kanbanboard.manager.metrics;
+
+import kanbanboard.manager.Managers;
+import kanbanboard.manager.history.HistoryManager;
+import kanbanboard.manager.history.InMemoryHistoryManager;
+import kanbanboard.manager.task.FileBackedTaskManager;
+import kanbanboard.manager.task.InMemoryTaskManager;
+import kanbanboard.manager.task.TaskManager;
+import kanbanboard.model.Epic;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedTaskManagerTest {
+    private MetricsRegistry registry;
+    private TaskManager manager;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+        HistoryManager history = Managers.instrument(new InMemoryHistoryManager(), registry);
+        manager = Managers.instrument(new InMemoryTaskManager(history), registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void calls_recordedPerMethodWithGauges() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        manager.createSubtasks(List.of(new Subtask("Подзадача 1", "Описание", epic.getId()),
+                new Subtask("Подзадача 2", "Описание", epic.getId())));
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+        manager.getTask(task.getId());
+        manager.getTask(task.getId());
+        manager.getEpic(epic.getId());
+        manager.deleteEpic(epic.getId());
+
+        assertEquals(2, registry.histogram("task.getTask").getCount());
+        assertEquals(1, registry.histogram("task.deleteEpic").getCount());
+        assertEquals(0, registry.histogram("task.deleteEpicAll").getCount(), "Перегрузки смешались");
+        assertEquals(3, registry.histogram("history.add").getCount());
+        assertEquals(3, registry.histogram("history.remove").getCount(), "Эпик удаляется из истории вместе с подзадачами");
+        assertEquals(1, registry.getGauges().get("history.size").getAsLong());
+        assertEquals(1, registry.getGauges().get("task.count").getAsLong());
+
+        manager.createSubtask(new Subtask("Подзадача", "Описание",
+                manager.createEpic(new Epic("Эпик 2", "Описание")).getId()));
+        assertEquals(1, registry.getGauges().get("task.largestEpicFanOut").getAsLong());
+
+        String dump = registry.dump();
+        assertTrue(dump.contains("task.getTask count=2 "), dump);
+        assertTrue(dump.contains("history.size=1"), dump);
+        assertFalse(dump.contains("task.updateTask"), "В отчет попала операция без вызовов");
+    }
+
+    @Test
+    void registerMBean_exposesAttributesAndDump() throws Exception {
+        manager.createTask(new Task("Задача", "Описание"));
+        ObjectName name = registry.registerMBean("kanbanboard.test:type=Metrics");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        assertEquals(1L, server.getAttribute(name, "task.createTask.count"));
+        assertTrue((Double) server.getAttribute(name, "task.createTask.p99Micros") >= 0);
+        assertEquals(1L, server.getAttribute(name, "task.count"));
+        assertTrue(((String) server.invoke(name, "dump", new Object[0], new String[0])).contains("task.createTask"));
+
+        registry.unregisterMBean();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    void startPeriodicDump_writesReport() throws InterruptedException {
+        manager.createTask(new Task("Задача", "Описание"));
+        CountDownLatch dumped = new CountDownLatch(1);
+        String[] report = new String[1];
+        registry.startPeriodicDump(10, TimeUnit.MILLISECONDS, text -> {
+            report[0] = text;
+            dumped.countDown();
+        });
+
+        assertTrue(dumped.await(5, TimeUnit.SECONDS), "Отчет не выведен");
+        assertTrue(report[0].contains("task.createTask count=1 "), report[0]);
+    }
+
+    @Test
+    void fileBacked_persistenceStatsExposed() throws IOException {
+        File file = File.createTempFile("tasks", ".csv");
+        FileBackedTaskManager fileBacked = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), file);
+        TaskManager instrumented = Managers.instrument(fileBacked, registry);
+
+        instrumented.createTask(new Task("Задача", "Описание"));
+        instrumented.createTask(new Task("Задача 2", "Описание"));
+
+        assertEquals(2, registry.getGauges().get("persistence.flushCount").getAsLong());
+        assertEquals(2, registry.getGauges().get("persistence.snapshotCount").getAsLong());
+        assertTrue(registry.getGauges().get("persistence.bytesWritten").getAsLong() >= Files.size(file.toPath()));
+        assertEquals(2, registry.histogram("persistence.snapshot").getCount());
+        fileBacked.close();
+        file.delete();
+    }
+}
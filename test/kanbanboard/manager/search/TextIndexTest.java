@@ -0,0 +1,110 @@
+package kanbanboard.manager.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTest {
+    private TextIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TextIndex();
+    }
+
+    @Test
+    void tokenize_foldsCaseAndYo() {
+        assertEquals(List.of("елка", "2024"), TextTokenizer.tokenize("Ёлка, 2024!"));
+        assertEquals(List.of("купить", "молоко"), TextTokenizer.tokenize("  КУПИТЬ—молоко "));
+    }
+
+    @Test
+    void search_ranksTitleMatchesFirst() {
+        index.put(1, "Отчет", "Подготовить отчет по продажам");
+        index.put(2, "Продажи", "Встреча с отделом");
+        index.put(3, "Встреча", "Обсудить продажи и отчет");
+
+        assertArrayEquals(new int[]{2, 3}, index.search("продажи", 10));
+        assertArrayEquals(new int[]{1}, index.search("отчет", 1));
+    }
+
+    @Test
+    void search_matchesWordForms_byPrefix() {
+        index.put(1, "Задача", "Описание");
+        index.put(2, "Задачи на неделю", "Описание");
+        index.put(3, "Зал", "Описание");
+
+        assertArrayEquals(new int[]{1, 2}, index.search("задач", 10));
+        assertArrayEquals(new int[]{1, 2}, index.search("ЗАДАЧ", 10));
+    }
+
+    @Test
+    void remove_excludesDocumentFromResults() {
+        index.put(1, "Купить молоко", null);
+        index.put(2, "Купить хлеб", null);
+        index.remove(1);
+        index.put(2, "Продать хлеб", null);
+
+        assertEquals(0, index.search("купить", 10).length);
+        assertEquals(1, index.size());
+        assertFalse(index.termCount() > 2, "Слова удаленных документов остались в словаре");
+    }
+
+    @Test
+    void removeAll_dropsDocumentsAndEmptyTerms() {
+        index.put(1, "Купить молоко", null);
+        index.put(2, "Купить хлеб", null);
+        index.put(3, "Продать хлеб", null);
+
+        index.removeAll(List.of(1, 3, 42));
+
+        assertArrayEquals(new int[]{2}, index.search("купить хлеб", 10));
+        assertEquals(0, index.search("молоко", 10).length);
+        assertEquals(1, index.size());
+        assertEquals(2, index.termCount(), "Слова удаленных документов остались в словаре");
+    }
+
+    @Test
+    void remove_oneByOne_keepsRemainingResults() {
+        int count = 50_000;
+        for (int id = 1; id <= count; id++) {
+            index.put(id, "Общая задача", id % 2 == 0 ? "четная" : null);
+        }
+        long start = System.nanoTime();
+        for (int id = 1; id < count; id++) {
+            index.remove(id);
+            if (id == count / 2) {
+                index.put(id, "Общая задача", "снова"); // документ возвращается после удаления
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertArrayEquals(new int[]{count / 2, count}, index.search("общая", 10));
+        assertArrayEquals(new int[]{count}, index.search("четная", 10));
+        assertTrue(elapsed < 5_000_000_000L, "Удаление по одному квадратично: " + elapsed / 1_000_000 + " мс");
+    }
+
+    @Test
+    void rebuild_parallelMatchesSequential() {
+        int count = 5000;
+        int[] ids = new int[count];
+        String[] titles = new String[count];
+        String[] descriptions = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = count - i;
+            titles[i] = "Задача " + (i % 37);
+            descriptions[i] = "слово" + (i % 11) + " общее";
+        }
+        TextIndex sequential = new TextIndex();
+        sequential.rebuild(ids, titles, descriptions, false);
+        index.rebuild(ids, titles, descriptions, true);
+
+        assertEquals(sequential.termCount(), index.termCount());
+        for (String query : List.of("задача 5", "слово3", "общее", "36")) {
+            assertArrayEquals(sequential.search(query, 50), index.search(query, 50), query);
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.manager.Managers;
+import kanbanboard.manager.history.ConcurrentHistoryManager;
+import kanbanboard.manager.history.InMemoryHistoryManager;
+import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
+import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest {
+    private static final int THREADS = 8;
+
+    private TaskManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = Managers.getConcurrent(Managers.getConcurrentHistoryManager());
+    }
+
+    @Test
+    void createSubtask_updatesEpicStatus() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+
+        subtask.setStatus(Status.DONE);
+        manager.updateSubtask(subtask);
+
+        assertEquals(Status.DONE, manager.getEpic(epic.getId()).getStatus());
+        assertEquals(1, manager.getAllSubtasksOfEpic(epic.getId()).size());
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.DONE));
+        assertEquals(1, manager.countByStatus(TaskType.SUBTASK, Status.DONE));
+    }
+
+    @Test
+    void createSubtask_returnNull_epicNotExists() {
+        assertNull(manager.createSubtask(new Subtask("Подзадача", "Описание", 42)));
+        assertTrue(manager.getSubtask().isEmpty());
+    }
+
+    @Test
+    void deleteEpic_removesSubtasksAndHistory() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        manager.getSubtask(subtask.getId());
+        manager.getEpic(epic.getId());
+
+        manager.deleteEpic(epic.getId());
+
+        assertTrue(manager.getSubtask().isEmpty());
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void concurrentCreate_assignsUniqueIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Integer> ids = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        ids.add(manager.createTask(new Task("Задача", "Описание")).getId());
+                    }
+                    return ids;
+                }));
+            }
+            Set<Integer> ids = new HashSet<>();
+            for (Future<List<Integer>> future : futures) {
+                ids.addAll(future.get());
+            }
+            assertEquals(THREADS * 1000, ids.size());
+            assertEquals(THREADS * 1000, manager.getTask().size());
+            assertEquals(THREADS * 1000, manager.countByStatus(TaskType.TASK, Status.NEW));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentSubtasks_keepEpicsConsistent() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            epics.add(manager.createEpic(new Epic("Эпик " + i, "Описание")));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int epicId = epics.get(t % epics.size()).getId();
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epicId));
+                        subtask.setStatus(Status.DONE);
+                        manager.updateSubtask(subtask);
+                        if (i % 2 == 0) {
+                            manager.deleteSubtask(subtask.getId());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (Epic epic : epics) {
+            assertEquals(2 * 250, manager.getAllSubtasksOfEpic(epic.getId()).size());
+            assertEquals(Status.DONE, epic.getStatus());
+        }
+        assertEquals(THREADS * 250, manager.getSubtask().size());
+    }
+
+    @Test
+    void updateSubtask_anotherEpicId_movesSubtaskBetweenEpics() {
+        Epic source = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        Epic target = manager.createEpic(new Epic("Эпик 2", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", source.getId()));
+
+        manager.updateSubtask(new Subtask("Подзадача", "Описание", target.getId(), Status.DONE, subtask.getId()));
+
+        assertTrue(manager.getAllSubtasksOfEpic(source.getId()).isEmpty());
+        assertEquals(Status.NEW, source.getStatus());
+        assertEquals(1, manager.getAllSubtasksOfEpic(target.getId()).size());
+        assertEquals(Status.DONE, target.getStatus());
+        assertNull(manager.updateSubtask(new Subtask("Подзадача", "Описание", 100, Status.NEW, subtask.getId())),
+                "Перенос в отсутствующий эпик не должен выполняться");
+    }
+
+    @Test
+    void updateSubtask_subtaskChangedInPlace_keepsEpicStatusInSync() {
+        Epic source = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        Epic target = manager.createEpic(new Epic("Эпик 2", "Описание"));
+        Subtask first = manager.createSubtask(new Subtask("Подзадача 1", "Описание", source.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Подзадача 2", "Описание", source.getId()));
+
+        // Прежний статус берется из индекса, а не из уже измененного объекта
+        first.setStatus(Status.DONE);
+        manager.updateSubtask(first);
+        assertEquals(Status.IN_PROGRESS, source.getStatus());
+        second.setStatus(Status.DONE);
+        manager.updateSubtask(second);
+        assertEquals(Status.DONE, source.getStatus());
+
+        manager.updateSubtask(new Subtask("Подзадача 2", "Описание", target.getId(), Status.NEW, second.getId()));
+        assertEquals(Status.DONE, source.getStatus());
+        assertEquals(Status.NEW, target.getStatus());
+
+        manager.deleteSubtask(first.getId());
+        assertEquals(Status.NEW, source.getStatus(), "Эпик без подзадач должен быть новым");
+    }
+
+    @Test
+    void largestEpicFanOut_followsMovesAndDeletes() {
+        Epic source = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        Epic target = manager.createEpic(new Epic("Эпик 2", "Описание"));
+        Subtask first = manager.createSubtask(new Subtask("Подзадача 1", "Описание", source.getId()));
+        manager.createSubtask(new Subtask("Подзадача 2", "Описание", source.getId()));
+        assertEquals(2, manager.largestEpicFanOut());
+
+        manager.updateSubtask(new Subtask("Подзадача 1", "Описание", target.getId(), Status.NEW, first.getId()));
+        assertEquals(1, manager.largestEpicFanOut());
+
+        manager.deleteEpic(source.getId());
+        manager.deleteSubtask(first.getId());
+        assertEquals(0, manager.largestEpicFanOut());
+    }
+
+    @Test
+    void concurrentMovesAndDeletes_keepEpicsConsistent() throws Exception {
+        Epic first = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        Epic second = manager.createEpic(new Epic("Эпик 2", "Описание"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(manager.createSubtask(new Subtask("Подзадача", "Описание", first.getId())).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 50; round++) {
+                        for (int i = thread; i < ids.size(); i += THREADS / 2) {
+                            if (thread == 0 && round == 49 && i % 4 == 0) {
+                                manager.deleteSubtask(ids.get(i));
+                                continue;
+                            }
+                            int epicId = (round + thread) % 2 == 0 ? first.getId() : second.getId();
+                            manager.updateSubtask(new Subtask("Подзадача", "Описание", epicId,
+                                    round % 3 == 0 ? Status.DONE : Status.NEW, ids.get(i)));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        int listed = 0;
+        for (Epic epic : List.of(first, second)) {
+            List<Subtask> subtasks = manager.getAllSubtasksOfEpic(epic.getId());
+            for (Subtask subtask : subtasks) {
+                assertEquals(epic.getId(), subtask.getEpicId(), "Подзадача в списке чужого эпика");
+            }
+            assertEquals(InMemoryTaskManager.calculateEpicStatus(subtasks), epic.getStatus());
+            listed += subtasks.size();
+        }
+        assertEquals(manager.getSubtask().size(), listed, "Подзадача потеряна или учтена дважды");
+    }
+
+    @Test
+    void snapshot_isNotAffectedByLaterChanges() {
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        TaskSnapshot snapshot = manager.snapshot();
+
+        manager.updateSubtask(new Subtask("Подзадача", "Описание", epic.getId(), Status.DONE, subtask.getId()));
+        manager.deleteTask(task.getId());
+        manager.createSubtask(new Subtask("Подзадача 2", "Описание", epic.getId()));
+
+        assertEquals(Status.NEW, snapshot.getEpic(epic.getId()).getStatus(), "Статус эпика в снимке изменился");
+        assertEquals("Задача", snapshot.getTask(task.getId()).getTitle());
+        assertEquals(1, snapshot.getAllSubtasksOfEpic(epic.getId()).size());
+        TaskSnapshot next = manager.snapshot();
+        assertNull(next.getTask(task.getId()));
+        assertEquals(Status.IN_PROGRESS, next.getEpic(epic.getId()).getStatus());
+        assertEquals(2, next.getAllSubtasksOfEpic(epic.getId()).size());
+        assertTrue(next.getVersion() > snapshot.getVersion());
+        assertEquals(next.getVersion(), manager.snapshot().getVersion());
+    }
+
+    @Test
+    void snapshot_unchanged_reusesPublishedSnapshot() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        TaskSnapshot snapshot = manager.snapshot();
+
+        assertSame(snapshot, manager.snapshot(), "Без изменений снимок копируется заново");
+        manager.getEpic(epic.getId());
+        assertSame(snapshot, manager.snapshot(), "Просмотр изменил версию");
+        manager.createTask(new Task("Задача", "Описание"));
+        assertEquals(snapshot.getVersion() + 1, manager.snapshot().getVersion());
+    }
+
+    @Test
+    void concurrentSnapshots_seeConsistentEpics() throws Exception {
+        Epic first = manager.createEpic(new Epic("Эпик 1", "Описание"));
+        Epic second = manager.createEpic(new Epic("Эпик 2", "Описание"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(manager.createSubtask(new Subtask("Подзадача", "Описание", first.getId())).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS - 1; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int round = 0; round < 30; round++) {
+                        for (int i = thread; i < ids.size(); i += THREADS - 1) {
+                            int epicId = (round + i) % 2 == 0 ? first.getId() : second.getId();
+                            manager.updateSubtask(new Subtask("Подзадача", "Описание", epicId,
+                                    Status.NEW, ids.get(i)));
+                        }
+                        manager.createTask(new Task("Задача", "Описание"));
+                    }
+                }));
+            }
+            Future<?> reader = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    TaskSnapshot snapshot = manager.snapshot();
+                    int listed = 0;
+                    for (Epic epic : List.of(first, second)) {
+                        for (Subtask subtask : snapshot.getAllSubtasksOfEpic(epic.getId())) {
+                            assertEquals(epic.getId(), subtask.getEpicId(), "Подзадача в списке чужого эпика");
+                            listed++;
+                        }
+                    }
+                    assertEquals(ids.size(), listed, "Снимок застал перенос подзадачи посередине");
+                    assertEquals(ids.size(), snapshot.count(TaskType.SUBTASK));
+                }
+            });
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            reader.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals((THREADS - 1) * 30, manager.snapshot().count(TaskType.TASK));
+    }
+
+    @Test
+    void getHistory_resolvesTasks_historyStoresIdsOnly() {
+        manager = Managers.getConcurrent(new ConcurrentHistoryManager(new InMemoryHistoryManager(2, true), 1));
+        for (int i = 0; i < 3; i++) {
+            manager.getTask(manager.createTask(new Task("Задача " + i, "Описание")).getId());
+        }
+        manager.getTask(2).setTitle("Новый заголовок");
+
+        List<Task> history = manager.getHistory();
+        assertEquals(2, history.size());
+        assertEquals(3, history.get(0).getId());
+        assertEquals("Новый заголовок", history.get(1).getTitle());
+    }
+
+    @Test
+    void getTaskPage_returnsTasksInIdOrder() {
+        for (int i = 1; i <= 5; i++) {
+            manager.createTask(new Task("Задача " + i, "Описание"));
+        }
+        manager.deleteTask(2);
+
+        assertEquals(List.of(1, 3), manager.getTaskPage(0, 2).stream().map(Task::getId).toList());
+        assertEquals(List.of(4, 5), manager.getTaskPage(3, 2).stream().map(Task::getId).toList());
+        assertEquals(List.of(3, 4), manager.getTaskRange(2, 4).stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void streamTasks_returnsTasksInIdOrderAndSkipsDeleted() {
+        for (int i = 1; i <= 4; i++) {
+            manager.createTask(new Task("Задача " + i, "Описание"));
+        }
+        manager.deleteTask(2);
+
+        assertEquals(List.of(1, 3, 4), manager.streamTasks().map(Task::getId).toList());
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        assertEquals(List.of(subtask), manager.streamSubtasksOfEpic(epic.getId()).toList());
+    }
+
+    @Test
+    void bulkOperations_createAndDeleteAcrossTypes() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        List<Subtask> subtasks = manager.createSubtasks(List.of(
+                new Subtask("Подзадача 1", "Описание", epic.getId()),
+                new Subtask("Подзадача 2", "Описание", epic.getId())));
+        List<Task> tasks = manager.createTasks(List.of(new Task("Задача", "Описание")));
+
+        manager.deleteByIds(List.of(subtasks.get(0).getId(), tasks.get(0).getId()));
+
+        assertEquals(List.of(subtasks.get(1)), manager.getAllSubtasksOfEpic(epic.getId()));
+        assertEquals(0, manager.count(TaskType.TASK));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.createSubtasks(List.of(new Subtask("Подзадача", "Описание", 100))));
+    }
+
+    @Test
+    void inTransaction_exception_rollsBackAllChanges() {
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Epic other = manager.createEpic(new Epic("Эпик 2", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        manager.getTask(task.getId());
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            tx.createTask(new Task("Новая задача", "Описание"));
+            tx.updateSubtask(new Subtask("Подзадача", "Описание", other.getId(), Status.DONE, subtask.getId()));
+            tx.createSubtask(new Subtask("Подзадача 2", "Описание", epic.getId()));
+            tx.deleteTask(task.getId());
+            tx.getEpic(epic.getId());
+            throw new IllegalStateException("Отмена");
+        }));
+
+        assertEquals(List.of(task), manager.getTasksByStatus(Status.NEW));
+        assertEquals(1, manager.count(TaskType.TASK));
+        assertEquals(epic.getId(), manager.getSubtask(subtask.getId()).getEpicId());
+        assertEquals(List.of(subtask.getId()), manager.getEpic(epic.getId()).getSubtasksIds());
+        assertTrue(manager.getAllSubtasksOfEpic(other.getId()).isEmpty());
+        assertEquals(Status.NEW, manager.getEpic(other.getId()).getStatus());
+        assertEquals(1, manager.count(TaskType.SUBTASK));
+        assertEquals(1, manager.snapshot().count(TaskType.SUBTASK));
+        assertEquals(List.of(task.getId(), subtask.getId(), epic.getId(), other.getId()),
+                manager.getHistory().stream().map(Task::getId).toList(),
+                "Просмотр в отмененной транзакции попал в историю");
+
+        manager.updateSubtask(new Subtask("Подзадача", "Описание", epic.getId(), Status.DONE, subtask.getId()));
+        assertEquals(Status.DONE, manager.getEpic(epic.getId()).getStatus(), "Статус эпика после отката неверен");
+    }
+
+    @Test
+    void inTransaction_concurrentSnapshots_seeOnlyCommittedState() throws Exception {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    manager.inTransaction(tx -> {
+                        tx.createTask(new Task("Задача", "Описание"));
+                        tx.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+                        return null;
+                    });
+                }
+            });
+            Future<?> reader = executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    TaskSnapshot snapshot = manager.snapshot();
+                    assertEquals(snapshot.count(TaskType.TASK), snapshot.count(TaskType.SUBTASK),
+                            "Снимок застал транзакцию посередине");
+                }
+            });
+            writer.get();
+            reader.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(200, manager.getAllSubtasksOfEpic(epic.getId()).size());
+    }
+}
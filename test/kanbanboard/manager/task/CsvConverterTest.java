@@ -3,6 +3,13 @@ package kanbanboard.manager.task;
 import kanbanboard.model.*;
 import org.junit.jupiter.api.Test;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class CsvConverterTest {
@@ -114,4 +121,51 @@ class CsvConverterTest {
         assertThrows(IllegalArgumentException.class, () -> converter.fromCsvString(invalidLine),
                 "Должно быть выброшено исключение для неизвестного типа задачи");
     }
-}
\ No newline at end of file
+
+    @Test
+    void toCsvString_buffers_matchStringFormatOutput() {
+        Task task = new Task("Задача 😀", null, Status.IN_PROGRESS, -42);
+        Epic epic = new Epic("Эпик", "Описание эпика");
+        epic.setId(Integer.MAX_VALUE);
+        Subtask subtask = new Subtask("Subtask", "Описание", 1_000_000, Status.DONE, 0);
+
+        assertEquals(String.format("%d,%s,%s,%s,%s,", -42, TaskType.TASK, "Задача 😀", Status.IN_PROGRESS, null),
+                converter.toCsvString(task));
+        assertEquals(String.format("%d,%s,%s,%s,%s,%d", 0, TaskType.SUBTASK, "Subtask", Status.DONE, "Описание",
+                1_000_000), converter.toCsvString(subtask));
+
+        for (Task entity : List.of(task, epic, subtask)) {
+            String expected = toCsvStringByType(entity);
+            CharBuffer chars = CharBuffer.allocate(128);
+            ByteBuffer bytes = ByteBuffer.allocate(128);
+            if (entity instanceof Epic) {
+                converter.toCsvString((Epic) entity, chars);
+                converter.toCsvString((Epic) entity, bytes);
+            } else if (entity instanceof Subtask) {
+                converter.toCsvString((Subtask) entity, chars);
+                converter.toCsvString((Subtask) entity, bytes);
+            } else {
+                converter.toCsvString(entity, chars);
+                converter.toCsvString(entity, bytes);
+            }
+            assertEquals(expected, chars.flip().toString(), "CharBuffer: вывод отличается");
+            assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+                    Arrays.copyOf(bytes.array(), bytes.position()), "ByteBuffer: вывод отличается");
+        }
+    }
+
+    private String toCsvStringByType(Task entity) {
+        if (entity instanceof Epic) {
+            return converter.toCsvString((Epic) entity);
+        } else if (entity instanceof Subtask) {
+            return converter.toCsvString((Subtask) entity);
+        }
+        return converter.toCsvString(entity);
+    }
+
+    @Test
+    void toCsvString_bufferTooSmall_throwsBufferOverflowException() {
+        Task task = new Task("Task 1", "Description", Status.NEW, 1);
+        assertThrows(BufferOverflowException.class, () -> converter.toCsvString(task, ByteBuffer.allocate(8)));
+    }
+}
@@ -0,0 +1,62 @@
+package kanbanboard.manager.task;
+
+import kanbanboard.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvStreamLoaderTest {
+
+    private List<Task> load(String csv, int bufferSize) throws IOException {
+        List<Task> loaded = new ArrayList<>();
+        new CsvStreamLoader(bufferSize).load(new StringReader(csv), loaded::add);
+        return loaded;
+    }
+
+    @Test
+    void load_allTypes_parsedLikeCsvConverter() throws IOException {
+        String csv = "id,type,name,status,description,epic\n"
+                + "1,TASK,Задача,IN_PROGRESS,Описание,\n"
+                + "2,EPIC,Эпик,DONE,Описание эпика,\n"
+                + "3,SUBTASK,Подзадача,DONE,Описание подзадачи,2\n";
+
+        List<Task> loaded = load(csv, 8192);
+
+        assertEquals(3, loaded.size());
+        assertEquals(Status.IN_PROGRESS, loaded.get(0).getStatus());
+        assertInstanceOf(Epic.class, loaded.get(1));
+        assertEquals(Status.NEW, loaded.get(1).getStatus(), "Статус эпика не должен читаться из файла");
+        Subtask subtask = assertInstanceOf(Subtask.class, loaded.get(2));
+        assertEquals(3, subtask.getId());
+        assertEquals(2, subtask.getEpicId());
+        assertEquals("Описание подзадачи", subtask.getDescription());
+    }
+
+    @Test
+    void load_rowsLongerThanBuffer_crlfAndBlankLines() throws IOException {
+        StringBuilder csv = new StringBuilder("id,type,name,status,description,epic\r\n");
+        String longDescription = "о".repeat(100);
+        for (int i = 1; i <= 50; i++) {
+            csv.append(i).append(",TASK,Задача ").append(i).append(",NEW,").append(longDescription).append(",\r\n");
+            csv.append("\r\n");
+        }
+
+        List<Task> loaded = load(csv.toString(), 16);
+
+        assertEquals(50, loaded.size(), "Строки длиннее буфера потеряны");
+        assertEquals("Задача 50", loaded.get(49).getTitle());
+        assertEquals(longDescription, loaded.get(49).getDescription(), "Символ \\r попал в данные");
+    }
+
+    @Test
+    void load_invalidRows_throwIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> load("header\n1,TASK,Title,NEW", 64));
+        assertThrows(IllegalArgumentException.class, () -> load("header\n1,INVALID,Title,NEW,Description,", 64));
+        assertThrows(IllegalArgumentException.class, () -> load("header\nx,TASK,Title,NEW,Description,", 64));
+    }
+}
@@ -2,13 +2,20 @@ package kanbanboard.manager.task;
 
 import kanbanboard.manager.history.InMemoryHistoryManager;
 import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
+import kanbanboard.model.Subtask;
 import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
+import kanbanboard.util.EntityStoreType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -64,4 +71,423 @@ class FileBackedTaskManagerTest extends InMemoryTaskManagerTest {
         assertTrue(loadedManager.getEpic().isEmpty(), "Менеджер должен быть пустым");
         assertEquals(0, loadedManager.countId, "Счетчик ID должен быть 0");
     }
-}
\ No newline at end of file
+
+    @Test
+    void journal_mutationAppendsRecord_snapshotNotRewritten() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+
+        journaled.createTask(new Task("Journal Task", "Description"));
+
+        String snapshot = Files.readString(tempFile.toPath());
+        String journal = Files.readString(FileBackedTaskManager.getJournalFile(tempFile).toPath());
+        assertFalse(snapshot.contains("Journal Task"), "Снимок не должен переписываться при каждом изменении");
+        assertTrue(journal.startsWith("CREATE,1,TASK,Journal Task"), "Изменение должно попасть в журнал");
+    }
+
+    @Test
+    void journal_loadFromFile_replaysJournalTail() {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+        journaled.createTask(new Task("Задача", "Описание"));
+        journaled.createEpic(new Epic("Эпик", "Описание"));
+        journaled.createSubtask(new Subtask("Подзадача 1", "Описание", 2));
+        journaled.createSubtask(new Subtask("Подзадача 2", "Описание", 2));
+        journaled.updateSubtask(new Subtask("Подзадача 1", "Описание", 2, Status.DONE, 3));
+        journaled.deleteTask(1);
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+
+        assertNull(restored.getTask(1), "Удаленная задача восстановлена из журнала");
+        assertEquals(Status.IN_PROGRESS, restored.getEpic(2).getStatus(), "Статус эпика не пересчитан");
+        assertEquals(2, restored.getEpic(2).getSubtasksIds().size(), "Подзадачи эпика не восстановлены");
+        assertEquals(Status.DONE, restored.getSubtask(3).getStatus(), "Обновление подзадачи не применено");
+        assertEquals(4, restored.countId, "Счетчик ID должен быть восстановлен");
+    }
+
+    @Test
+    void journal_checkpoint_writesSnapshotAndTruncatesJournal() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(2));
+        journaled.createTask(new Task("Задача 1", "Описание"));
+        journaled.createTask(new Task("Задача 2", "Описание"));
+
+        assertTrue(Files.readString(tempFile.toPath()).contains("Задача 2"), "Контрольная точка не записана");
+        assertEquals(List.of("BASE"),
+                Files.readAllLines(FileBackedTaskManager.getJournalFile(tempFile).toPath()).stream()
+                        .map(line -> line.split(",")[0]).toList(),
+                "Журнал не очищен после контрольной точки");
+
+        journaled.createTask(new Task("Задача 3", "Описание"));
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(2));
+        assertEquals(3, restored.getTask().size(), "Снимок и хвост журнала загружены не полностью");
+    }
+
+    @Test
+    void asyncDurability_flush_persistsAllQueuedChanges() {
+        FileBackedTaskManager async = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), tempFile,
+                StorageOptions.journal(1000).withDurability(DurabilityMode.ASYNC).withQueueCapacity(8));
+        async.createEpic(new Epic("Эпик", "Описание"));
+        for (int i = 0; i < 100; i++) {
+            async.createSubtask(new Subtask("Подзадача " + i, "Описание", 1));
+        }
+        async.flush();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(1000));
+        assertEquals(100, restored.getEpic(1).getSubtasksIds().size(), "Не все изменения записаны после flush");
+        async.close();
+    }
+
+    @Test
+    void periodicDurability_close_writesPendingSnapshot() throws IOException {
+        FileBackedTaskManager periodic = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), tempFile,
+                StorageOptions.snapshot().withDurability(DurabilityMode.PERIODIC).withFlushInterval(60_000));
+        periodic.createTask(new Task("Задача 1", "Описание"));
+        periodic.createTask(new Task("Задача 2", "Описание"));
+        periodic.close();
+
+        String fileContent = Files.readString(tempFile.toPath());
+        assertTrue(fileContent.contains("Задача 1") && fileContent.contains("Задача 2"),
+                "Накопленные изменения не записаны при закрытии");
+        assertThrows(IllegalStateException.class, () -> periodic.createTask(new Task("Задача 3", "Описание")),
+                "После закрытия изменения не должны приниматься");
+    }
+
+    @Test
+    void syncDurability_writesBeforeReturning() throws IOException {
+        FileBackedTaskManager sync = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), tempFile,
+                StorageOptions.journal(1000).withDurability(DurabilityMode.SYNC));
+        sync.createTask(new Task("Задача", "Описание"));
+
+        String journal = Files.readString(FileBackedTaskManager.getJournalFile(tempFile).toPath());
+        assertTrue(journal.contains("Задача"), "Изменение не записано синхронно");
+        sync.close();
+    }
+
+    @Test
+    void journal_concurrentUpdates_replayedInMutationOrder() throws InterruptedException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100_000));
+        Task task = journaled.createTask(new Task("Задача", "Описание"));
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    journaled.updateTask(new Task("Задача " + writer + "-" + i, "Описание", Status.NEW, task.getId()));
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        journaled.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100_000));
+
+        assertEquals(journaled.getTask(task.getId()).getTitle(), restored.getTask(task.getId()).getTitle(),
+                "Журнал записан не в порядке изменений");
+    }
+
+    @Test
+    void loadFromFile_corruptedSnapshot_fallsBackToPreviousGeneration() throws IOException {
+        manager.createTask(new Task("Задача 1", "Описание"));
+        manager.createTask(new Task("Задача 2", "Описание"));
+        // Имитируем поврежденный снимок
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic\n1,TASK,Обрыв");
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile);
+
+        assertEquals(1, loadedManager.getTask().size(), "Должно быть загружено предыдущее поколение снимка");
+        assertEquals("Задача 1", loadedManager.getTask(1).getTitle());
+    }
+
+    @Test
+    void loadFromFile_missingFile_throwsManagerSaveException() {
+        File missing = new File(tempFile.getPath() + ".missing");
+
+        assertThrows(ManagerSaveException.class,
+                () -> FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), missing));
+    }
+
+    @Test
+    void journal_corruptedSnapshot_journalFromBackup_restoresAllChanges() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+        journaled.createTask(new Task("Задача 1", "Описание"));
+        journaled.checkpoint();
+        journaled.createTask(new Task("Задача 2", "Описание"));
+        File journalFile = FileBackedTaskManager.getJournalFile(tempFile);
+        byte[] journalBeforeCheckpoint = Files.readAllBytes(journalFile.toPath());
+        journaled.checkpoint();
+        journaled.close();
+        // Сбой между записью нового снимка и очисткой журнала, затем повреждение снимка
+        Files.write(journalFile.toPath(), journalBeforeCheckpoint);
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic\n1,TASK,Обрыв");
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+
+        assertEquals(2, restored.getTask().size(), "Резервный снимок и журнал должны дать полное состояние");
+    }
+
+    @Test
+    void journal_corruptedSnapshot_journalFromNewerSnapshot_throwsManagerSaveException() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+        journaled.createTask(new Task("Задача 1", "Описание"));
+        journaled.checkpoint();
+        journaled.createTask(new Task("Задача 2", "Описание"));
+        journaled.checkpoint();
+        journaled.createTask(new Task("Задача 3", "Описание"));
+        journaled.close();
+        Files.writeString(tempFile.toPath(), "id,type,name,status,description,epic\n1,TASK,Обрыв");
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100)),
+                "Резервное поколение без задачи 2 не должно загружаться молча");
+    }
+
+    @Test
+    void binaryFormat_loadFromFile_restoresManagerState() throws IOException {
+        File binaryFile = File.createTempFile("tasks", StorageFormat.BINARY_EXTENSION);
+        FileBackedTaskManager binary = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), binaryFile);
+        binary.createTask(new Task("Задача", null));
+        binary.createEpic(new Epic("Эпик", "Описание эпика"));
+        binary.createSubtask(new Subtask("Подзадача", "Описание, с запятой", 2, Status.DONE, 0));
+
+        byte[] header = Arrays.copyOf(Files.readAllBytes(binaryFile.toPath()), 4);
+        assertArrayEquals(new byte[]{'K', 'N', 'B', 'N'}, header, "Снимок должен быть записан в двоичном формате");
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), binaryFile);
+        assertNull(restored.getTask(1).getDescription(), "null в описании не сохранен");
+        assertEquals(Status.DONE, restored.getEpic(2).getStatus(), "Статус эпика не пересчитан");
+        assertEquals("Описание, с запятой", restored.getSubtask(3).getDescription());
+        assertEquals(3, restored.countId, "Счетчик ID должен быть восстановлен");
+    }
+
+    @Test
+    void binaryFormat_exportToCsvAndImportFromCsv_roundTrip() throws IOException {
+        File binaryFile = File.createTempFile("tasks", ".dat");
+        File csvFile = File.createTempFile("export", ".csv");
+        FileBackedTaskManager binary = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(), binaryFile,
+                StorageOptions.snapshot().withFormat(StorageFormat.BINARY));
+        binary.createTask(new Task("Задача", "Описание"));
+        binary.exportToCsv(csvFile);
+
+        assertTrue(Files.readString(csvFile.toPath()).contains("1,TASK,Задача,NEW,Описание,"),
+                "Выгрузка в CSV должна быть читаемой");
+
+        FileBackedTaskManager imported = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(),
+                File.createTempFile("imported", StorageFormat.BINARY_EXTENSION));
+        imported.importFromCsv(csvFile);
+        assertEquals("Задача", imported.getTask(1).getTitle(), "Загрузка из CSV не выполнена");
+    }
+
+    @Test
+    void parallelLoad_subtasksInOtherChunks_linkedToEpics() {
+        for (int e = 0; e < 3; e++) {
+            Epic epic = manager.createEpic(new Epic("Эпик " + e, "Описание"));
+            for (int i = 0; i < 50; i++) {
+                manager.createSubtask(new Subtask("Подзадача " + i, "Описание", epic.getId(),
+                        i % 2 == 0 ? Status.DONE : Status.NEW, 0));
+            }
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(),
+                tempFile, StorageOptions.snapshot().withParallelLoad(128));
+
+        assertEquals(3, loadedManager.getEpic().size());
+        for (Epic epic : loadedManager.getEpic()) {
+            assertEquals(50, epic.getSubtasksIds().size(), "Подзадачи не связаны с эпиком");
+            assertEquals(Status.IN_PROGRESS, epic.getStatus(), "Статус эпика не пересчитан");
+        }
+        assertEquals(3, loadedManager.countByStatus(TaskType.EPIC, Status.IN_PROGRESS), "Индекс эпиков не перестроен");
+        assertEquals(75, loadedManager.getSubtasksByStatus(Status.DONE).size());
+        assertEquals(manager.countId, loadedManager.countId, "Счетчик ID должен быть восстановлен");
+    }
+
+    @Test
+    void parallelLoad_interleavedSubtasks_linkedInFileOrder() {
+        List<Epic> epics = new ArrayList<>();
+        for (int e = 0; e < 40; e++) {
+            epics.add(manager.createEpic(new Epic("Эпик " + e, "Описание")));
+        }
+        for (int i = 0; i < 20; i++) {
+            for (Epic epic : epics) {
+                manager.createSubtask(new Subtask("Подзадача " + i, "Описание", epic.getId()));
+            }
+        }
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(),
+                tempFile, StorageOptions.snapshot().withParallelLoad(128));
+
+        for (Epic epic : epics) {
+            assertEquals(epic.getSubtasksIds(), loadedManager.getEpic(epic.getId()).getSubtasksIds(),
+                    "Подзадачи эпика должны быть связаны в порядке файла");
+        }
+        assertEquals(20, loadedManager.largestEpicFanOut());
+    }
+
+    @Test
+    void loadFromFile_denseEntityStore_restoresBoard() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        manager.createTask(new Task("Задача", "Описание"));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(new InMemoryHistoryManager(),
+                tempFile, StorageOptions.snapshot().withEntityStore(EntityStoreType.DENSE));
+
+        assertEquals(1, loadedManager.getTask().size());
+        assertEquals(1, loadedManager.getAllSubtasksOfEpic(epic.getId()).size());
+        assertEquals(1, loadedManager.search("подзадача", 10).size(), "Поисковый индекс не восстановлен");
+        assertEquals(manager.countId, loadedManager.countId, "Счетчик ID должен быть восстановлен");
+    }
+
+    @Test
+    void snapshot_afterLoad_containsRestoredBoardAndIgnoresLaterChanges() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile);
+        TaskSnapshot snapshot = loadedManager.snapshot();
+        loadedManager.deleteEpic(epic.getId());
+
+        assertEquals(List.of(subtask), snapshot.getAllSubtasksOfEpic(epic.getId()));
+        assertEquals(0, loadedManager.snapshot().count(TaskType.EPIC));
+        assertTrue(loadedManager.snapshot().getVersion() > snapshot.getVersion());
+    }
+
+    @Test
+    void journal_bulkOperations_writtenAsOneBatchAndReplayed() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(10_000));
+        Epic epic = journaled.createEpic(new Epic("Эпик", "Описание"));
+        List<Subtask> batch = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            batch.add(new Subtask("Подзадача " + i, "Описание", epic.getId()));
+        }
+        journaled.createSubtasks(batch);
+        batch.get(0).setStatus(Status.DONE);
+        journaled.updateSubtasks(List.of(batch.get(0)));
+        journaled.deleteByIds(List.of(batch.get(1).getId(), 12_345));
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(10_000));
+
+        assertEquals(999, restored.getAllSubtasksOfEpic(epic.getId()).size());
+        assertEquals(Status.IN_PROGRESS, restored.getEpic(epic.getId()).getStatus());
+        assertEquals(Status.DONE, restored.getSubtask(batch.get(0).getId()).getStatus());
+        assertEquals(1_003, Files.readAllLines(FileBackedTaskManager.getJournalFile(tempFile).toPath()).size());
+    }
+
+    @Test
+    void journal_transaction_replayedOnlyWhenCommitted() throws IOException {
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+        Epic epic = journaled.createEpic(new Epic("Эпик", "Описание"));
+        journaled.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+            return tx.createTask(new Task("Задача", "Описание"));
+        });
+        assertThrows(IllegalStateException.class, () -> journaled.inTransaction(tx -> {
+            tx.deleteEpic(epic.getId());
+            throw new IllegalStateException("Отмена");
+        }));
+        assertNotNull(journaled.getEpic(epic.getId()), "Удаление эпика не откатилось");
+
+        File journalFile = FileBackedTaskManager.getJournalFile(tempFile);
+        List<String> lines = Files.readAllLines(journalFile.toPath());
+        assertEquals(List.of("BEGIN,1", "COMMIT,1"), List.of(lines.get(1), lines.get(4)));
+        // Транзакция, оборванная сбоем до записи COMMIT
+        Files.write(journalFile.toPath(), List.of("BEGIN,2", "DELETE,EPIC," + epic.getId()),
+                java.nio.file.StandardOpenOption.APPEND);
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.journal(100));
+
+        assertNotNull(restored.getEpic(epic.getId()), "Незавершенная транзакция применена");
+        assertEquals(1, restored.getAllSubtasksOfEpic(epic.getId()).size());
+        assertEquals(1, restored.getTask().size());
+    }
+
+    @Test
+    void historyLog_loadFromFile_restoresHistoryOrder() {
+        FileBackedTaskManager logged = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.snapshot().withHistoryLog());
+        Task first = logged.createTask(new Task("Задача 1", "Описание"));
+        Task second = logged.createTask(new Task("Задача 2", "Описание"));
+        Epic epic = logged.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = logged.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        logged.getTask(first.getId());
+        logged.getSubtask(subtask.getId());
+        logged.getTask(second.getId());
+        logged.getEpic(epic.getId());
+        logged.getTask(first.getId());
+        logged.deleteTask(second.getId());
+        logged.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.snapshot().withHistoryLog());
+
+        assertEquals(List.of(subtask.getId(), epic.getId(), first.getId()),
+                restored.getHistory().stream().map(Task::getId).toList());
+        restored.close();
+    }
+
+    @Test
+    void historyLog_manyViews_compactedInBackground() throws IOException {
+        FileBackedTaskManager logged = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.snapshot().withHistoryLog());
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            created.add(logged.createTask(new Task("Задача " + i, "Описание")));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            logged.getTask(created.get(i % 3).getId());
+        }
+        logged.flush();
+
+        File historyFile = FileBackedTaskManager.getHistoryFile(tempFile);
+        assertTrue(Files.readAllLines(historyFile.toPath()).size() < 2_000, "Журнал истории не сжимается");
+        logged.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(), tempFile, StorageOptions.snapshot().withHistoryLog());
+        assertEquals(List.of(created.get(2).getId(), created.get(0).getId(), created.get(1).getId()),
+                restored.getHistory().stream().map(Task::getId).toList());
+        restored.close();
+    }
+
+    @Test
+    void historyLog_manyDistinctViews_boundedByHistoryCapacity() throws IOException {
+        FileBackedTaskManager logged = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(10), tempFile, StorageOptions.snapshot().withHistoryLog());
+        List<Task> created = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            created.add(logged.createTask(new Task("Задача " + i, "Описание")));
+        }
+        for (Task task : created) {
+            logged.getTask(task.getId());
+        }
+        logged.flush();
+
+        File historyFile = FileBackedTaskManager.getHistoryFile(tempFile);
+        assertTrue(Files.readAllLines(historyFile.toPath()).size() < 2_000, "Модель журнала не ограничена историей");
+        List<Integer> expected = logged.getHistory().stream().map(Task::getId).toList();
+        logged.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(
+                new InMemoryHistoryManager(10), tempFile, StorageOptions.snapshot().withHistoryLog());
+        assertEquals(expected, restored.getHistory().stream().map(Task::getId).toList());
+        assertEquals(created.get(2_999).getId(), expected.get(9));
+        restored.close();
+    }
+}
@@ -1,13 +1,18 @@
 package kanbanboard.manager.task;
 
+import kanbanboard.manager.event.TaskEventBus;
 import kanbanboard.manager.history.InMemoryHistoryManager;
 import kanbanboard.model.Epic;
+import kanbanboard.model.Status;
 import kanbanboard.model.Subtask;
 import kanbanboard.model.Task;
+import kanbanboard.model.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -180,4 +185,352 @@ class InMemoryTaskManagerTest {
         assertTrue(epic.getSubtasksIds().contains(2), "Оригинальный ID подзадачи не сохранен в эпике");
         assertFalse(epic.getSubtasksIds().contains(999), "Новый ID подзадачи добавлен в эпик");
     }
-}
\ No newline at end of file
+
+    @Test
+    void updateSubtask_keepsEpicStatusInSync_subtaskChangedInPlace() {
+        manager.setVerifyEpicStatus(true);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask first = manager.createSubtask(new Subtask("Подзадача 1", "Описание", epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Подзадача 2", "Описание", epic.getId()));
+
+        first.setStatus(Status.DONE);
+        manager.updateSubtask(first);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        second.setStatus(Status.DONE);
+        manager.updateSubtask(second);
+        assertEquals(Status.DONE, epic.getStatus());
+
+        Subtask replacement = new Subtask("Подзадача 2", "Описание", epic.getId(), Status.NEW, second.getId());
+        manager.updateSubtask(replacement);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+
+        manager.deleteSubtask(replacement.getId());
+        assertEquals(Status.DONE, epic.getStatus());
+
+        manager.deleteSubtask(first.getId());
+        assertEquals(Status.NEW, epic.getStatus(), "Эпик без подзадач должен быть новым");
+    }
+
+    @Test
+    void updateSubtask_throwsException_countersOutOfSync() {
+        manager.setVerifyEpicStatus(true);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        // Подзадача, которой нет в эпике
+        manager.epicCounters.get(epic.getId()).add(Status.NEW);
+
+        subtask.setStatus(Status.DONE);
+
+        assertThrows(IllegalStateException.class, () -> manager.updateSubtask(subtask));
+    }
+
+    @Test
+    void getByStatus_followsUpdatesAndEpicStatus() {
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+
+        assertEquals(3, manager.getByStatus(Status.NEW).size());
+
+        subtask.setStatus(Status.IN_PROGRESS);
+        manager.updateSubtask(subtask);
+        task.setStatus(Status.DONE);
+        manager.updateTask(task);
+
+        assertEquals(List.of(subtask), manager.getSubtasksByStatus(Status.IN_PROGRESS));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.IN_PROGRESS), "Статус эпика не проиндексирован");
+        assertEquals(List.of(task), manager.getTasksByStatus(Status.DONE));
+        assertTrue(manager.getByStatus(Status.NEW).isEmpty());
+
+        manager.deleteSubtask(subtask.getId());
+        assertEquals(0, manager.countByStatus(TaskType.SUBTASK, Status.IN_PROGRESS));
+        assertEquals(1, manager.countByStatus(TaskType.EPIC, Status.NEW));
+        assertEquals(1, manager.count(TaskType.EPIC));
+        assertEquals(0, manager.count(TaskType.SUBTASK));
+    }
+
+    @Test
+    void search_followsUpdatesAndDeletes() {
+        Task task = manager.createTask(new Task("Купить молоко", "В магазине у дома"));
+        Epic epic = manager.createEpic(new Epic("Переезд", "Собрать вещи"));
+        Subtask subtask = manager.createSubtask(new Subtask("Купить коробки", "Для переезда", epic.getId()));
+
+        assertEquals(List.of(task, subtask), manager.search("купить", 10));
+
+        task.setTitle("Продать велосипед");
+        manager.updateTask(task);
+        assertEquals(List.of(subtask), manager.search("купить", 10));
+
+        manager.deleteEpic(epic.getId());
+        assertTrue(manager.search("переезд", 10).isEmpty());
+        assertTrue(manager.getHistory().isEmpty(), "Поиск не должен попадать в историю");
+    }
+
+    @Test
+    void getTaskPage_walksAllTasksInIdOrder() {
+        for (int i = 1; i <= 7; i++) {
+            manager.createTask(new Task("Задача " + i, "Описание"));
+        }
+        manager.deleteTask(3);
+
+        List<Task> first = manager.getTaskPage(0, 3);
+        assertEquals(List.of(1, 2, 4), first.stream().map(Task::getId).toList());
+        List<Task> second = manager.getTaskPage(first.get(first.size() - 1).getId(), 3);
+        assertEquals(List.of(5, 6, 7), second.stream().map(Task::getId).toList());
+        assertTrue(manager.getTaskPage(7, 3).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> manager.getTaskPage(0, 0));
+        assertTrue(manager.getHistory().isEmpty(), "Страницы не должны попадать в историю");
+    }
+
+    @Test
+    void getSubtaskRange_returnsInclusiveRangeInIdOrder() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        for (int i = 0; i < 4; i++) {
+            manager.createSubtask(new Subtask("Подзадача " + i, "Описание", epic.getId()));
+        }
+
+        assertEquals(List.of(3, 4), manager.getSubtaskRange(3, 4).stream().map(Task::getId).toList());
+        assertEquals(List.of(epic), manager.getEpicRange(0, 10));
+        assertTrue(manager.getSubtaskRange(4, 3).isEmpty());
+        assertEquals(List.of(2, 3, 4, 5), manager.getSubtask().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void forEachTask_allowsDeletingWhileTraversing() {
+        for (int i = 1; i <= 5; i++) {
+            manager.createTask(new Task("Задача " + i, "Описание"));
+        }
+        List<Integer> visited = new ArrayList<>();
+
+        manager.forEachTask(task -> {
+            visited.add(task.getId());
+            manager.deleteTask(task.getId() + 1);
+        });
+
+        assertEquals(List.of(1, 3, 5), visited, "Удаленные во время обхода задачи не пропущены");
+        assertEquals(3, manager.count(TaskType.TASK));
+    }
+
+    @Test
+    void streamSubtasks_supportsParallelAggregation() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        for (int i = 0; i < 2_000; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание", epic.getId());
+            subtask.setStatus(i % 2 == 0 ? Status.DONE : Status.NEW);
+            manager.createSubtask(subtask);
+        }
+
+        assertEquals(1_000, manager.streamSubtasks().parallel().filter(s -> s.getStatus() == Status.DONE).count());
+        assertEquals(manager.getSubtask(), manager.streamSubtasks().toList());
+        assertEquals(manager.getAllSubtasksOfEpic(epic.getId()),
+                manager.streamSubtasksOfEpic(epic.getId()).toList());
+        assertEquals(0, manager.streamSubtasksOfEpic(-1).count());
+    }
+
+    @Test
+    void snapshot_isNotAffectedByLaterChanges() {
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        TaskSnapshot snapshot = manager.snapshot();
+
+        subtask.setStatus(Status.DONE);
+        manager.updateSubtask(subtask);
+        task.setTitle("Новое название");
+        manager.updateTask(task);
+        manager.createSubtask(new Subtask("Подзадача 2", "Описание", epic.getId()));
+
+        assertEquals(Status.NEW, snapshot.getEpic(epic.getId()).getStatus(), "Статус эпика в снимке изменился");
+        assertEquals(Status.NEW, snapshot.getSubtask(subtask.getId()).getStatus());
+        assertEquals("Задача", snapshot.getTask(task.getId()).getTitle());
+        assertEquals(1, snapshot.getAllSubtasksOfEpic(epic.getId()).size());
+        assertEquals(Status.IN_PROGRESS, manager.snapshot().getEpic(epic.getId()).getStatus());
+        assertEquals(2, manager.snapshot().count(TaskType.SUBTASK));
+        assertTrue(manager.snapshot().getVersion() > snapshot.getVersion());
+        assertTrue(manager.getHistory().isEmpty(), "Снимок не должен попадать в историю");
+    }
+
+    @Test
+    void snapshot_manySubtasksInOneEpic_linearTime() {
+        // Без файла: в режиме синхронных снимков каждое изменение переписывает весь файл
+        InMemoryTaskManager manager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        int count = 80_000;
+        long start = System.nanoTime();
+        List<Subtask> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            created.add(manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId())));
+            if (i % 1_000 == 0) {
+                manager.snapshot();
+            }
+        }
+        TaskSnapshot full = manager.snapshot();
+        for (Subtask subtask : created) {
+            manager.deleteSubtask(subtask.getId());
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(count, full.getEpic(epic.getId()).getSubtaskCount());
+        assertEquals(count, full.count(TaskType.SUBTASK));
+        assertEquals(0, manager.snapshot().getEpic(epic.getId()).getSubtaskCount());
+        // Когда каждое изменение копировало эпик со всеми id подзадач, это занимало около минуты
+        assertTrue(millis < 5_000, "Создание и удаление подзадач заняло " + millis + " мс");
+    }
+
+    @Test
+    void createSubtasks_missingEpic_createsNothing() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        List<Subtask> batch = List.of(new Subtask("Подзадача", "Описание", epic.getId()),
+                new Subtask("Подзадача", "Описание", 100));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.createSubtasks(batch));
+        assertEquals(0, manager.count(TaskType.SUBTASK));
+        assertEquals(0, epic.getSubtaskCount());
+    }
+
+    @Test
+    void bulkOperations_updateEpicStatusAndHistory() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        List<Task> tasks = manager.createTasks(List.of(new Task("Задача 1", "Описание"), new Task("Задача 2", "Описание")));
+        List<Subtask> subtasks = manager.createSubtasks(List.of(
+                new Subtask("Подзадача 1", "Описание", epic.getId()),
+                new Subtask("Подзадача 2", "Описание", epic.getId())));
+        assertEquals(List.of(2, 3), tasks.stream().map(Task::getId).toList());
+        assertEquals(2, epic.getSubtaskCount());
+
+        for (Subtask subtask : subtasks) {
+            subtask.setStatus(Status.DONE);
+        }
+        manager.updateSubtasks(subtasks);
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.DONE));
+
+        manager.getTask(tasks.get(0).getId());
+        manager.getSubtask(subtasks.get(0).getId());
+        manager.deleteByIds(List.of(tasks.get(0).getId(), subtasks.get(0).getId(), 999));
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(List.of(subtasks.get(1).getId()), epic.getSubtasksIds());
+        assertTrue(manager.getHistory().isEmpty(), "Удаленные задачи остались в истории");
+        assertEquals(1, manager.count(TaskType.TASK));
+
+        Subtask missing = new Subtask("Подзадача", "Описание", epic.getId(), Status.NEW, 500);
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubtasks(List.of(subtasks.get(1), missing)));
+    }
+
+    @Test
+    void largestEpicFanOut_followsSubtaskChangesAndRollback() {
+        Epic big = manager.createEpic(new Epic("Большой", "Описание"));
+        Epic small = manager.createEpic(new Epic("Малый", "Описание"));
+        manager.createSubtasks(List.of(new Subtask("Подзадача 1", "Описание", big.getId()),
+                new Subtask("Подзадача 2", "Описание", big.getId()),
+                new Subtask("Подзадача 3", "Описание", small.getId())));
+        assertEquals(2, manager.largestEpicFanOut());
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            tx.createSubtask(new Subtask("Подзадача 4", "Описание", big.getId()));
+            assertEquals(3, tx.largestEpicFanOut());
+            throw new IllegalStateException("Отмена");
+        }));
+        assertEquals(2, manager.largestEpicFanOut(), "Откат не вернул максимум");
+
+        manager.deleteEpic(big.getId());
+        assertEquals(1, manager.largestEpicFanOut());
+        manager.deleteSubtask();
+        assertEquals(0, manager.largestEpicFanOut());
+    }
+
+    @Test
+    void inTransaction_exception_rollsBackAllChanges() {
+        Task task = manager.createTask(new Task("Купить молоко", "Описание"));
+        Epic epic = manager.createEpic(new Epic("Переезд", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Коробки", "Описание", epic.getId()));
+        manager.getTask(task.getId());
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            tx.createTask(new Task("Новая задача", "Описание"));
+            Subtask done = new Subtask("Коробки", "Описание", epic.getId(), Status.DONE, subtask.getId());
+            tx.updateSubtask(done);
+            tx.createSubtask(new Subtask("Скотч", "Описание", epic.getId()));
+            tx.deleteTask(task.getId());
+            tx.getEpic(epic.getId());
+            throw new IllegalStateException("Отмена");
+        }));
+
+        assertEquals(List.of(task), manager.getTasksByStatus(Status.NEW));
+        assertEquals(Status.NEW, manager.getSubtask(subtask.getId()).getStatus());
+        assertEquals(Status.NEW, manager.getEpic(epic.getId()).getStatus());
+        assertEquals(List.of(subtask.getId()), manager.getEpic(epic.getId()).getSubtasksIds());
+        assertEquals(List.of(task), manager.search("молоко", 10));
+        assertTrue(manager.search("скотч", 10).isEmpty());
+        assertEquals(1, manager.count(TaskType.TASK));
+        assertEquals(4, manager.createTask(new Task("Задача", "Описание")).getId(), "Счетчик ID не откатился");
+        assertEquals(List.of(task.getId(), subtask.getId(), epic.getId()),
+                manager.getHistory().stream().map(Task::getId).toList(), "Просмотр в отмененной транзакции попал в историю");
+
+        Subtask done = new Subtask("Коробки", "Описание", epic.getId(), Status.DONE, subtask.getId());
+        manager.updateSubtask(done);
+        assertEquals(Status.DONE, manager.getEpic(epic.getId()).getStatus(), "Статус эпика после отката неверен");
+    }
+
+    @Test
+    void inTransaction_snapshotPublishingDisabled_rollsBackFromUndoLog() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        manager.setSnapshotPublishing(false);
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            tx.updateSubtask(new Subtask("Подзадача", "Описание", epic.getId(), Status.DONE, subtask.getId()));
+            tx.deleteEpic(epic.getId());
+            throw new IllegalStateException("Отмена");
+        }));
+        manager.setSnapshotPublishing(true);
+
+        assertEquals(Status.NEW, manager.getSubtask(subtask.getId()).getStatus());
+        assertEquals(Status.NEW, manager.getEpic(epic.getId()).getStatus(), "Статус эпика, измененный на месте, не откатился");
+        assertEquals(List.of(subtask.getId()), manager.getEpic(epic.getId()).getSubtasksIds());
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.NEW));
+    }
+
+    @Test
+    void inTransaction_commit_appliesHistoryAtEnd() {
+        Task task = manager.createTask(new Task("Задача", "Описание"));
+
+        Task result = manager.inTransaction(tx -> {
+            tx.getTask(task.getId());
+            assertTrue(tx.getHistory().isEmpty(), "История изменилась до фиксации");
+            return tx.createTask(new Task("Задача 2", "Описание"));
+        });
+
+        assertEquals(2, result.getId());
+        assertEquals(List.of(task.getId()), manager.getHistory().stream().map(Task::getId).toList());
+        assertEquals(2, manager.snapshot().count(TaskType.TASK));
+    }
+
+    @Test
+    void setEventBus_publishesChangesAndEpicTransitions_skipsRolledBack() {
+        TaskEventBus bus = new TaskEventBus(64, 16);
+        List<String> events = new ArrayList<>();
+        bus.subscribe("test", (event, endOfBatch) -> events.add(event.getChangeType() + " " + event.getTaskType()
+                + " " + event.getId() + " " + event.getOldStatus() + "->" + event.getNewStatus()));
+        manager.setEventBus(bus);
+
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", epic.getId()));
+        manager.updateSubtask(new Subtask("Подзадача", "Описание", epic.getId(), Status.DONE, subtask.getId()));
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tx -> {
+            tx.createTask(new Task("Задача", "Описание"));
+            throw new IllegalStateException("Отмена");
+        }));
+        manager.deleteEpic(epic.getId());
+        bus.close();
+
+        assertEquals(List.of(
+                "CREATED EPIC 1 null->NEW",
+                "CREATED SUBTASK 2 null->NEW",
+                "UPDATED SUBTASK 2 NEW->DONE",
+                "UPDATED EPIC 1 NEW->DONE",
+                "DELETED SUBTASK 2 DONE->null",
+                "DELETED EPIC 1 DONE->null"), events);
+    }
+}
@@ -3,6 +3,9 @@ package kanbanboard.manager.task;
 import kanbanboard.manager.Managers;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ManagersTest {
@@ -13,4 +16,12 @@ class ManagersTest {
         assertNotNull(manager);
     }
 
+    @Test
+    void getFileBacked_returnNotNull() throws IOException {
+        File file = File.createTempFile("tasks", StorageFormat.BINARY_EXTENSION);
+        TaskManager manager = Managers.getFileBacked(Managers.getDefaultHistoryManager(), file,
+                StorageOptions.journal(10));
+        assertNotNull(manager);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package kanbanboard.manager.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvLoaderTest {
+
+    @Test
+    void load_smallChunks_keepsFileOrderAndMaxId() throws IOException {
+        StringBuilder csv = new StringBuilder("id,type,name,status,description,epic\n");
+        csv.append("1,EPIC,Эпик,NEW,Описание,\n");
+        for (int i = 2; i <= 500; i++) {
+            csv.append(i).append(",SUBTASK,Подзадача ").append(i).append(",DONE,Описание,1\n");
+        }
+        csv.append("501,TASK,Задача,NEW,Описание,\n");
+        Path file = Files.createTempFile("tasks", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(new ForkJoinPool(4), 256).load(file);
+
+        assertEquals(1, result.epics.size());
+        assertEquals(499, result.subtasks.size(), "Строки на границах фрагментов потеряны");
+        assertEquals(1, result.tasks.size());
+        for (int i = 0; i < result.subtasks.size(); i++) {
+            assertEquals(i + 2, result.subtasks.get(i).getId(), "Нарушен порядок строк файла");
+        }
+        assertEquals(501, result.maxId);
+    }
+
+    @Test
+    void load_headerOnly_returnsEmptyResult() throws IOException {
+        Path file = Files.createTempFile("tasks", ".csv");
+        Files.writeString(file, "id,type,name,status,description,epic\n");
+
+        ParallelCsvLoader.Result result = new ParallelCsvLoader(ForkJoinPool.commonPool(), 16).load(file);
+
+        assertTrue(result.tasks.isEmpty() && result.epics.isEmpty() && result.subtasks.isEmpty());
+        assertEquals(0, result.maxId);
+    }
+}
@@ -0,0 +1,47 @@
+package kanbanboard.manager.task;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileWriterTest {
+    private Path target;
+    private SnapshotFileWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        target = Files.createTempFile("snapshot", ".csv");
+        writer = new SnapshotFileWriter(target);
+    }
+
+    @Test
+    void write_contentLargerThanBuffer_writtenAsUtf8() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append(i).append(",TASK,Задача ").append(i).append(",NEW,Описание,\n");
+        }
+
+        writer.write(content, FsyncPolicy.FULL);
+
+        assertEquals(content.toString(), Files.readString(target, StandardCharsets.UTF_8),
+                "Содержимое снимка искажено при записи");
+        assertFalse(Files.exists(SnapshotFileWriter.getTempFile(target)), "Временный файл не удален");
+    }
+
+    @Test
+    void write_keepsPreviousGenerationAsBackup() throws IOException {
+        writer.write("первое поколение", FsyncPolicy.NONE);
+        writer.write("второе поколение", FsyncPolicy.DATA);
+
+        assertEquals("второе поколение", Files.readString(target, StandardCharsets.UTF_8));
+        assertEquals("первое поколение",
+                Files.readString(SnapshotFileWriter.getBackupFile(target), StandardCharsets.UTF_8),
+                "Предыдущее поколение снимка не сохранено");
+    }
+}
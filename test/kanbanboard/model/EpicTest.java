@@ -2,6 +2,9 @@ package kanbanboard.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class EpicTest {
@@ -24,7 +27,7 @@ class EpicTest {
     // Задание: проверьте, что объект Epic нельзя добавить в самого себя в виде подзадачи
     // У меня Epic при добавлении подзадачи принимает объект Subtask, поэтому при добавлении Epic в качестве
     // подзадачи получаю ошибку компиляции.
-    // В этом тесте я проверяю, что в список ArrayList<Integer> subtasksIds Эпика не будет добавлен ID Эпика
+    // В этом тесте я проверяю, что в список subtasksIds Эпика не будет добавлен ID Эпика
     @Test
     void addSubtask_subtaskNutAdded_subtaskIdEqualsEpicId() {
         // Создаём Эпик
@@ -43,4 +46,44 @@ class EpicTest {
         assertTrue(epic.getSubtasksIds().isEmpty(), "В список добавлен ID Эпика");
     }
 
-}
\ No newline at end of file
+    @Test
+    void addSubtask_ignoresDuplicateId() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        Subtask subtask = new Subtask("Подзадача", "Описание", 1);
+        subtask.setId(2);
+
+        epic.addSubtask(subtask);
+        epic.addSubtask(subtask);
+
+        assertEquals(1, epic.getSubtaskCount(), "ID подзадачи добавлен повторно");
+    }
+
+    @Test
+    void getSubtasksIds_returnsMutableCopy() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        Subtask subtask = new Subtask("Подзадача", "Описание", 1);
+        subtask.setId(2);
+        epic.addSubtask(subtask);
+
+        ArrayList<Integer> ids = epic.getSubtasksIds();
+        ids.add(3);
+
+        assertEquals(List.of(2), epic.getSubtaskIdsView(), "Изменение копии затронуло эпик");
+    }
+
+    @Test
+    void copyConstructor_copyNotAffectedBySource() {
+        Epic epic = new Epic("Эпик", "Описание");
+        epic.setId(1);
+        epic.addSubtaskId(2);
+        Epic copy = new Epic(epic);
+
+        epic.removeSubtask(2);
+        epic.addSubtaskId(3);
+
+        assertTrue(copy.containsSubtask(2), "Копия изменилась вместе с исходным эпиком");
+        assertFalse(copy.containsSubtask(3), "Копия изменилась вместе с исходным эпиком");
+    }
+}
@@ -0,0 +1,36 @@
+package kanbanboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DenseEntityStoreTest extends HashEntityStoreTest {
+
+    @Override
+    protected EntityStore<String> createStore() {
+        return new DenseEntityStore<>();
+    }
+
+    @Test
+    void values_iterateIdsInOrder() {
+        for (int id = 1; id <= 100; id++) {
+            store.put(id, "v" + id);
+        }
+        store.remove(50);
+
+        List<Integer> ids = new ArrayList<>(store.keySet());
+        assertEquals(99, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i), "Нарушен порядок обхода");
+        }
+    }
+
+    @Test
+    void put_throwsException_negativeId() {
+        assertThrows(IllegalArgumentException.class, () -> store.put(-1, "a"));
+        assertNull(store.get(-1));
+    }
+}
@@ -0,0 +1,107 @@
+package kanbanboard.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashEntityStoreTest {
+    protected EntityStore<String> store;
+
+    protected EntityStore<String> createStore() {
+        return new HashEntityStore<>();
+    }
+
+    @BeforeEach
+    void setUp() {
+        store = createStore();
+    }
+
+    @Test
+    void put_returnsPreviousValue() {
+        assertNull(store.put(1, "a"));
+        assertEquals("a", store.put(1, "b"));
+        assertEquals("b", store.get(1));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void replace_doesNotInsertMissingId() {
+        assertNull(store.replace(1, "a"));
+        assertFalse(store.containsKey(1));
+
+        store.put(1, "a");
+        assertEquals("a", store.replace(1, "b"));
+        assertEquals("b", store.get(1));
+    }
+
+    @Test
+    void values_iterateAllIdsAfterRemove() {
+        for (int id = 1; id <= 100; id++) {
+            store.put(id, "v" + id);
+        }
+        store.remove(50);
+
+        Set<Integer> ids = new HashSet<>(store.keySet());
+        assertEquals(99, ids.size());
+        assertEquals(99, store.values().size());
+        assertFalse(ids.contains(50));
+    }
+
+    @Test
+    void remove_manySequentialIds_linearTime() {
+        int count = 200_000;
+        for (int id = 1; id <= count; id++) {
+            store.put(id, "v");
+        }
+        long start = System.nanoTime();
+        for (int id = 1; id <= count; id++) {
+            assertEquals("v", store.remove(id));
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(store.isEmpty());
+        // С почти тождественным хешем удаление 200 000 последовательных id занимало десятки секунд
+        assertTrue(millis < 2_000, "Удаление последовательных id заняло " + millis + " мс");
+    }
+
+    @Test
+    void randomOperations_matchHashMap() {
+        Random random = new Random(7);
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int id = random.nextInt(5000);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(expected.remove(id), store.remove(id));
+                    break;
+                case 1:
+                    assertEquals(expected.replace(id, "r" + i), store.replace(id, "r" + i));
+                    break;
+                default:
+                    assertEquals(expected.put(id, "p" + i), store.put(id, "p" + i));
+            }
+        }
+        assertEquals(expected.size(), store.size());
+        for (int id = 0; id < 5000; id++) {
+            assertEquals(expected.get(id), store.get(id));
+        }
+    }
+
+    @Test
+    void clear_removesAllEntities() {
+        store.put(1, "a");
+        store.put(2, "b");
+        store.clear();
+
+        assertTrue(store.isEmpty());
+        assertNull(store.get(1));
+        assertFalse(store.values().iterator().hasNext());
+    }
+}
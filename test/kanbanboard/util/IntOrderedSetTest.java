@@ -0,0 +1,111 @@
+package kanbanboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntOrderedSetTest {
+
+    @Test
+    void add_keepsInsertionOrderWithoutDuplicates() {
+        IntOrderedSet set = new IntOrderedSet();
+        set.add(5);
+        set.add(-1);
+        set.add(7);
+        assertFalse(set.add(5), "Повторное значение добавлено");
+
+        assertEquals(List.of(5, -1, 7), set.asList());
+        assertEquals("[5, -1, 7]", set.toString());
+    }
+
+    @Test
+    void remove_reusesSlotAndKeepsOrder() {
+        IntOrderedSet set = new IntOrderedSet();
+        for (int i = 1; i <= 5; i++) {
+            set.add(i);
+        }
+        assertTrue(set.remove(3));
+        assertFalse(set.remove(3));
+        set.add(6);
+
+        assertArrayEquals(new int[]{1, 2, 4, 5, 6}, set.toArray());
+        assertFalse(set.contains(3));
+    }
+
+    @Test
+    void randomOperations_matchLinkedHashSet() {
+        Random random = new Random(42);
+        IntOrderedSet set = new IntOrderedSet();
+        LinkedHashSet<Integer> expected = new LinkedHashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        assertEquals(new ArrayList<>(expected), set.asList());
+        for (int value = -1000; value < 1000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    @Test
+    void copy_isIndependentOfSource() {
+        IntOrderedSet source = new IntOrderedSet();
+        source.add(1);
+        source.add(2);
+        IntOrderedSet copy = source.copy();
+
+        copy.add(3);
+        source.remove(1);
+
+        assertEquals(List.of(2), source.asList());
+        assertEquals(List.of(1, 2, 3), copy.asList());
+    }
+
+    @Test
+    void iterator_returnsValuesWithoutBoxing() {
+        IntOrderedSet set = new IntOrderedSet();
+        set.add(10);
+        set.add(20);
+
+        PrimitiveIterator.OfInt iterator = set.iterator();
+        int sum = 0;
+        while (iterator.hasNext()) {
+            sum += iterator.nextInt();
+        }
+        assertEquals(30, sum);
+    }
+
+    @Test
+    void asList_isReadOnly() {
+        IntOrderedSet set = new IntOrderedSet();
+        set.add(1);
+
+        assertThrows(UnsupportedOperationException.class, () -> set.asList().add(2));
+    }
+
+    @Test
+    void spliterator_isNotAffectedByLaterChanges() {
+        IntOrderedSet set = new IntOrderedSet();
+        set.add(3);
+        set.add(1);
+        Spliterator.OfInt snapshot = set.spliterator();
+        set.remove(3);
+        set.add(7);
+
+        List<Integer> values = new ArrayList<>();
+        snapshot.forEachRemaining((int value) -> values.add(value));
+        assertEquals(List.of(3, 1), values);
+        assertArrayEquals(new int[]{1, 7}, set.toArray());
+    }
+}
@@ -0,0 +1,122 @@
+package kanbanboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSortedSetTest {
+
+    @Test
+    void iterator_returnsValuesInAscendingOrder() {
+        IntSortedSet set = new IntSortedSet();
+        set.add(5);
+        set.add(-3);
+        set.add(12);
+        assertFalse(set.add(5), "Повторное значение добавлено");
+
+        assertEquals(List.of(-3, 5, 12), toList(set.iterator()));
+        assertEquals(List.of(5, 12), toList(set.iteratorFrom(4)));
+        assertEquals(List.of(12), toList(set.iteratorFrom(6)));
+        assertFalse(set.iteratorFrom(13).hasNext());
+    }
+
+    @Test
+    void randomOperations_matchTreeSet() {
+        IntSortedSet set = new IntSortedSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(16);
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        assertEquals(new ArrayList<>(expected), toList(set.iterator()));
+        assertEquals(new ArrayList<>(expected.tailSet(2_500)), toList(set.iteratorFrom(2_500)));
+        for (int value = 0; value < 5_000; value += 7) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+
+    @Test
+    void add_splitsBlocksOnMiddleInsert() {
+        IntSortedSet set = new IntSortedSet();
+        for (int i = 0; i < 2_000; i++) {
+            set.add(i * 2);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            set.add(i * 2 + 1);
+        }
+
+        PrimitiveIterator.OfInt values = set.iterator();
+        for (int i = 0; i < 4_000; i++) {
+            assertEquals(i, values.nextInt());
+        }
+        assertFalse(values.hasNext());
+    }
+
+    @Test
+    void remove_emptiesSetCompletely() {
+        IntSortedSet set = new IntSortedSet();
+        for (int i = 0; i < 1_000; i++) {
+            set.add(i);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(set.remove(i));
+        }
+
+        assertTrue(set.isEmpty());
+        assertFalse(set.iterator().hasNext());
+        assertTrue(set.add(7));
+        assertEquals(List.of(7), toList(set.iterator()));
+    }
+
+    private static List<Integer> toList(PrimitiveIterator.OfInt values) {
+        List<Integer> result = new ArrayList<>();
+        values.forEachRemaining((int value) -> result.add(value));
+        return result;
+    }
+
+    @Test
+    void copy_isIndependentFromSource() {
+        IntSortedSet set = new IntSortedSet();
+        for (int i = 0; i < 1_500; i++) {
+            set.add(i);
+        }
+        IntSortedSet copy = set.copy();
+        set.remove(10);
+        set.add(5_000);
+        copy.add(-1);
+
+        assertTrue(copy.contains(10));
+        assertFalse(copy.contains(5_000));
+        assertFalse(set.contains(-1));
+        assertEquals(1_501, copy.size());
+        assertEquals(1_500, set.size());
+    }
+
+    @Test
+    void spliterator_traversesSnapshotInParallel() {
+        IntSortedSet set = new IntSortedSet();
+        for (int i = 1; i <= 10_000; i++) {
+            set.add(i);
+        }
+        Spliterator.OfInt snapshot = set.spliterator();
+        set.clear();
+
+        assertEquals(10_000L * 10_001 / 2, StreamSupport.intStream(snapshot, true).asLongStream().sum());
+        assertTrue(set.isEmpty());
+    }
+}
@@ -0,0 +1,47 @@
+package kanbanboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketIndex_boundsCoverValueWithinRelativeError() {
+        long[] values = {0, 1, 63, 64, 65, 100, 1_000, 12_345, 999_999, 1L << 30, (1L << 43) - 1};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(upper >= value, "Верхняя граница корзины меньше значения " + value);
+            assertTrue(upper - value <= value / 32, "Погрешность больше 1/32 для " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value,
+                        "Значение " + value + " попало не в свою корзину");
+            }
+        }
+        assertEquals(LatencyHistogram.bucketIndex(1L << 50), LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void snapshot_percentilesMeanAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000, snapshot.getCount());
+        assertEquals(500_500, (long) snapshot.getMean());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertWithinBucket(500_000, snapshot.getValueAtPercentile(50));
+        assertWithinBucket(990_000, snapshot.getValueAtPercentile(99));
+        assertEquals(1_000_000, snapshot.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(0));
+        assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(99));
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 32, "Ожидалось около " + expected + ", получено " + actual);
+    }
+}
@@ -0,0 +1,79 @@
+package kanbanboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentIntMapTest {
+
+    @Test
+    void put_keepsPreviousVersionUnchanged() {
+        PersistentIntMap<String> first = PersistentIntMap.<String>empty().put(1, "a").put(40, "b");
+        PersistentIntMap<String> second = first.put(1, "c").remove(40).put(-5, "d");
+
+        assertEquals("a", first.get(1));
+        assertEquals("b", first.get(40));
+        assertNull(first.get(-5));
+        assertEquals(2, first.size());
+        assertEquals(List.of("d", "c"), toList(second), "Обход должен идти по возрастанию ключа");
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void randomOperations_matchTreeMap() {
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(18);
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextBoolean() ? random.nextInt(3_000) : random.nextInt();
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), toList(map));
+        List<Integer> streamed = new ArrayList<>();
+        map.forEach(streamed::add);
+        assertEquals(new ArrayList<>(expected.values()), streamed);
+        for (int key = 0; key < 3_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void fromSorted_buildsSameMapAsPuts() {
+        int[] keys = new int[1_000];
+        Integer[] values = new Integer[keys.length];
+        PersistentIntMap<Integer> expected = PersistentIntMap.empty();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 37 - 500;
+            values[i] = i;
+            expected = expected.put(keys[i], i);
+        }
+
+        PersistentIntMap<Integer> built = PersistentIntMap.fromSorted(keys, values, keys.length);
+
+        assertEquals(toList(expected), toList(built));
+        assertEquals(Integer.valueOf(10), built.get(-500 + 370));
+        assertThrows(IllegalArgumentException.class,
+                () -> PersistentIntMap.fromSorted(new int[]{2, 1}, new Integer[]{1, 2}, 2));
+    }
+
+    private static <V> List<V> toList(PersistentIntMap<V> map) {
+        List<V> result = new ArrayList<>();
+        for (V value : map) {
+            result.add(value);
+        }
+        return result;
+    }
+}